@@ -2,8 +2,10 @@ package com.qm.bookstore.qm_bookstore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class QmBookstoreApplication {
 
 	public static void main(String[] args) {
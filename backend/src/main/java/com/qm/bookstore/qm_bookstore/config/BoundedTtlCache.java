@@ -0,0 +1,202 @@
+package com.qm.bookstore.qm_bookstore.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spring Cache có giới hạn số entry (LRU), TTL theo entry và đếm hit/miss/eviction.
+ * Có thể gắn thêm một BackingStore (bảng DB) làm tầng lưu bền: miss ở bộ nhớ sẽ đọc từ store,
+ * put sẽ ghi xuống store - nhờ vậy cache vẫn còn sau khi restart ứng dụng.
+ */
+@Slf4j
+public class BoundedTtlCache extends AbstractValueAdaptingCache {
+
+    /**
+     * Tầng lưu bền cho cache (lỗi của store chỉ được log, không làm hỏng request)
+     */
+    public interface BackingStore {
+        Optional<StoredValue> load(String cacheName, String key, Class<?> valueType);
+
+        void save(String cacheName, String key, Object value, Instant expiresAt);
+
+        void evict(String cacheName, String key);
+
+        void clear(String cacheName);
+    }
+
+    public record StoredValue(Object value, Instant expiresAt) {
+    }
+
+    private record Entry(Object value, Instant expiresAt) {
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final Duration ttl;
+    private final Class<?> valueType;
+    private final BackingStore store;
+    private final Map<Object, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedTtlCache(String name, int maxSize, Duration ttl, Class<?> valueType, BackingStore store) {
+        super(false);
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.valueType = valueType;
+        this.store = store;
+        // LinkedHashMap theo thứ tự truy cập = LRU; bỏ entry cũ nhất khi vượt maxSize
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                boolean evict = size() > BoundedTtlCache.this.maxSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Instant now = Instant.now();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired(now)) {
+                    hits.increment();
+                    return entry.value();
+                }
+                entries.remove(key);
+            }
+        }
+
+        // Miss ở bộ nhớ - thử tầng lưu bền
+        if (store != null) {
+            try {
+                Optional<StoredValue> stored = store.load(name, key.toString(), valueType);
+                if (stored.isPresent() && now.isBefore(stored.get().expiresAt())) {
+                    synchronized (entries) {
+                        entries.put(key, new Entry(stored.get().value(), stored.get().expiresAt()));
+                    }
+                    hits.increment();
+                    return stored.get().value();
+                }
+            } catch (Exception e) {
+                log.warn("[lookup] Cache '{}' backing store read failed: {}", name, e.getMessage());
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        try {
+            T value = valueLoader.call();
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        Instant expiresAt = Instant.now().plus(ttl);
+        synchronized (entries) {
+            entries.put(key, new Entry(value, expiresAt));
+        }
+        if (store != null) {
+            try {
+                store.save(name, key.toString(), value, expiresAt);
+            } catch (Exception e) {
+                log.warn("[put] Cache '{}' backing store write failed: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+        if (store != null) {
+            try {
+                store.evict(name, key.toString());
+            } catch (Exception e) {
+                log.warn("[evict] Cache '{}' backing store evict failed: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        if (store != null) {
+            try {
+                store.clear(name);
+            } catch (Exception e) {
+                log.warn("[clear] Cache '{}' backing store clear failed: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    // Metrics
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.qm.bookstore.qm_bookstore.config;
+
+import com.qm.bookstore.qm_bookstore.dto.goong.RouteInfo;
+import com.qm.bookstore.qm_bookstore.dto.shipping.Coordinates;
+import com.qm.bookstore.qm_bookstore.service.GeoCacheStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cache cho kết quả Goong API (geocoding, routes, distance-bands): giới hạn kích thước, TTL, metrics
+ * (cache.gets / cache.evictions / cache.size trên actuator) và lưu bền qua GeoCacheStore.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String GEOCODING_CACHE = "geocoding";
+    public static final String ROUTES_CACHE = "routes";
+    public static final String DISTANCE_BANDS_CACHE = "distance-bands";
+
+    @Value("${goong.cache.geocoding.max-size:10000}")
+    private int geocodingMaxSize;
+
+    @Value("${goong.cache.geocoding.ttl:30d}")
+    private Duration geocodingTtl;
+
+    @Value("${goong.cache.routes.max-size:20000}")
+    private int routesMaxSize;
+
+    @Value("${goong.cache.routes.ttl:7d}")
+    private Duration routesTtl;
+
+    @Value("${shipping.distance-index.max-size:50000}")
+    private int distanceBandsMaxSize;
+
+    @Value("${shipping.distance-index.ttl:30d}")
+    private Duration distanceBandsTtl;
+
+    // Tắt để chỉ dùng cache trong bộ nhớ
+    @Value("${goong.cache.persistent:true}")
+    private boolean persistent;
+
+    @Bean
+    public CacheManager cacheManager(GeoCacheStore geoCacheStore, MeterRegistry meterRegistry) {
+        BoundedTtlCache.BackingStore store = persistent ? geoCacheStore : null;
+
+        BoundedTtlCache geocoding = new BoundedTtlCache(
+                GEOCODING_CACHE, geocodingMaxSize, geocodingTtl, Coordinates.class, store);
+        BoundedTtlCache routes = new BoundedTtlCache(
+                ROUTES_CACHE, routesMaxSize, routesTtl, RouteInfo.class, store);
+        BoundedTtlCache distanceBands = new BoundedTtlCache(
+                DISTANCE_BANDS_CACHE, distanceBandsMaxSize, distanceBandsTtl, RouteInfo.class, store);
+
+        bindMetrics(geocoding, meterRegistry);
+        bindMetrics(routes, meterRegistry);
+        bindMetrics(distanceBands, meterRegistry);
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(geocoding, routes, distanceBands));
+        return cacheManager;
+    }
+
+    private void bindMetrics(BoundedTtlCache cache, MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", cache, BoundedTtlCache::hitCount)
+                .tag("cache", cache.getName())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, BoundedTtlCache::missCount)
+                .tag("cache", cache.getName())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, BoundedTtlCache::evictionCount)
+                .tag("cache", cache.getName())
+                .register(registry);
+        Gauge.builder("cache.size", cache, BoundedTtlCache::size)
+                .tag("cache", cache.getName())
+                .register(registry);
+    }
+}
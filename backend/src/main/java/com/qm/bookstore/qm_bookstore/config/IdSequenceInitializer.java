@@ -0,0 +1,51 @@
+package com.qm.bookstore.qm_bookstore.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đồng bộ sequence cấp id (orders_seq, order_items_seq) với dữ liệu có sẵn.
+ *
+ * Database cũ có id sinh bằng IDENTITY; ddl-auto tạo sequence mới bắt đầu từ 1 -> đẩy sequence vượt qua id lớn nhất
+ * (cộng thêm một khối allocationSize) trước khi nhận request. Chỉ tiến, không lùi: chạy lại / nhiều instance an toàn.
+ * Phụ thuộc EntityManagerFactory để chạy sau khi schema đã được cập nhật.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceInitializer {
+
+    // sequence -> bảng (allocationSize của @SequenceGenerator tương ứng)
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders_seq", "orders",
+            "order_items_seq", "order_items");
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                List<Long> moved = jdbcTemplate.queryForList(
+                        "SELECT setval('" + sequence + "', m.max_id + " + ALLOCATION_SIZE + ") "
+                                + "FROM (SELECT COALESCE(MAX(id), 0) AS max_id FROM " + table + ") m "
+                                + "WHERE (SELECT last_value FROM " + sequence + ") <= m.max_id",
+                        Long.class);
+                if (!moved.isEmpty()) {
+                    log.info("[alignSequences] Moved {} to {} (existing ids in {})", sequence, moved.get(0), table);
+                }
+            } catch (Exception e) {
+                log.error("[alignSequences] Failed to align {}: {}", sequence, e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package com.qm.bookstore.qm_bookstore.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bật JDBC batching cho Hibernate (INSERT / UPDATE cùng bảng được gửi theo lô khi flush).
+ * Chỉ đặt giá trị mặc định - cấu hình spring.jpa.properties.hibernate.* vẫn được ưu tiên.
+ */
+@Configuration
+public class JpaBatchConfig {
+
+    @Value("${jpa.batch-size:50}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+}
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -33,9 +34,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             token = authHeader.substring(7);
             
             try {
-                if (jwtUtil.validateToken(token)) {
-                    String userId = jwtUtil.getUserIdFromToken(token);
-                    String role = jwtUtil.getRoleFromToken(token);
+                // Verify chữ ký và lấy claims trong một lần parse (có cache theo token)
+                Optional<JwtUtil.VerifiedToken> verified = jwtUtil.verify(token);
+                if (verified.isPresent()) {
+                    String userId = verified.get().userId();
+                    String role = verified.get().role();
                     // Set userId as principal (instead of username) for easy access in controllers
                     UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
                             userId, null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)));
@@ -2,13 +2,17 @@ package com.qm.bookstore.qm_bookstore.config;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
@@ -19,8 +23,37 @@ public class JwtUtil {
     @Value("${jwt.access-token-expiration}")
     private long accessTokenExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // Số token đã verify được giữ lại tối đa (0 = tắt cache)
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Key và parser được build một lần, dùng lại cho mọi request
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // token -> claims đã verify (LRU, giới hạn verifiedCacheSize); null khi tắt cache
+    private BoundedTtlCache verifiedTokens;
+
+    /**
+     * Claims đã được verify chữ ký của một access token
+     */
+    public record VerifiedToken(String username, String userId, String role, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        if (verifiedCacheSize > 0) {
+            // TTL của cache = thời hạn access token; hạn thật của từng token vẫn được kiểm tra khi đọc
+            verifiedTokens = new BoundedTtlCache("jwt-verified-tokens", verifiedCacheSize,
+                    Duration.ofMillis(accessTokenExpiration), VerifiedToken.class, null);
+        }
     }
 
     public String generateToken(String username, String role, String userId) {
@@ -30,46 +63,62 @@ public class JwtUtil {
                 .claim("userId", userId)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + accessTokenExpiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Verify chữ ký + hạn của token và trích claims trong một lần parse.
+     * Token đã verify gần đây được trả thẳng từ cache (không tính lại HMAC) cho tới khi hết hạn.
+     *
+     * @return claims nếu token hợp lệ, empty nếu token sai chữ ký / sai định dạng / hết hạn
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens != null ? verifiedTokens.get(token, VerifiedToken.class) : null;
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return Optional.of(cached);
+            }
+            verifiedTokens.evict(token);
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get("userId", String.class),
+                claims.get("role", String.class),
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+
+        if (verifiedTokens != null && !verified.isExpired(now)) {
+            verifiedTokens.put(token, verified);
+        }
+        return Optional.of(verified);
+    }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+        return parser.parseSignedClaims(token).getPayload().getSubject();
     }
 
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("role", String.class);
+        return parser.parseSignedClaims(token).getPayload().get("role", String.class);
     }
 
     public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("userId", String.class);
+        return parser.parseSignedClaims(token).getPayload().get("userId", String.class);
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 }
@@ -1,29 +1,166 @@
 package com.qm.bookstore.qm_bookstore.config;
 
+import com.qm.bookstore.qm_bookstore.exception.AppException;
+import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
+import com.qm.bookstore.qm_bookstore.service.PresenceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+
+/**
+ * Cấu hình STOMP over WebSocket.
+ *
+ * websocket.broker.mode:
+ * - simple (mặc định): broker trong bộ nhớ, chỉ chạy được 1 instance
+ * - relay: chuyển tiếp /topic, /queue tới STOMP broker ngoài (RabbitMQ STOMP plugin, ActiveMQ Artemis...) -
+ *   tin nhắn publish ở instance nào cũng tới client đang kết nối ở instance khác.
+ *   User destination (/user/...) của user kết nối ở instance khác được chuyển qua topic broadcast,
+ *   danh sách user/session được đồng bộ giữa các instance qua topic user registry
+ *
+ * CONNECT phải mang access token (header "Authorization: Bearer ..." như REST): token được verify bằng JwtUtil,
+ * principal của session = userId trong token (convertAndSendToUser(userId, ...), SimpUserRegistry); không có token
+ * hợp lệ -> CONNECT bị từ chối (ERROR frame).
+ *
+ * Mọi frame inbound (kể cả heartbeat 10s) làm mới lastSeen của session trong PresenceService.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String MODE_RELAY = "relay";
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+    private ObjectProvider<PresenceService> presenceService;
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    public void setJwtUtil(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
+    @Autowired
+    public void setPresenceService(ObjectProvider<PresenceService> presenceService) {
+        this.presenceService = presenceService;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker to carry messages back to the client
-        // on destinations prefixed with "/topic" and "/queue"
-        config.enableSimpleBroker("/topic", "/queue");
-        
+        if (MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            log.info("[configureMessageBroker] Using STOMP broker relay at {}:{}", relayHost, relayPort);
+            var relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // User destination đi qua nhiều instance
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Enable a simple in-memory message broker to carry messages back to the client
+            // on destinations prefixed with "/topic" and "/queue"
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{10000, 10000})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
+
         // Designate the "/app" prefix for messages that are bound to methods
         // annotated with @MessageMapping
         config.setApplicationDestinationPrefixes("/app");
-        
+
         // Set user destination prefix for private messages
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    authenticate(accessor);
+                }
+
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+                if (sessionId != null) {
+                    presenceService.ifAvailable(presence -> presence.touch(sessionId));
+                }
+                return message;
+            }
+        });
+    }
+
+    /**
+     * Xác thực CONNECT bằng access token; principal = userId đã verify (không tin header userId do client gửi)
+     */
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        String token = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+
+        JwtUtil.VerifiedToken verified = jwtUtil.verify(token)
+                .orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
+        String userId = PresenceService.normalizeUserId(verified.userId());
+        if (userId == null) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+
+        accessor.setUser(new UsernamePasswordAuthenticationToken(
+                userId, null, List.of(new SimpleGrantedAuthority("ROLE_" + verified.role()))));
+        if (accessor.getSessionAttributes() != null) {
+            accessor.getSessionAttributes().put(PresenceService.USERNAME_ATTRIBUTE, verified.username());
+        }
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Register the "/ws" endpoint for WebSocket connections
@@ -31,4 +168,4 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOrigins("http://localhost:5173", "http://localhost:3000", "https://qm-bookstore.vercel.app", "https://phucle5066.id.vn")
                 .withSockJS(); // Enable SockJS fallback
     }
-}
\ No newline at end of file
+}
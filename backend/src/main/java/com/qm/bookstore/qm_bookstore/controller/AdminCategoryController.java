@@ -3,8 +3,10 @@ package com.qm.bookstore.qm_bookstore.controller;
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
 import com.qm.bookstore.qm_bookstore.dto.category.*;
 import com.qm.bookstore.qm_bookstore.service.CategoryService;
+import com.qm.bookstore.qm_bookstore.service.CategorySnapshot;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,11 +25,16 @@ public class AdminCategoryController {
     /**
      * GET /api/admin/categories/tree
      * Returns hierarchical tree structure for admin (includes inactive categories)
+     * Hỗ trợ conditional GET: ETag theo version của snapshot, If-None-Match khớp -> 304
      */
     @GetMapping("/tree")
-    public ResponseEntity<List<CategoryTreeDTO>> getAdminCategoryTree() {
-        List<CategoryTreeDTO> tree = categoryService.getAdminCategoryTree();
-        return ResponseEntity.ok(tree);
+    public ResponseEntity<List<CategoryTreeDTO>> getAdminCategoryTree(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        CategorySnapshot snapshot = categoryService.getSnapshot();
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.adminTree());
     }
 
     /**
@@ -214,6 +221,59 @@ public class AdminCategoryController {
         }
     }
 
+    /**
+     * PATCH /api/admin/categories/bulk-status
+     * Set status for multiple categories (status = null: toggle each)
+     */
+    @PatchMapping("/bulk-status")
+    public ResponseEntity<ApiResponse<BulkUpdateResult>> bulkUpdateStatus(
+            @Valid @RequestBody BulkStatusCategoryRequest request) {
+        BulkUpdateResult result = categoryService.bulkUpdateStatus(request.getCategoryIds(), request.getStatus());
+        return bulkUpdateResponse(result, "Updated status of");
+    }
+
+    /**
+     * PATCH /api/admin/categories/bulk-move
+     * Move multiple categories to the same new parent
+     */
+    @PatchMapping("/bulk-move")
+    public ResponseEntity<ApiResponse<BulkUpdateResult>> bulkMoveCategories(
+            @Valid @RequestBody BulkMoveCategoryRequest request) {
+        try {
+            BulkUpdateResult result = categoryService.bulkMoveCategories(
+                    request.getCategoryIds(),
+                    request.getNewParentId());
+            return bulkUpdateResponse(result, "Moved");
+        } catch (RuntimeException e) {
+            ApiResponse<BulkUpdateResult> response = ApiResponse.<BulkUpdateResult>builder()
+                    .success(false)
+                    .code(getErrorCode(e.getMessage()))
+                    .message(e.getMessage())
+                    .build();
+
+            return ResponseEntity.status(getHttpStatus(e.getMessage())).body(response);
+        }
+    }
+
+    /**
+     * Helper: 200 when every category succeeded, 207 with per-item failures otherwise
+     */
+    private ResponseEntity<ApiResponse<BulkUpdateResult>> bulkUpdateResponse(BulkUpdateResult result, String action) {
+        boolean success = result.getFailed().isEmpty();
+        String message = success
+                ? action + " " + result.getUpdatedCount() + " categories successfully"
+                : action + " " + result.getUpdatedCount() + " out of " +
+                        (result.getUpdatedCount() + result.getFailed().size()) + " categories";
+
+        ApiResponse<BulkUpdateResult> response = ApiResponse.<BulkUpdateResult>builder()
+                .success(success)
+                .message(message)
+                .result(result)
+                .build();
+
+        return ResponseEntity.status(success ? HttpStatus.OK : HttpStatus.MULTI_STATUS).body(response);
+    }
+
     /**
      * Helper: Get HTTP status based on error message
      */
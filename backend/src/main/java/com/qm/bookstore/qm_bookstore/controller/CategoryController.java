@@ -3,11 +3,15 @@ package com.qm.bookstore.qm_bookstore.controller;
 import com.qm.bookstore.qm_bookstore.dto.category.CategoryDTO;
 import com.qm.bookstore.qm_bookstore.dto.category.CategoryTreeDTO;
 import com.qm.bookstore.qm_bookstore.service.CategoryService;
+import com.qm.bookstore.qm_bookstore.service.CategorySnapshot;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -20,11 +24,16 @@ public class CategoryController {
      * GET /api/categories/tree
      * Returns hierarchical tree structure for mega-menu
      * Only includes: id, name, slug, children
+     * Hỗ trợ conditional GET: ETag theo version của snapshot, If-None-Match khớp -> 304
      */
     @GetMapping("/tree")
-    public ResponseEntity<List<CategoryTreeDTO>> getCategoryTree() {
-        List<CategoryTreeDTO> tree = categoryService.getCategoryTree();
-        return ResponseEntity.ok(tree);
+    public ResponseEntity<List<CategoryTreeDTO>> getCategoryTree(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        CategorySnapshot snapshot = categoryService.getSnapshot();
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.publicTree());
     }
     
     /**
@@ -51,6 +60,24 @@ public class CategoryController {
         return ResponseEntity.ok(category);
     }
     
+    /**
+     * GET /api/categories/{id}/path
+     * Đường dẫn từ root đến category (breadcrumb)
+     */
+    @GetMapping("/{id}/path")
+    public ResponseEntity<List<CategoryDTO>> getCategoryPath(@PathVariable Long id) {
+        return ResponseEntity.ok(categoryService.getCategoryPath(id));
+    }
+
+    /**
+     * GET /api/categories/product-counts
+     * Số product theo cây con của từng category (categoryId -> count, bỏ qua category không có product)
+     */
+    @GetMapping("/product-counts")
+    public ResponseEntity<Map<Long, Long>> getSubtreeProductCounts() {
+        return ResponseEntity.ok(categoryService.getSubtreeProductCounts());
+    }
+
     /**
      * GET /api/categories/slug/{slug}
      * Get category by slug (for URL routing)
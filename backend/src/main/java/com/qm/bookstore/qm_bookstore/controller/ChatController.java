@@ -3,8 +3,10 @@ package com.qm.bookstore.qm_bookstore.controller;
 import com.qm.bookstore.qm_bookstore.dto.chat.ChatMessageDto;
 import com.qm.bookstore.qm_bookstore.dto.chat.TypingIndicatorDto;
 import com.qm.bookstore.qm_bookstore.dto.chat.UserStatusDto;
+import com.qm.bookstore.qm_bookstore.service.ChatIngestService;
 import com.qm.bookstore.qm_bookstore.service.ChatService;
 import com.qm.bookstore.qm_bookstore.service.ChatNotificationService;
+import com.qm.bookstore.qm_bookstore.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -19,6 +21,7 @@ import org.springframework.stereotype.Controller;
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
@@ -26,8 +29,10 @@ import java.util.List;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ChatIngestService chatIngestService;
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatNotificationService notificationService;
+    private final PresenceService presenceService;
 
     @MessageMapping("/admin-chat")
     @SendTo("/topic/messages")
@@ -44,12 +49,11 @@ public class ChatController {
                 message.setSenderType("admin"); // You may want to determine this from JWT token
             }
             
-            // Save to database first
-            ChatMessageDto savedMessage = chatService.saveMessage(message);
-            log.info("Admin message saved with ID: {}", savedMessage.getId());
+            // Xếp hàng lưu (id được gửi lại qua receipt), broadcast ngay với clientId
+            chatIngestService.submit(message);
+            log.info("Admin message queued with client ID: {}", message.getClientId());
             
-            // Return saved message for broadcast
-            return savedMessage;
+            return message;
         } catch (Exception e) {
             log.error("Error handling admin chat: {}", e.getMessage(), e);
             // Return original message even if save fails to maintain real-time chat
@@ -67,12 +71,9 @@ public class ChatController {
                 message.setCreatedAt(LocalDateTime.now());
             }
             
-            // Save to database first
-            ChatMessageDto savedMessage = chatService.saveMessage(message);
-            log.info("Private message saved with ID: {}", savedMessage.getId());
-            
-            // Notifications are handled automatically in ChatService.saveMessage()
-            log.info("Notifications created automatically for admin message to user: {}", savedMessage.getReceiverId());
+            // Xếp hàng lưu - notification và receipt được gửi khi lô được commit
+            chatIngestService.submit(message);
+            log.info("Private message queued with client ID: {}", message.getClientId());
         } catch (Exception e) {
             log.error("Error handling private message: {}", e.getMessage(), e);
         }
@@ -97,15 +98,12 @@ public class ChatController {
                 log.info("User message will be broadcast to all admins/managers");
             }
             
-            // Save to database first
-            ChatMessageDto savedMessage = chatService.saveMessage(message);
-            log.info("User message saved with ID: {} and will be visible to all admin/manager", savedMessage.getId());
-            
-            // Notifications are handled automatically in ChatService.saveMessage()
-            log.info("Notifications created automatically for user message from: {}", savedMessage.getSenderId());
+            // Xếp hàng lưu - notification và receipt được gửi khi lô được commit
+            chatIngestService.submit(message);
+            log.info("User message queued with client ID: {}", message.getClientId());
             
-            // Return saved message for legacy compatibility
-            return savedMessage;
+            // Trả về ack (có clientId, chưa có id) cho legacy compatibility
+            return message;
         } catch (Exception e) {
             log.error("Error handling user message: {}", e.getMessage(), e);
             // Return original message even if save fails
@@ -139,7 +137,7 @@ public class ChatController {
 
     @MessageMapping("/typing-indicator")
     public void handleTypingIndicator(TypingIndicatorDto indicator, Principal principal) {
-        log.info("Received typing indicator from {}: {} - {}", 
+        log.debug("Received typing indicator from {}: {} - {}", 
                 principal != null ? principal.getName() : "anonymous", 
                 indicator.isTyping() ? "started" : "stopped", 
                 indicator.getConversationUserId());
@@ -158,17 +156,25 @@ public class ChatController {
     }
 
     @MessageMapping("/user-status")
-    public void handleUserStatus(UserStatusDto status, Principal principal) {
+    public void handleUserStatus(UserStatusDto status, Principal principal, SimpMessageHeaderAccessor headerAccessor) {
         log.info("Received user status from {}: {} - {}", 
                 principal != null ? principal.getName() : "anonymous", 
                 status.getStatus(), 
                 status.getUserId());
         
         try {
-            notificationService.sendUserStatusUpdate(
-                    status.getUserId(),
+            // Gắn session với user đã xác thực lúc CONNECT (không dùng userId client tự khai),
+            // thay đổi được gửi theo lô bởi PresenceService
+            String userId = principal != null ? PresenceService.normalizeUserId(principal.getName()) : null;
+            if (userId == null) {
+                log.warn("Ignoring user status from unauthenticated session {}", headerAccessor.getSessionId());
+                return;
+            }
+            presenceService.updateStatus(
+                    UUID.fromString(userId),
+                    status.getUsername(),
                     status.getStatus(),
-                    status.getUsername()
+                    headerAccessor.getSessionId()
             );
         } catch (Exception e) {
             log.error("Error handling user status: {}", e.getMessage(), e);
@@ -1,12 +1,15 @@
 package com.qm.bookstore.qm_bookstore.controller;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
+import com.qm.bookstore.qm_bookstore.dto.chat.response.PresenceResponse;
 import com.qm.bookstore.qm_bookstore.service.ChatNotificationService;
+import com.qm.bookstore.qm_bookstore.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -16,6 +19,7 @@ import java.util.UUID;
 public class ChatNotificationController {
 
     private final ChatNotificationService notificationService;
+    private final PresenceService presenceService;
 
     /**
      * Gửi system alert tới tất cả admin/manager
@@ -73,6 +77,30 @@ public class ChatNotificationController {
                 .build();
     }
 
+    /**
+     * Danh sách user đang online (đọc từ bộ nhớ, không truy cập database)
+     */
+    @GetMapping("/admin/online-users")
+    @PreAuthorize("hasRole('admin') or hasRole('manager')")
+    public ApiResponse<List<PresenceResponse>> getOnlineUsers() {
+        
+        return ApiResponse.<List<PresenceResponse>>builder()
+                .result(presenceService.getOnlineUsers())
+                .build();
+    }
+
+    /**
+     * Trạng thái online của một user
+     */
+    @GetMapping("/user/{userId}/presence")
+    @PreAuthorize("hasRole('admin') or hasRole('manager')")
+    public ApiResponse<PresenceResponse> getPresence(@PathVariable UUID userId) {
+        
+        return ApiResponse.<PresenceResponse>builder()
+                .result(presenceService.getPresence(userId))
+                .build();
+    }
+
     // Request DTOs
     @lombok.Data
     public static class SystemAlertRequest {
@@ -4,7 +4,9 @@ import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
 import com.qm.bookstore.qm_bookstore.dto.chat.ChatMessageDto;
 import com.qm.bookstore.qm_bookstore.dto.chat.BroadcastMessageRequest;
 import com.qm.bookstore.qm_bookstore.dto.chat.request.MarkMessagesReadRequest;
+import com.qm.bookstore.qm_bookstore.dto.chat.response.ConversationSummaryResponse;
 import com.qm.bookstore.qm_bookstore.dto.chat.response.ReadStatusResponse;
+import com.qm.bookstore.qm_bookstore.service.ChatIngestService;
 import com.qm.bookstore.qm_bookstore.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -27,6 +30,7 @@ import java.util.UUID;
 public class ChatRestController {
 
     private final ChatService chatService;
+    private final ChatIngestService chatIngestService;
     private final SimpMessagingTemplate messagingTemplate;
 
     @GetMapping("/history/{userId}")
@@ -162,6 +166,42 @@ public class ChatRestController {
                 .build();
     }
 
+    /**
+     * Inbox của admin: hội thoại phân trang theo hoạt động gần nhất (read model conversation_summary)
+     */
+    @GetMapping("/admin/inbox")
+    @PreAuthorize("hasRole('admin') or hasRole('manager')")
+    public ApiResponse<Page<ConversationSummaryResponse>> getInbox(
+            @RequestParam(required = false) UUID assignedTo,
+            @RequestParam(defaultValue = "false") boolean unreadOnly,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Page<ConversationSummaryResponse> inbox = chatService.getInbox(assignedTo, unreadOnly, PageRequest.of(page, size));
+
+        return ApiResponse.<Page<ConversationSummaryResponse>>builder()
+                .result(inbox)
+                .build();
+    }
+
+    /**
+     * Gán staff phụ trách hội thoại với customer (không truyền staffId: bỏ gán)
+     */
+    @PutMapping("/admin/conversations/{userId}/assign")
+    @PreAuthorize("hasRole('admin') or hasRole('manager')")
+    public ApiResponse<Boolean> assignConversation(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) UUID staffId) {
+
+        boolean assigned = chatService.assignConversation(userId, staffId);
+
+        return ApiResponse.<Boolean>builder()
+                .success(assigned)
+                .message(assigned ? "Conversation assigned" : "Conversation not found")
+                .result(assigned)
+                .build();
+    }
+
     @GetMapping("/admin/latest-conversations/{adminId}")
     @PreAuthorize("hasRole('admin') or hasRole('manager')")
     public ApiResponse<List<ChatMessageDto>> getLatestConversationsForAdmin(@PathVariable UUID adminId) {
@@ -197,13 +237,13 @@ public class ChatRestController {
     }
 
     @PostMapping("/message")
-    public ApiResponse<ChatMessageDto> saveMessage(@RequestBody ChatMessageDto messageDto) {
-        
-        ChatMessageDto savedMessage = chatService.saveMessage(messageDto);
+    public CompletableFuture<ApiResponse<ChatMessageDto>> saveMessage(@RequestBody ChatMessageDto messageDto) {
         
-        return ApiResponse.<ChatMessageDto>builder()
-                .result(savedMessage)
-                .build();
+        // Lưu qua ingest pipeline, request hoàn thành (async) khi lô chứa tin nhắn đã commit
+        return chatIngestService.submit(messageDto)
+                .thenApply(savedMessage -> ApiResponse.<ChatMessageDto>builder()
+                        .result(savedMessage)
+                        .build());
     }
 
     @GetMapping("/admin/user-messages")
@@ -294,7 +334,7 @@ public class ChatRestController {
     public ApiResponse<ReadStatusResponse> markMessageAsReadByAdmin(@PathVariable Long messageId) {
         log.info("Admin marking message {} as read", messageId);
         
-        int markedCount = chatService.markMessageAsReadByAdmin(messageId);
+        int markedCount = chatService.markMessagesAsReadByAdmin(List.of(messageId));
         
         ReadStatusResponse response = ReadStatusResponse.builder()
                 .success(markedCount > 0)
@@ -314,7 +354,7 @@ public class ChatRestController {
     public ApiResponse<ReadStatusResponse> markMessageAsReadByUser(@PathVariable Long messageId) {
         log.info("User marking message {} as read", messageId);
         
-        int markedCount = chatService.markMessageAsReadByUser(messageId);
+        int markedCount = chatService.markMessagesAsReadByUser(List.of(messageId));
         
         ReadStatusResponse response = ReadStatusResponse.builder()
                 .success(markedCount > 0)
@@ -416,11 +456,9 @@ public class ChatRestController {
         if (Boolean.TRUE.equals(request.getMarkAllFromUser()) && request.getUserId() != null) {
             totalMarked = chatService.markAsReadByAdminForUser(request.getUserId());
         }
-        // Nếu có danh sách message IDs cụ thể
+        // Nếu có danh sách message IDs cụ thể (đã đọc đến tin nhắn mới nhất trong danh sách)
         else if (request.getMessageIds() != null && !request.getMessageIds().isEmpty()) {
-            for (Long messageId : request.getMessageIds()) {
-                totalMarked += chatService.markMessageAsReadByAdmin(messageId);
-            }
+            totalMarked = chatService.markMessagesAsReadByAdmin(request.getMessageIds());
         }
         
         ReadStatusResponse response = ReadStatusResponse.builder()
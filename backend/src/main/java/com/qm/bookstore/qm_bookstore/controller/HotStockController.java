@@ -0,0 +1,69 @@
+package com.qm.bookstore.qm_bookstore.controller;
+
+import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
+import com.qm.bookstore.qm_bookstore.dto.inventory.response.HotProductResponse;
+import com.qm.bookstore.qm_bookstore.service.HotStockService;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller bật / tắt chế độ hot product (flash sale)
+ *
+ * Endpoints:
+ * - POST /api/inventory/hot-products/{productId}?stripes=N - Bật chế độ hot (chia tồn kho thành N stripe)
+ * - DELETE /api/inventory/hot-products/{productId} - Tắt chế độ hot
+ * - GET /api/inventory/hot-products - Danh sách hot product
+ */
+@RestController
+@RequestMapping("/api/inventory/hot-products")
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+@Slf4j
+public class HotStockController {
+
+    HotStockService hotStockService;
+
+    @PostMapping("/{productId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ApiResponse<HotProductResponse> enable(@PathVariable Long productId,
+                                                  @RequestParam(defaultValue = "8") int stripes) {
+        log.info("Enabling hot stock: productId={}, stripes={}", productId, stripes);
+
+        return ApiResponse.<HotProductResponse>builder()
+                .success(true)
+                .code(HttpStatus.OK.value())
+                .message("Hot stock enabled successfully")
+                .result(hotStockService.enable(productId, stripes))
+                .build();
+    }
+
+    @DeleteMapping("/{productId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ApiResponse<Void> disable(@PathVariable Long productId) {
+        log.info("Disabling hot stock: productId={}", productId);
+        hotStockService.disable(productId);
+
+        return ApiResponse.<Void>builder()
+                .success(true)
+                .code(HttpStatus.OK.value())
+                .message("Hot stock disabled successfully")
+                .build();
+    }
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ApiResponse<List<HotProductResponse>> getHotProducts() {
+        return ApiResponse.<List<HotProductResponse>>builder()
+                .success(true)
+                .code(HttpStatus.OK.value())
+                .message("Hot products retrieved successfully")
+                .result(hotStockService.getHotProducts())
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.qm.bookstore.qm_bookstore.controller;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
+import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
 import com.qm.bookstore.qm_bookstore.dto.order.request.CancelOrderRequest;
 import com.qm.bookstore.qm_bookstore.dto.order.request.CheckoutRequest;
 import com.qm.bookstore.qm_bookstore.dto.order.request.UpdateOrderStatusRequest;
@@ -78,6 +79,30 @@ public class OrderController {
                 .build();
     }
 
+    /**
+     * Get my orders - chế độ cursor cho infinite scroll (mới nhất trước, không đếm tổng)
+     * GET /api/orders/my-orders/cursor?after=...
+     */
+    @GetMapping("/my-orders/cursor")
+    public ApiResponse<BaseGetAllResponse<OrderResponse>> getMyOrdersCursor(
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) String fulfillmentStatus,
+            @RequestParam(required = false) String orderStatus,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            Authentication authentication) {
+
+        UUID userId = UUID.fromString(authentication.getName());
+        BaseGetAllResponse<OrderResponse> orders = orderService.getMyOrdersAfter(
+                userId, paymentStatus, fulfillmentStatus, orderStatus, after, size);
+
+        return ApiResponse.<BaseGetAllResponse<OrderResponse>>builder()
+                .code(1000)
+                .message("Success")
+                .result(orders)
+                .build();
+    }
+
     /**
      * Get order detail - Chi tiết đơn hàng
      * GET /api/orders/{orderId}
@@ -211,4 +236,27 @@ public class OrderController {
                 .result(orders)
                 .build();
     }
+
+    /**
+     * Get all orders (Admin/Manager) - chế độ cursor cho infinite scroll (mới nhất trước, không đếm tổng)
+     * GET /api/orders/manage/cursor?after=...
+     */
+    @GetMapping("/manage/cursor")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ApiResponse<BaseGetAllResponse<OrderResponse>> getAllOrdersCursor(
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) String fulfillmentStatus,
+            @RequestParam(required = false) String orderStatus,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+
+        BaseGetAllResponse<OrderResponse> orders = orderService.getAllOrdersAfter(
+                paymentStatus, fulfillmentStatus, orderStatus, after, size);
+
+        return ApiResponse.<BaseGetAllResponse<OrderResponse>>builder()
+                .code(1000)
+                .message("Success")
+                .result(orders)
+                .build();
+    }
 }
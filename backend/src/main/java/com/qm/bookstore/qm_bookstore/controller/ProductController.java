@@ -2,9 +2,11 @@ package com.qm.bookstore.qm_bookstore.controller;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
+import com.qm.bookstore.qm_bookstore.dto.product.request.ProductBrowseRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductCreateRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductGetAllRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductUpdateRequest;
+import com.qm.bookstore.qm_bookstore.dto.product.response.ProductBrowseResponse;
 import com.qm.bookstore.qm_bookstore.dto.product.response.ProductResponse;
 import com.qm.bookstore.qm_bookstore.service.ProductService;
 import lombok.RequiredArgsConstructor;
@@ -37,6 +39,17 @@ public class ProductController {
                 .build();
     }
 
+    @GetMapping("/browse")
+    public ApiResponse<ProductBrowseResponse> browseProducts(ProductBrowseRequest request) {
+        ProductBrowseResponse products = productService.browseProducts(request);
+        return ApiResponse.<ProductBrowseResponse>builder()
+                .success(true)
+                .code(HttpStatus.OK.value())
+                .message("Products retrieved successfully")
+                .result(products)
+                .build();
+    }
+
     @GetMapping("/{id}")
     public ApiResponse<ProductResponse> getProductById(@PathVariable Long id) {
         log.info("Getting product by id: {}", id);
@@ -89,9 +102,11 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
-    public ApiResponse<List<ProductResponse>> getProductsByCategory(@PathVariable Long categoryId) {
-        log.info("Getting products by category id: {}", categoryId);
-        List<ProductResponse> products = productService.getProductsByCategory(categoryId);
+    public ApiResponse<List<ProductResponse>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories) {
+        log.info("Getting products by category id: {} (includeSubcategories={})", categoryId, includeSubcategories);
+        List<ProductResponse> products = productService.getProductsByCategory(categoryId, includeSubcategories);
         return ApiResponse.<List<ProductResponse>>builder()
                 .success(true)
                 .code(HttpStatus.OK.value())
@@ -2,7 +2,10 @@ package com.qm.bookstore.qm_bookstore.controller;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
 import com.qm.bookstore.qm_bookstore.dto.report.*;
+import com.qm.bookstore.qm_bookstore.exception.AppException;
+import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
 import com.qm.bookstore.qm_bookstore.service.ReportService;
+import com.qm.bookstore.qm_bookstore.service.SalesRollupService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -24,6 +27,7 @@ import java.util.List;
 public class ReportController {
 
     ReportService reportService;
+    SalesRollupService salesRollupService;
 
     /**
      * Get revenue report
@@ -155,24 +159,8 @@ public class ReportController {
     public ApiResponse<DashboardSummaryResponse> getDashboardSummary() {
         log.info("[getDashboardSummary] Generating dashboard summary");
 
-        // Last 30 days
-        LocalDateTime end = LocalDateTime.now();
-        LocalDateTime start = end.minusDays(30);
-
-        RevenueReportResponse revenue = reportService.getRevenueReport(start, end);
-        OrderStatisticsResponse orders = reportService.getOrderStatistics(start, end);
-        UserStatisticsResponse users = reportService.getUserStatistics(start, end);
-        List<ProductReportResponse> topProducts = reportService.getTopSellingProducts(start, end, 5);
-
-        DashboardSummaryResponse summary = DashboardSummaryResponse.builder()
-                .totalRevenue(revenue.getTotalRevenue())
-                .totalOrders(orders.getTotalOrders())
-                .paidOrders(orders.getPaidOrders())
-                .cancelledOrders(orders.getCancelledOrders())
-                .totalCustomers(users.getTotalUsers())
-                .newCustomers(users.getNewUsersInPeriod())
-                .topSellingProducts(topProducts)
-                .build();
+        // Last 30 days - served from the daily sales rollup tables
+        DashboardSummaryResponse summary = reportService.getDashboardSummary();
 
         return ApiResponse.<DashboardSummaryResponse>builder()
                 .code(1000)
@@ -235,4 +223,29 @@ public class ReportController {
                 .result(chartData)
                 .build();
     }
+
+    /**
+     * Rebuild daily sales rollups for a date range (backfill)
+     * POST /api/reports/rollups/rebuild
+     */
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Void> rebuildSalesRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        log.info("[rebuildSalesRollups] Rebuilding sales rollups from {} to {}", startDate, endDate);
+
+        if (endDate.isBefore(startDate)) {
+            throw new AppException(ErrorCode.INVALID_REPORT_DATE_RANGE);
+        }
+
+        salesRollupService.rebuild(startDate, endDate);
+
+        return ApiResponse.<Void>builder()
+                .success(true)
+                .code(1000)
+                .message("Sales rollups rebuilt successfully")
+                .build();
+    }
 }
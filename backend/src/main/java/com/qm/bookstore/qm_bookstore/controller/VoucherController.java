@@ -1,6 +1,7 @@
 package com.qm.bookstore.qm_bookstore.controller;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.ApiResponse;
+import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.VoucherCreateRequest;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.VoucherUpdateRequest;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.ValidateVoucherRequest;
@@ -130,6 +131,26 @@ public class VoucherController {
                 .build());
     }
 
+    /**
+     * [ADMIN] Danh sách voucher - chế độ cursor cho infinite scroll (mới nhất trước, không đếm tổng)
+     * GET /api/vouchers/admin/all/cursor?size=10&after=...
+     */
+    @GetMapping("/admin/all/cursor")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<ApiResponse<BaseGetAllResponse<VoucherResponse>>> getAllVouchersCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Boolean status,
+            @RequestParam(required = false) String applyTo) {
+
+        BaseGetAllResponse<VoucherResponse> vouchers = voucherService.getVouchersAfter(status, applyTo, after, size);
+        return ResponseEntity.ok(ApiResponse.<BaseGetAllResponse<VoucherResponse>>builder()
+                .code(HttpStatus.OK.value())
+                .message("Retrieved vouchers successfully")
+                .result(vouchers)
+                .build());
+    }
+
     /**
      * [PUBLIC] Lấy danh sách voucher khả dụng (active, trong thời gian valid, còn usage)
      * GET /api/vouchers/available
@@ -10,4 +10,15 @@ public abstract class BaseGetAllRequest {
     protected Integer maxResultCount = 10;
     protected String sortBy;
     protected String sortDirection = "asc";
+
+    /**
+     * Chế độ cursor (keyset): true hoặc có after -> bỏ qua skipCount / sortBy, sắp xếp mới nhất trước
+     * (createdAt DESC, id DESC), không đếm tổng
+     */
+    protected Boolean cursor;
+    protected String after; // nextCursor của trang trước
+
+    public boolean isCursorMode() {
+        return Boolean.TRUE.equals(cursor) || (after != null && !after.isEmpty());
+    }
 }
@@ -12,6 +12,6 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BaseGetAllResponse<T> {
     List<T> data;
-    long totalRecords;
+    long totalRecords; // -1 ở chế độ cursor (không đếm)
+    String nextCursor; // chế độ cursor: token lấy trang kế tiếp, null nếu đã hết
 }
-
@@ -13,6 +13,7 @@ import java.util.List;
 @AllArgsConstructor
 public class BulkDeleteResult {
     private int deletedCount;
+    private List<Long> deletedIds;
     private List<FailedDelete> failed;
     
     @Data
@@ -0,0 +1,22 @@
+package com.qm.bookstore.qm_bookstore.dto.category;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMoveCategoryRequest {
+
+    @NotEmpty(message = "Category IDs list cannot be empty")
+    private List<Long> categoryIds;
+
+    // null: chuyển thành category gốc
+    private Long newParentId;
+}
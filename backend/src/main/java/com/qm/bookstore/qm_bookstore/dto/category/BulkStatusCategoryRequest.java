@@ -0,0 +1,22 @@
+package com.qm.bookstore.qm_bookstore.dto.category;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusCategoryRequest {
+
+    @NotEmpty(message = "Category IDs list cannot be empty")
+    private List<Long> categoryIds;
+
+    // null: đảo trạng thái của từng category
+    private Boolean status;
+}
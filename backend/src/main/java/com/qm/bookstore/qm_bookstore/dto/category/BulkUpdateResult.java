@@ -0,0 +1,28 @@
+package com.qm.bookstore.qm_bookstore.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUpdateResult {
+    private int updatedCount;
+    private List<Long> updatedIds;
+    private List<FailedUpdate> failed;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FailedUpdate {
+        private Long id;
+        private String name;
+        private String reason;
+    }
+}
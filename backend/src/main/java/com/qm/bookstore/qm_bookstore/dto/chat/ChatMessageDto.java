@@ -19,6 +19,9 @@ import java.util.UUID;
 public class ChatMessageDto {
     
     Long id;
+
+    // Id do client sinh để đối chiếu receipt khi tin nhắn được lưu bất đồng bộ (ChatIngestService)
+    String clientId;
     UUID senderId;
     UUID receiverId;
     String message;
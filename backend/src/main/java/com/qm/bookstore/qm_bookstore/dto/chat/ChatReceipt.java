@@ -0,0 +1,40 @@
+package com.qm.bookstore.qm_bookstore.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatReceipt {
+
+    private String clientId; // Id do client sinh khi gửi tin nhắn
+
+    private Long messageId; // Id tin nhắn trong database (null nếu lưu thất bại)
+
+    private String status; // "persisted", "failed"
+
+    private LocalDateTime timestamp;
+
+    public static ChatReceipt persisted(ChatMessageDto message) {
+        return ChatReceipt.builder()
+                .clientId(message.getClientId())
+                .messageId(message.getId())
+                .status("persisted")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public static ChatReceipt failed(String clientId) {
+        return ChatReceipt.builder()
+                .clientId(clientId)
+                .status("failed")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.qm.bookstore.qm_bookstore.dto.chat;
+
+import com.qm.bookstore.qm_bookstore.dto.chat.response.PresenceResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDiff {
+
+    private List<PresenceResponse> changed; // User đổi trạng thái từ lần gửi trước (status "offline" = đã rời đi)
+
+    private String node; // Instance gửi diff (chế độ relay: nhiều instance cùng gửi lên /topic/admin-presence)
+
+    private Integer onlineCount; // Tổng số user đang online (toàn cụm)
+
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,28 @@
+package com.qm.bookstore.qm_bookstore.dto.chat.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ConversationSummaryResponse {
+    UUID userId;
+    String username;
+    Long lastMessageId;
+    String lastMessagePreview;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    LocalDateTime lastMessageAt;
+
+    String lastSenderType;
+    UUID assignedStaffId;
+    Integer unreadByStaff;
+    Integer unreadByUser;
+}
@@ -0,0 +1,23 @@
+package com.qm.bookstore.qm_bookstore.dto.inventory.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * DTO trả về trạng thái hot product (tồn kho chia stripe cho flash sale)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class HotProductResponse {
+
+    Long productId;
+
+    Integer stripes; // Số stripe
+
+    Integer remaining; // Tổng số lượng còn bán được trên các stripe
+
+    Integer pendingConsumed; // Số lượng đã bán chưa gộp về tồn kho
+}
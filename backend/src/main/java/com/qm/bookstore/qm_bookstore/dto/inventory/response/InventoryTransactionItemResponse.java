@@ -30,4 +30,6 @@ public class InventoryTransactionItemResponse {
     BigDecimal unitPrice; // Giá nhập đơn vị
 
     BigDecimal totalPrice; // Tổng giá trị (unitPrice × quantity)
+
+    Integer stockAfter; // Tồn kho sau khi trừ (chỉ có ở response của lệnh xuất kho vừa tạo)
 }
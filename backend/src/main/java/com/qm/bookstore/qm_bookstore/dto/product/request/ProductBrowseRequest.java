@@ -0,0 +1,24 @@
+package com.qm.bookstore.qm_bookstore.dto.product.request;
+
+import com.qm.bookstore.qm_bookstore.dto.base.request.BaseGetAllRequest;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Bộ lọc duyệt catalog (sidebar): mỗi nhóm chọn nhiều giá trị (OR trong nhóm, AND giữa các nhóm)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductBrowseRequest extends BaseGetAllRequest {
+    List<Long> categoryIds;
+    List<String> brands;
+    List<Integer> priceBands; // chỉ số khoảng giá (value của facet priceBands)
+    Boolean availability;
+    Boolean inStock; // true: chỉ product còn hàng (stock > 0)
+}
@@ -0,0 +1,18 @@
+package com.qm.bookstore.qm_bookstore.dto.product.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Một giá trị của facet và số product khớp nếu chọn thêm giá trị đó
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FacetCount {
+    String value; // giá trị dùng để lọc (categoryId / brand / chỉ số khoảng giá)
+    String label; // tên hiển thị
+    long count;
+}
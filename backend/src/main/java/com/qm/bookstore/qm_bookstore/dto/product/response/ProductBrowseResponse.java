@@ -0,0 +1,22 @@
+package com.qm.bookstore.qm_bookstore.dto.product.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Trang product + số đếm của từng facet cho cùng một bộ lọc
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductBrowseResponse {
+    List<ProductResponse> data;
+    long totalRecords;
+    List<FacetCount> categories;
+    List<FacetCount> brands;
+    List<FacetCount> priceBands;
+}
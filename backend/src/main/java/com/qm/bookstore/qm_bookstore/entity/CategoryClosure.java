@@ -0,0 +1,50 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.io.Serializable;
+
+/**
+ * Closure table của cây category: mỗi cặp (tổ tiên, hậu duệ) là một dòng, depth = khoảng cách
+ * (mỗi category có một dòng tự tham chiếu depth = 0).
+ * Truy vấn cây con / tổ tiên là một lookup theo index; được CategoryService cập nhật trong cùng transaction
+ * khi tạo / di chuyển / xóa category.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@IdClass(CategoryClosure.Key.class)
+@Table(name = "category_closure",
+    indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, ancestor_id")
+    }
+)
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    Long descendantId;
+
+    @Column(nullable = false)
+    Integer depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
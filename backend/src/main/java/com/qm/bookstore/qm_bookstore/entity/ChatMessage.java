@@ -12,7 +12,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages",
+    indexes = {
+        @Index(name = "idx_chat_messages_sender_id", columnList = "sender_id, id"),
+        @Index(name = "idx_chat_messages_receiver_id", columnList = "receiver_id, id")
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,6 +45,7 @@ public class ChatMessage {
     @Column(name = "created_at")
     LocalDateTime createdAt;
     
+    // Cờ đã đọc cũ - trạng thái đọc nay theo watermark (ConversationSummary), cờ chỉ dùng để backfill
     @Column(name = "is_read_by_admin", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
     Boolean isReadByAdmin = false;
     
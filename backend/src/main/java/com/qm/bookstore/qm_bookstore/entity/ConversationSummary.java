@@ -0,0 +1,70 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model của một cuộc hội thoại customer - staff (mỗi customer một dòng), phục vụ inbox của admin.
+ * Được cập nhật cùng transaction với việc lưu tin nhắn (ChatService.saveMessage).
+ * last_message_*: tin nhắn mới nhất của hội thoại; assigned_staff_id: staff phụ trách (staff trả lời đầu tiên hoặc được gán)
+ * staff_last_read_id / user_last_read_id: watermark - mọi tin nhắn của phía kia có id <= watermark là đã đọc
+ * unread_by_staff / unread_by_user: số tin nhắn chưa đọc, được cộng khi lưu tin nhắn và đặt lại khi đánh dấu đã đọc
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "conversation_summary",
+    indexes = {
+        @Index(name = "idx_conversation_summary_last_message_at", columnList = "last_message_at DESC, user_id"),
+        @Index(name = "idx_conversation_summary_assigned_staff", columnList = "assigned_staff_id, last_message_at DESC")
+    }
+)
+public class ConversationSummary {
+
+    @Id
+    @Column(name = "user_id")
+    UUID userId;
+
+    @Column(name = "last_message_id")
+    Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = 100)
+    String lastMessagePreview;
+
+    @Column(name = "last_message_at")
+    LocalDateTime lastMessageAt;
+
+    @Column(name = "last_sender_type", length = 20)
+    String lastSenderType;
+
+    @Column(name = "assigned_staff_id")
+    UUID assignedStaffId;
+
+    @Builder.Default
+    @Column(name = "staff_last_read_id", nullable = false)
+    Long staffLastReadId = 0L;
+
+    @Builder.Default
+    @Column(name = "user_last_read_id", nullable = false)
+    Long userLastReadId = 0L;
+
+    @Builder.Default
+    @Column(name = "unread_by_staff", nullable = false)
+    Integer unreadByStaff = 0;
+
+    @Builder.Default
+    @Column(name = "unread_by_user", nullable = false)
+    Integer unreadByUser = 0;
+
+    @Builder.Default
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT NOW()")
+    LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -0,0 +1,64 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bảng tổng hợp theo ngày ở cấp đơn hàng (ngày × payment method × payment status × order status).
+ * Được cập nhật tăng dần bởi SalesRollupService mỗi khi đơn hàng thay đổi trạng thái.
+ * Trạng thái/payment method null được lưu là chuỗi rỗng để unique key hoạt động với ON CONFLICT.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "daily_order_rollups",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_order_rollup_key",
+            columnNames = {"sale_date", "payment_method", "payment_status", "order_status"})
+    },
+    indexes = {
+        @Index(name = "idx_daily_order_rollup_date", columnList = "sale_date")
+    }
+)
+public class DailyOrderRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "sale_date", nullable = false)
+    LocalDate saleDate;
+
+    @Column(name = "payment_method", nullable = false, length = 50)
+    String paymentMethod;
+
+    @Column(name = "payment_status", nullable = false, length = 50)
+    String paymentStatus;
+
+    @Column(name = "order_status", nullable = false, length = 50)
+    String orderStatus;
+
+    @Builder.Default
+    @Column(name = "order_count", nullable = false)
+    Long orderCount = 0L;
+
+    @Builder.Default
+    @Column(name = "total_amount", nullable = false, precision = 16, scale = 2)
+    BigDecimal totalAmount = BigDecimal.ZERO; // SUM(orders.total_amount) - doanh thu chưa VAT
+
+    @Builder.Default
+    @Column(name = "discount_amount", nullable = false, precision = 16, scale = 2)
+    BigDecimal discountAmount = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "shipping_fee", nullable = false, precision = 16, scale = 2)
+    BigDecimal shippingFee = BigDecimal.ZERO;
+}
@@ -0,0 +1,73 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bảng tổng hợp theo ngày ở cấp dòng hàng (ngày × payment method × trạng thái × category × product/combo).
+ * category_id / product_id / combo_id = 0 nghĩa là "không có" (combo không có product/category và ngược lại).
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "daily_product_rollups",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_product_rollup_key",
+            columnNames = {"sale_date", "payment_method", "payment_status", "order_status",
+                "category_id", "product_id", "combo_id"})
+    },
+    indexes = {
+        @Index(name = "idx_daily_product_rollup_date", columnList = "sale_date"),
+        @Index(name = "idx_daily_product_rollup_product", columnList = "product_id")
+    }
+)
+public class DailyProductRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "sale_date", nullable = false)
+    LocalDate saleDate;
+
+    @Column(name = "payment_method", nullable = false, length = 50)
+    String paymentMethod;
+
+    @Column(name = "payment_status", nullable = false, length = 50)
+    String paymentStatus;
+
+    @Column(name = "order_status", nullable = false, length = 50)
+    String orderStatus;
+
+    @Builder.Default
+    @Column(name = "category_id", nullable = false)
+    Long categoryId = 0L;
+
+    @Builder.Default
+    @Column(name = "product_id", nullable = false)
+    Long productId = 0L;
+
+    @Builder.Default
+    @Column(name = "combo_id", nullable = false)
+    Integer comboId = 0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Long quantity = 0L;
+
+    @Builder.Default
+    @Column(name = "line_total", nullable = false, precision = 16, scale = 2)
+    BigDecimal lineTotal = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "line_count", nullable = false)
+    Long lineCount = 0L; // Số dòng order_items (~ số đơn chứa sản phẩm)
+}
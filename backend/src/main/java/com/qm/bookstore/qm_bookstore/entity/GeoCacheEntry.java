@@ -0,0 +1,44 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Tầng lưu bền của cache geocoding / routes (kết quả gọi Goong API), giữ lại qua các lần restart
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "geo_cache_entries",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_geo_cache_entry_key", columnNames = {"cache_name", "cache_key"})
+    },
+    indexes = {
+        @Index(name = "idx_geo_cache_entry_expires_at", columnList = "expires_at")
+    }
+)
+public class GeoCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "cache_name", nullable = false, length = 50)
+    String cacheName;
+
+    @Column(name = "cache_key", nullable = false, columnDefinition = "TEXT")
+    String cacheKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    String payload; // JSON của giá trị cache (Coordinates, RouteInfo, ...)
+
+    @Column(name = "expires_at", nullable = false)
+    Instant expiresAt;
+}
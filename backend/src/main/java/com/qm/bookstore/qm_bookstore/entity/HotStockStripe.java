@@ -0,0 +1,51 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một bộ đếm con (stripe) của product đang ở chế độ "hot product".
+ * Tồn kho bán được của product được chia đều cho N stripe; các checkout đồng thời trừ trên các stripe khác
+ * nhau nên không tranh chấp khóa trên cùng một dòng products.
+ * remaining: số lượng còn bán được trên stripe
+ * consumed: số lượng đã bán (ròng) chưa được gộp về products.stock_quantity
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "hot_stock_stripes",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_hot_stock_stripe", columnNames = {"product_id", "stripe_no"})
+    }
+)
+public class HotStockStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "product_id", nullable = false)
+    Long productId;
+
+    @Column(name = "stripe_no", nullable = false)
+    Integer stripeNo;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer remaining = 0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer consumed = 0;
+
+    @Builder.Default
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT NOW()")
+    LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -24,7 +24,8 @@ import java.util.List;
     indexes = {
         @Index(name = "idx_inventory_header_transaction_type", columnList = "transaction_type"),
         @Index(name = "idx_inventory_header_reference", columnList = "reference_type, reference_id"),
-        @Index(name = "idx_inventory_header_created_at", columnList = "created_at")
+        @Index(name = "idx_inventory_header_created_at", columnList = "created_at"),
+        @Index(name = "idx_inventory_header_created_at_id", columnList = "created_at, id")
     },
     uniqueConstraints = {
         @UniqueConstraint(
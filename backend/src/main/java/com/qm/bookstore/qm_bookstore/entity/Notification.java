@@ -14,7 +14,11 @@ import java.util.UUID;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+    indexes = {
+        @Index(name = "idx_notification_created_at_id", columnList = "created_at, id")
+    }
+)
 public class Notification {
 
     @Id
@@ -22,13 +22,17 @@ import java.util.UUID;
         @Index(name = "idx_order_user_id", columnList = "user_id"),
         @Index(name = "idx_order_payment_status", columnList = "payment_status"),
         @Index(name = "idx_order_order_status", columnList = "order_status"),
-        @Index(name = "idx_order_created_at", columnList = "created_at")
+        @Index(name = "idx_order_created_at", columnList = "created_at"),
+        @Index(name = "idx_order_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_order_user_created_at_id", columnList = "user_id, created_at, id")
     }
 )
 public class Order {
     
+    // Sequence cấp id theo khối (không dùng IDENTITY) -> INSERT của order / order items được gửi theo batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     Long id;
 
     @Column(name = "user_id", nullable = false)
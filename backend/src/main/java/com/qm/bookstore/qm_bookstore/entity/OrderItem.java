@@ -26,8 +26,10 @@ import java.time.LocalDateTime;
 )
 public class OrderItem {
     
+    // Sequence cấp id theo khối (không dùng IDENTITY) -> INSERT của order items được gửi theo batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     Long id;
 
     @Column(name = "order_id", nullable = false)
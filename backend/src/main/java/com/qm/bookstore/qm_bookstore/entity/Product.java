@@ -7,7 +7,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+    indexes = {
+        @Index(name = "idx_product_created_at_id", columnList = "created_at, id")
+    }
+)
 @Data
 public class Product {
     @Id
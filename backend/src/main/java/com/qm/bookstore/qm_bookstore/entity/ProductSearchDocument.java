@@ -0,0 +1,45 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Tài liệu tìm kiếm full-text của một product (1-1 với products).
+ * Các trường text đã được bỏ dấu tiếng Việt + chữ thường (ProductSearchIndex.fold) nên "sach" khớp "sách".
+ * search_vector là cột sinh tự động (tsvector, cấu hình 'simple') với trọng số:
+ * A = tên, B = thương hiệu + SKU, C = mô tả ngắn. GIN index được tạo khi khởi động (ProductSearchIndex).
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "product_search_documents")
+public class ProductSearchDocument {
+
+    @Id
+    @Column(name = "product_id")
+    Long productId;
+
+    @Column(name = "name_text", columnDefinition = "TEXT")
+    String nameText;
+
+    @Column(name = "brand_text", columnDefinition = "TEXT")
+    String brandText;
+
+    @Column(name = "sku_text", columnDefinition = "TEXT")
+    String skuText;
+
+    @Column(name = "description_text", columnDefinition = "TEXT")
+    String descriptionText;
+
+    @Column(name = "search_vector", insertable = false, updatable = false,
+            columnDefinition = "TSVECTOR GENERATED ALWAYS AS ("
+                    + "setweight(to_tsvector('simple', coalesce(name_text, '')), 'A') || "
+                    + "setweight(to_tsvector('simple', coalesce(brand_text, '') || ' ' || coalesce(sku_text, '')), 'B') || "
+                    + "setweight(to_tsvector('simple', coalesce(description_text, '')), 'C')) STORED")
+    String searchVector;
+}
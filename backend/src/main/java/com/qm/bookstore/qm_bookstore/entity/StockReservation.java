@@ -0,0 +1,58 @@
+package com.qm.bookstore.qm_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Giữ hàng (hold) cho một product của một đơn hàng, từ lúc checkout đến khi xuất kho.
+ * Combo được bung thành từng product thành phần. Trạng thái:
+ * ACTIVE (đang giữ) -> CONVERTED (đã xuất kho) / RELEASED (hủy đơn) / EXPIRED (hết hạn giữ).
+ * STRIPED: product ở chế độ hot product - hàng đã được trừ trên stripe (HotStockStripe) ngay lúc checkout,
+ * chỉ chuyển sang CONVERTED / RELEASED, không hết hạn.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "stock_reservations",
+    indexes = {
+        @Index(name = "idx_stock_reservation_order", columnList = "order_id, status"),
+        @Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_reservation_product_status", columnList = "product_id, status")
+    }
+)
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "order_id", nullable = false)
+    Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    Long productId;
+
+    @Column(nullable = false)
+    Integer quantity;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    String status = "ACTIVE";
+
+    @Column(name = "expires_at", nullable = false)
+    LocalDateTime expiresAt;
+
+    @Builder.Default
+    @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT NOW()")
+    LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "closed_at")
+    LocalDateTime closedAt;
+}
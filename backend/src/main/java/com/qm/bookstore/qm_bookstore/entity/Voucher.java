@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
     indexes = {
         @Index(name = "idx_voucher_code", columnList = "code"),
         @Index(name = "idx_voucher_status", columnList = "status"),
-        @Index(name = "idx_voucher_valid_time", columnList = "valid_from,valid_to")
+        @Index(name = "idx_voucher_valid_time", columnList = "valid_from,valid_to"),
+        @Index(name = "idx_voucher_created_at_id", columnList = "created_at, id")
     }
 )
 public class Voucher {
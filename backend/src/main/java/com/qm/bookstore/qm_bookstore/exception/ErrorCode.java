@@ -22,6 +22,7 @@ public enum ErrorCode {
     CHAT_MESSAGE_NOT_FOUND(2001, "Chat message not found"),
     CHAT_SAVE_FAILED(2002, "Failed to save chat message"),
     CHAT_UNAUTHORIZED(2003, "Unauthorized to access this chat"),
+    CHAT_INGEST_BUSY(2004, "Chat is busy, please resend the message"),
 
     // Product errors
     PRODUCT_NOT_FOUND(3001, "Product not found"),
@@ -123,6 +124,9 @@ public enum ErrorCode {
     PRODUCT_COMBO_UNAVAILABLE(9205, "Product combo is not available"),
     COMBO_SNAPSHOT_NOT_FOUND(9206, "Combo snapshot data not found for order item"),
 
+    // Report errors (9300-9399)
+    INVALID_REPORT_DATE_RANGE(9301, "End date must not be before start date"),
+
     // Generic errors
     UNCATEGORIZED_EXCEPTION(9999, "Uncategorized error"),
     INVALID_KEY(1005, "Invalid message key"),
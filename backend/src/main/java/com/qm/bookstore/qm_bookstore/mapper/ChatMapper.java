@@ -17,6 +17,7 @@ public interface ChatMapper {
     @Mapping(source = "senderType", target = "senderType", qualifiedByName = "stringToSenderType")
     ChatMessage toEntity(ChatMessageDto dto);
 
+    @Mapping(target = "clientId", ignore = true)
     @Mapping(source = "senderType", target = "senderType", qualifiedByName = "senderTypeToString")
     @Mapping(source = "sender.username", target = "senderUsername")
     @Mapping(source = "receiver.username", target = "receiverUsername")
@@ -30,4 +30,6 @@ public interface ProductMapper {
     void updateProduct(@MappingTarget Product product, ProductUpdateRequest request);
     
     List<ProductResponse> toProductResponseList(List<Product> products);
+
+    ProductResponse copyProductResponse(ProductResponse source);
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -40,6 +42,20 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteSelectedItemsByUserId(@Param("userId") UUID userId);
     
     boolean existsByCartIdAndProductId(Long cartId, Long productId);
+
+    // Batch updates for write-behind of selection / quantity changes
+
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.isSelected = :selected, ci.updatedAt = :now WHERE ci.id IN :ids")
+    int updateSelectionByIdIn(@Param("ids") Collection<Long> ids,
+                              @Param("selected") Boolean selected,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = :quantity, ci.updatedAt = :now WHERE ci.id IN :ids")
+    int updateQuantityByIdIn(@Param("ids") Collection<Long> ids,
+                             @Param("quantity") Integer quantity,
+                             @Param("now") LocalDateTime now);
     
     // New methods for combo support
     
@@ -0,0 +1,105 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.CategoryClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, CategoryClosure.Key> {
+
+    // Khóa (advisory, theo transaction) mọi thay đổi cấu trúc cây - tránh 2 lần di chuyển đồng thời tạo vòng
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext('category_closure'))) l", nativeQuery = true)
+    Integer lockHierarchy();
+
+    // Toàn bộ hậu duệ (không gồm chính nó)
+    @Query("SELECT c.descendantId FROM CategoryClosure c WHERE c.ancestorId = :id AND c.depth > 0")
+    List<Long> findDescendantIds(@Param("id") Long id);
+
+    // Toàn bộ tổ tiên, từ gần đến xa (không gồm chính nó)
+    @Query("SELECT c.ancestorId FROM CategoryClosure c WHERE c.descendantId = :id AND c.depth > 0 ORDER BY c.depth")
+    List<Long> findAncestorIds(@Param("id") Long id);
+
+    // descendantId có nằm trong cây con của ancestorId (kể cả chính nó)
+    boolean existsByAncestorIdAndDescendantId(Long ancestorId, Long descendantId);
+
+    // (id, tên, số product) của các category trong cây con có product - 1 query thay cho vòng lặp đếm
+    @Query("SELECT cat.id, cat.name, COUNT(p) FROM CategoryClosure c, Category cat, Product p " +
+           "WHERE c.ancestorId = :id AND cat.id = c.descendantId AND p.category.id = c.descendantId " +
+           "GROUP BY cat.id, cat.name ORDER BY cat.id")
+    List<Object[]> countProductsBySubtreeNode(@Param("id") Long id);
+
+    // Số product của cây con (kể cả chính nó)
+    @Query("SELECT COUNT(p) FROM CategoryClosure c, Product p " +
+           "WHERE c.ancestorId = :id AND p.category.id = c.descendantId")
+    long countProductsInSubtree(@Param("id") Long id);
+
+    // Số product theo cây con của mọi category (1 query) - (ancestorId, count)
+    @Query("SELECT c.ancestorId, COUNT(p) FROM CategoryClosure c, Product p " +
+           "WHERE p.category.id = c.descendantId GROUP BY c.ancestorId")
+    List<Object[]> countProductsBySubtree();
+
+    // Category mới: dòng tự tham chiếu + mọi tổ tiên của parent
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT ancestor_id, :id, depth + 1 FROM category_closure WHERE descendant_id = :parentId " +
+                   "UNION ALL SELECT :id, :id, 0",
+           nativeQuery = true)
+    int insertNode(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    // Dòng closure của cây con các category (kể cả chính nó) - tính các cây con bị ảnh hưởng trong 1 lượt
+    @Query("SELECT c FROM CategoryClosure c WHERE c.ancestorId IN :ids")
+    List<CategoryClosure> findSubtreeRows(@Param("ids") Collection<Long> ids);
+
+    // Các category trong danh sách có descendantId nằm trong cây con (kể cả chính nó)
+    @Query("SELECT c.ancestorId FROM CategoryClosure c WHERE c.ancestorId IN :ids AND c.descendantId = :descendantId")
+    List<Long> findAncestorIdsAmong(@Param("ids") Collection<Long> ids, @Param("descendantId") Long descendantId);
+
+    // Di chuyển (1/2): tách cây con của các category khỏi tổ tiên cũ.
+    // Mỗi node chỉ mất các tổ tiên nằm trên gốc gần nhất của nó trong danh sách (cây con lồng nhau cũng tách riêng)
+    @Modifying
+    @Query(value = "DELETE FROM category_closure t WHERE EXISTS (" +
+                   "SELECT 1 FROM category_closure r WHERE r.ancestor_id IN (:ids) " +
+                   "AND r.descendant_id = t.descendant_id AND t.depth > r.depth)",
+           nativeQuery = true)
+    int detachSubtrees(@Param("ids") Collection<Long> ids);
+
+    // Di chuyển (2/2): nối các cây con (đã tách) vào parent mới (tích Descartes tổ tiên của parent x cây con)
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1 " +
+                   "FROM category_closure sup CROSS JOIN category_closure sub " +
+                   "WHERE sup.descendant_id = :parentId AND sub.ancestor_id IN (:ids)",
+           nativeQuery = true)
+    int attachSubtrees(@Param("ids") Collection<Long> ids, @Param("parentId") Long parentId);
+
+    // Xóa mọi dòng liên quan đến các category bị xóa
+    @Modifying
+    @Query("DELETE FROM CategoryClosure c WHERE c.descendantId IN :ids OR c.ancestorId IN :ids")
+    int deleteNodes(@Param("ids") Collection<Long> ids);
+
+    // Số category có dòng tự tham chiếu (kiểm tra closure table đầy đủ khi khởi động)
+    @Query("SELECT COUNT(c) FROM CategoryClosure c WHERE c.depth = 0")
+    long countNodes();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_closure", nativeQuery = true)
+    int deleteAllRows();
+
+    // Dựng lại toàn bộ closure table từ categories.parent_id
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "WITH RECURSIVE tree AS ( " +
+                   "SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth FROM categories " +
+                   "UNION ALL " +
+                   "SELECT t.ancestor_id, c.id, t.depth + 1 FROM tree t " +
+                   "INNER JOIN categories c ON c.parent_id = t.descendant_id " +
+                   ") SELECT ancestor_id, descendant_id, depth FROM tree",
+           nativeQuery = true)
+    int rebuildAll();
+}
@@ -2,10 +2,13 @@ package com.qm.bookstore.qm_bookstore.repository;
 
 import com.qm.bookstore.qm_bookstore.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -43,12 +46,24 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
     long countProductsByCategoryId(@Param("categoryId") Long categoryId);
 
-    // Get all descendants recursively (PostgreSQL CTE)
-    @Query(value = "WITH RECURSIVE category_tree AS ( " +
-            "SELECT id, parent_id FROM categories WHERE id = :categoryId " +
-            "UNION ALL " +
-            "SELECT c.id, c.parent_id FROM categories c " +
-            "INNER JOIN category_tree ct ON c.parent_id = ct.id " +
-            ") SELECT id FROM category_tree WHERE id != :categoryId", nativeQuery = true)
-    List<Long> findAllDescendantIds(@Param("categoryId") Long categoryId);
+    // (id, tên, số product) của các category có product trong danh sách - 1 query cho thao tác hàng loạt
+    @Query("SELECT c.id, c.name, COUNT(p) FROM Category c, Product p " +
+           "WHERE p.category.id = c.id AND c.id IN :ids GROUP BY c.id, c.name")
+    List<Object[]> countProductsByCategoryIds(@Param("ids") Collection<Long> ids);
+
+    // Đặt trạng thái cho nhiều category trong 1 câu UPDATE
+    @Modifying
+    @Query("UPDATE Category c SET c.status = :status, c.updatedAt = :now WHERE c.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") Boolean status, @Param("now") LocalDateTime now);
+
+    // Đảo trạng thái của từng category trong 1 câu UPDATE
+    @Modifying
+    @Query("UPDATE Category c SET c.status = CASE WHEN c.status = true THEN false ELSE true END, c.updatedAt = :now " +
+           "WHERE c.id IN :ids")
+    int toggleStatus(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Đổi parent cho nhiều category trong 1 câu UPDATE (parentId = null: thành root)
+    @Modifying
+    @Query("UPDATE Category c SET c.parentId = :parentId, c.updatedAt = :now WHERE c.id IN :ids")
+    int updateParent(@Param("ids") Collection<Long> ids, @Param("parentId") Long parentId, @Param("now") LocalDateTime now);
 }
@@ -4,7 +4,6 @@ import com.qm.bookstore.qm_bookstore.entity.ChatMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -31,24 +30,9 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
             @Param("user2Id") UUID user2Id, 
             Pageable pageable);
 
-    @Query("SELECT DISTINCT cm.senderId FROM ChatMessage cm WHERE cm.receiverId IS NULL AND cm.senderType = 'user'")
-    List<UUID> findActiveConversations();
-
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.senderType = 'admin' ORDER BY cm.createdAt DESC")
     Page<ChatMessage> findAdminMessages(Pageable pageable);
 
-    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.receiverId = :userId AND cm.senderType = 'admin'")
-    Long countUnreadAdminMessages(@Param("userId") UUID userId);
-
-    // Lấy tin nhắn mới nhất của mỗi cuộc hội thoại
-    @Query("SELECT cm FROM ChatMessage cm WHERE cm.id IN (" +
-           "SELECT MAX(cm2.id) FROM ChatMessage cm2 " +
-           "WHERE (cm2.senderId = :adminId OR cm2.receiverId = :adminId) " +
-           "AND cm2.senderType != 'admin' " +
-           "GROUP BY CASE WHEN cm2.senderId = :adminId THEN cm2.receiverId ELSE cm2.senderId END" +
-           ") ORDER BY cm.createdAt DESC")
-    List<ChatMessage> findLatestConversationsForAdmin(@Param("adminId") UUID adminId);
-
     // Tìm tất cả tin nhắn trong khoảng thời gian
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.createdAt BETWEEN :startDate AND :endDate ORDER BY cm.createdAt DESC")
     Page<ChatMessage> findMessagesByDateRange(
@@ -79,59 +63,34 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
            "ORDER BY cm.createdAt ASC")
     Page<ChatMessage> findFullConversationWithUser(@Param("userId") UUID userId, Pageable pageable);
 
-    // ===== METHODS FOR READ STATUS =====
-    
-    // Đếm tin nhắn chưa đọc bởi admin trong cuộc hội thoại với user cụ thể
-    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE " +
-           "cm.senderId = :userId AND cm.senderType = 'user' AND cm.isReadByAdmin = false")
-    Long countUnreadByAdminFromUser(@Param("userId") UUID userId);
-    
-    // Đếm tin nhắn chưa đọc bởi user từ admin
-    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE " +
-           "cm.receiverId = :userId AND cm.senderType IN ('admin', 'manager') AND cm.isReadByUser = false")
-    Long countUnreadByUserFromAdmin(@Param("userId") UUID userId);
-    
-    // Lấy tất cả tin nhắn chưa đọc bởi admin
-    @Query("SELECT cm FROM ChatMessage cm WHERE " +
-           "cm.senderType = 'user' AND cm.isReadByAdmin = false " +
+    // ===== METHODS FOR READ STATUS (watermark - ConversationSummaryService) =====
+
+    // Id tin nhắn mới nhất customer gửi
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm WHERE cm.senderId = :userId AND cm.senderType = 'user'")
+    Long findLatestIdFromUser(@Param("userId") UUID userId);
+
+    // Id tin nhắn mới nhất staff gửi cho customer
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm WHERE cm.receiverId = :userId AND cm.senderType IN ('admin', 'manager')")
+    Long findLatestIdToUser(@Param("userId") UUID userId);
+
+    // Số tin nhắn customer gửi sau watermark
+    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.senderId = :userId AND cm.senderType = 'user' AND cm.id > :afterId")
+    long countFromUserAfter(@Param("userId") UUID userId, @Param("afterId") Long afterId);
+
+    // Số tin nhắn staff gửi cho customer sau watermark
+    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.receiverId = :userId " +
+           "AND cm.senderType IN ('admin', 'manager') AND cm.id > :afterId")
+    long countToUserAfter(@Param("userId") UUID userId, @Param("afterId") Long afterId);
+
+    // Lấy tất cả tin nhắn chưa đọc bởi admin (sau watermark của từng hội thoại)
+    @Query("SELECT cm FROM ChatMessage cm, ConversationSummary s WHERE " +
+           "s.unreadByStaff > 0 AND cm.senderId = s.userId AND cm.senderType = 'user' AND cm.id > s.staffLastReadId " +
            "ORDER BY cm.createdAt DESC")
     Page<ChatMessage> findUnreadByAdmin(Pageable pageable);
-    
-    // Lấy tin nhắn chưa đọc bởi user cụ thể
+
+    // Lấy tin nhắn chưa đọc bởi user cụ thể (sau watermark)
     @Query("SELECT cm FROM ChatMessage cm WHERE " +
-           "cm.receiverId = :userId AND cm.senderType IN ('admin', 'manager') AND cm.isReadByUser = false " +
+           "cm.receiverId = :userId AND cm.senderType IN ('admin', 'manager') AND cm.id > :afterId " +
            "ORDER BY cm.createdAt DESC")
-    List<ChatMessage> findUnreadByUser(@Param("userId") UUID userId);
-    
-    // Đánh dấu tin nhắn đã đọc bởi admin cho user cụ thể
-    @Modifying
-    @Query("UPDATE ChatMessage cm SET cm.isReadByAdmin = true WHERE " +
-           "cm.senderId = :userId AND cm.senderType = 'user' AND cm.isReadByAdmin = false")
-    int markAsReadByAdminForUser(@Param("userId") UUID userId);
-    
-    // Đánh dấu tin nhắn đã đọc bởi user từ admin
-    @Modifying
-    @Query("UPDATE ChatMessage cm SET cm.isReadByUser = true WHERE " +
-           "cm.receiverId = :userId AND cm.senderType IN ('admin', 'manager') AND cm.isReadByUser = false")
-    int markAsReadByUserFromAdmin(@Param("userId") UUID userId);
-    
-    // Đánh dấu một tin nhắn cụ thể đã đọc bởi admin
-    @Modifying
-    @Query("UPDATE ChatMessage cm SET cm.isReadByAdmin = true WHERE cm.id = :messageId")
-    int markMessageAsReadByAdmin(@Param("messageId") Long messageId);
-    
-    // Đánh dấu một tin nhắn cụ thể đã đọc bởi user
-    @Modifying
-    @Query("UPDATE ChatMessage cm SET cm.isReadByUser = true WHERE cm.id = :messageId")
-    int markMessageAsReadByUser(@Param("messageId") Long messageId);
-    
-    // Lấy danh sách users có tin nhắn chưa đọc bởi admin
-    @Query("SELECT DISTINCT cm.senderId FROM ChatMessage cm WHERE " +
-           "cm.senderType = 'user' AND cm.isReadByAdmin = false")
-    List<UUID> findUsersWithUnreadMessages();
-    
-    // Lấy số lượng tin nhắn chưa đọc tổng cộng bởi admin
-    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE " +
-           "cm.senderType = 'user' AND cm.isReadByAdmin = false")
-    Long countTotalUnreadByAdmin();
-}
\ No newline at end of file
+    List<ChatMessage> findUnreadByUser(@Param("userId") UUID userId, @Param("afterId") Long afterId);
+}
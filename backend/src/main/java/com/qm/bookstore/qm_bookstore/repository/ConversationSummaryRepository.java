@@ -0,0 +1,119 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.ConversationSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, UUID> {
+
+    // Khóa trạng thái của cuộc hội thoại (đánh dấu đã đọc chờ các tin nhắn đang lưu commit xong)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ConversationSummary s WHERE s.userId = :userId")
+    Optional<ConversationSummary> lockByUserId(@Param("userId") UUID userId);
+
+    // Ghi nhận tin nhắn mới (1 câu upsert): cập nhật tin nhắn mới nhất (chỉ khi id lớn hơn - tin nhắn commit lệch thứ tự),
+    // cộng bộ đếm chưa đọc của phía nhận, gán staff phụ trách nếu chưa có
+    @Modifying
+    @Query(value = "INSERT INTO conversation_summary (user_id, last_message_id, last_message_preview, last_message_at, " +
+                   "last_sender_type, assigned_staff_id, staff_last_read_id, user_last_read_id, unread_by_staff, unread_by_user, updated_at) " +
+                   "VALUES (:userId, :messageId, :preview, :sentAt, :senderType, :staffId, 0, 0, :unreadByStaff, :unreadByUser, NOW()) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET " +
+                   "last_message_preview = CASE WHEN conversation_summary.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summary.last_message_id " +
+                   "THEN EXCLUDED.last_message_preview ELSE conversation_summary.last_message_preview END, " +
+                   "last_message_at = CASE WHEN conversation_summary.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summary.last_message_id " +
+                   "THEN EXCLUDED.last_message_at ELSE conversation_summary.last_message_at END, " +
+                   "last_sender_type = CASE WHEN conversation_summary.last_message_id IS NULL OR EXCLUDED.last_message_id > conversation_summary.last_message_id " +
+                   "THEN EXCLUDED.last_sender_type ELSE conversation_summary.last_sender_type END, " +
+                   "last_message_id = GREATEST(conversation_summary.last_message_id, EXCLUDED.last_message_id), " +
+                   "assigned_staff_id = COALESCE(conversation_summary.assigned_staff_id, EXCLUDED.assigned_staff_id), " +
+                   "unread_by_staff = conversation_summary.unread_by_staff + EXCLUDED.unread_by_staff, " +
+                   "unread_by_user = conversation_summary.unread_by_user + EXCLUDED.unread_by_user, " +
+                   "updated_at = NOW()",
+           nativeQuery = true)
+    int recordMessage(@Param("userId") UUID userId,
+                      @Param("messageId") Long messageId,
+                      @Param("preview") String preview,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("senderType") String senderType,
+                      @Param("staffId") UUID staffId,
+                      @Param("unreadByStaff") int unreadByStaff,
+                      @Param("unreadByUser") int unreadByUser);
+
+    // Inbox: hội thoại theo hoạt động gần nhất (staffId = null: mọi hội thoại; unreadOnly: chỉ hội thoại còn tin chưa đọc)
+    @Query("SELECT s FROM ConversationSummary s WHERE " +
+           "(:staffId IS NULL OR s.assignedStaffId = :staffId) AND " +
+           "(:unreadOnly = false OR s.unreadByStaff > 0) " +
+           "ORDER BY s.lastMessageAt DESC, s.userId")
+    Page<ConversationSummary> findInbox(@Param("staffId") UUID staffId,
+                                        @Param("unreadOnly") boolean unreadOnly,
+                                        Pageable pageable);
+
+    // Customer có hội thoại, hoạt động gần nhất trước
+    @Query("SELECT s.userId FROM ConversationSummary s ORDER BY s.lastMessageAt DESC, s.userId")
+    List<UUID> findUserIdsByLastActivity();
+
+    // Hội thoại của staff (được gán cho staff hoặc chưa ai phụ trách), hoạt động gần nhất trước
+    @Query("SELECT s FROM ConversationSummary s WHERE s.assignedStaffId = :staffId OR s.assignedStaffId IS NULL " +
+           "ORDER BY s.lastMessageAt DESC, s.userId")
+    List<ConversationSummary> findForStaff(@Param("staffId") UUID staffId);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.assignedStaffId = :staffId, s.updatedAt = :now WHERE s.userId = :userId")
+    int assign(@Param("userId") UUID userId, @Param("staffId") UUID staffId, @Param("now") LocalDateTime now);
+
+    // Tổng chưa đọc phía staff - chỉ đọc partial index các hội thoại còn tin chưa đọc
+    @Query("SELECT COALESCE(SUM(s.unreadByStaff), 0) FROM ConversationSummary s WHERE s.unreadByStaff > 0")
+    Long sumUnreadByStaff();
+
+    @Query("SELECT s.userId FROM ConversationSummary s WHERE s.unreadByStaff > 0")
+    List<UUID> findUserIdsWithUnreadByStaff();
+
+    // Dựng trạng thái cho các hội thoại chưa có dòng từ cờ is_read_by_* cũ:
+    // watermark = ngay trước tin chưa đọc đầu tiên (hoặc tin cuối nếu đã đọc hết), số chưa đọc = số tin sau watermark
+    @Modifying
+    @Query(value = "INSERT INTO conversation_summary (user_id, staff_last_read_id, user_last_read_id, unread_by_staff, unread_by_user, updated_at) " +
+                   "SELECT w.user_id, w.staff_wm, w.user_wm, " +
+                   "(SELECT COUNT(*) FROM chat_messages c WHERE c.sender_id = w.user_id AND c.sender_type = 'user' AND c.id > w.staff_wm), " +
+                   "(SELECT COUNT(*) FROM chat_messages c WHERE c.receiver_id = w.user_id AND c.sender_type IN ('admin', 'manager') AND c.id > w.user_wm), " +
+                   "NOW() FROM ( " +
+                   "SELECT m.user_id, " +
+                   "COALESCE(MIN(m.id) FILTER (WHERE m.from_user AND NOT m.is_read_by_admin) - 1, MAX(m.id) FILTER (WHERE m.from_user), 0) AS staff_wm, " +
+                   "COALESCE(MIN(m.id) FILTER (WHERE NOT m.from_user AND NOT m.is_read_by_user) - 1, MAX(m.id) FILTER (WHERE NOT m.from_user), 0) AS user_wm " +
+                   "FROM (SELECT id, CASE WHEN sender_type = 'user' THEN sender_id ELSE receiver_id END AS user_id, " +
+                   "sender_type = 'user' AS from_user, is_read_by_admin, is_read_by_user FROM chat_messages " +
+                   "WHERE (sender_type = 'user' AND sender_id IS NOT NULL) " +
+                   "OR (sender_type IN ('admin', 'manager') AND receiver_id IS NOT NULL)) m " +
+                   "GROUP BY m.user_id) w " +
+                   "ON CONFLICT (user_id) DO NOTHING",
+           nativeQuery = true)
+    int backfillFromMessageFlags();
+
+    // Điền tin nhắn mới nhất cho các hội thoại chưa có (dòng tạo từ trước khi có read model inbox)
+    @Modifying
+    @Query(value = "UPDATE conversation_summary cs SET last_message_id = l.id, last_message_preview = LEFT(l.message, 100), " +
+                   "last_message_at = l.created_at, last_sender_type = l.sender_type FROM ( " +
+                   "SELECT DISTINCT ON (m.user_id) m.user_id, m.id, m.message, m.created_at, m.sender_type FROM ( " +
+                   "SELECT id, message, created_at, sender_type, " +
+                   "CASE WHEN sender_type = 'user' THEN sender_id ELSE receiver_id END AS user_id FROM chat_messages " +
+                   "WHERE (sender_type = 'user' AND sender_id IS NOT NULL) " +
+                   "OR (sender_type IN ('admin', 'manager') AND receiver_id IS NOT NULL)) m " +
+                   "ORDER BY m.user_id, m.id DESC) l " +
+                   "WHERE cs.user_id = l.user_id AND cs.last_message_id IS NULL",
+           nativeQuery = true)
+    int backfillLastMessage();
+
+    boolean existsByLastMessageIdIsNull();
+}
@@ -0,0 +1,81 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.DailyOrderRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyOrderRollupRepository extends JpaRepository<DailyOrderRollup, Long> {
+
+    // Cộng dồn delta vào bucket (tạo mới nếu chưa có) - dùng khi đơn được tạo / đổi trạng thái
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_rollups " +
+           "(sale_date, payment_method, payment_status, order_status, order_count, total_amount, discount_amount, shipping_fee) " +
+           "VALUES (:saleDate, :paymentMethod, :paymentStatus, :orderStatus, :orderCount, :totalAmount, :discountAmount, :shippingFee) " +
+           "ON CONFLICT (sale_date, payment_method, payment_status, order_status) DO UPDATE SET " +
+           "order_count = daily_order_rollups.order_count + EXCLUDED.order_count, " +
+           "total_amount = daily_order_rollups.total_amount + EXCLUDED.total_amount, " +
+           "discount_amount = daily_order_rollups.discount_amount + EXCLUDED.discount_amount, " +
+           "shipping_fee = daily_order_rollups.shipping_fee + EXCLUDED.shipping_fee",
+           nativeQuery = true)
+    int upsertDelta(@Param("saleDate") LocalDate saleDate,
+                    @Param("paymentMethod") String paymentMethod,
+                    @Param("paymentStatus") String paymentStatus,
+                    @Param("orderStatus") String orderStatus,
+                    @Param("orderCount") long orderCount,
+                    @Param("totalAmount") BigDecimal totalAmount,
+                    @Param("discountAmount") BigDecimal discountAmount,
+                    @Param("shippingFee") BigDecimal shippingFee);
+
+    // Rebuild: xóa các bucket trong khoảng ngày
+    @Modifying
+    @Query("DELETE FROM DailyOrderRollup r WHERE r.saleDate >= :fromDate AND r.saleDate <= :toDate")
+    int deleteBySaleDateBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Rebuild: tính lại các bucket từ bảng orders
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_rollups " +
+           "(sale_date, payment_method, payment_status, order_status, order_count, total_amount, discount_amount, shipping_fee) " +
+           "SELECT CAST(o.created_at AS DATE), COALESCE(o.payment_method, ''), COALESCE(o.payment_status, ''), " +
+           "COALESCE(o.order_status, ''), COUNT(*), COALESCE(SUM(o.total_amount), 0), " +
+           "COALESCE(SUM(o.discount_amount), 0), COALESCE(SUM(o.shipping_fee), 0) " +
+           "FROM orders o " +
+           "WHERE o.created_at >= :fromTime AND o.created_at < :toTime " +
+           "GROUP BY 1, 2, 3, 4 " +
+           "ON CONFLICT (sale_date, payment_method, payment_status, order_status) DO UPDATE SET " +
+           "order_count = EXCLUDED.order_count, total_amount = EXCLUDED.total_amount, " +
+           "discount_amount = EXCLUDED.discount_amount, shipping_fee = EXCLUDED.shipping_fee",
+           nativeQuery = true)
+    int rebuildFromOrders(@Param("fromTime") LocalDateTime fromTime, @Param("toTime") LocalDateTime toTime);
+
+    // Dashboard: [SUM(order_count), SUM(total_amount)] của đơn đã thanh toán
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0), COALESCE(SUM(r.totalAmount), 0) FROM DailyOrderRollup r " +
+           "WHERE r.paymentStatus = 'paid' AND r.saleDate >= :fromDate AND r.saleDate <= :toDate")
+    List<Object[]> sumPaidBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Dashboard: tổng số đơn trong khoảng ngày
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0) FROM DailyOrderRollup r " +
+           "WHERE r.saleDate >= :fromDate AND r.saleDate <= :toDate")
+    long sumOrderCountBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Dashboard: số đơn theo order status
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0) FROM DailyOrderRollup r " +
+           "WHERE r.orderStatus = :orderStatus AND r.saleDate >= :fromDate AND r.saleDate <= :toDate")
+    long sumOrderCountByOrderStatusBetween(@Param("orderStatus") String orderStatus,
+                                           @Param("fromDate") LocalDate fromDate,
+                                           @Param("toDate") LocalDate toDate);
+
+    // Chart: doanh thu đã thanh toán theo ngày -> [saleDate, SUM(total_amount)]
+    @Query("SELECT r.saleDate, SUM(r.totalAmount) FROM DailyOrderRollup r " +
+           "WHERE r.paymentStatus = 'paid' AND r.saleDate >= :fromDate AND r.saleDate <= :toDate " +
+           "GROUP BY r.saleDate")
+    List<Object[]> sumPaidRevenueByDay(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+}
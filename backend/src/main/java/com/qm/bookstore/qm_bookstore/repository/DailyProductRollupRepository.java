@@ -0,0 +1,74 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.DailyProductRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyProductRollupRepository extends JpaRepository<DailyProductRollup, Long> {
+
+    // Cộng dồn delta vào bucket (tạo mới nếu chưa có)
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_rollups " +
+           "(sale_date, payment_method, payment_status, order_status, category_id, product_id, combo_id, " +
+           "quantity, line_total, line_count) " +
+           "VALUES (:saleDate, :paymentMethod, :paymentStatus, :orderStatus, :categoryId, :productId, :comboId, " +
+           ":quantity, :lineTotal, :lineCount) " +
+           "ON CONFLICT (sale_date, payment_method, payment_status, order_status, category_id, product_id, combo_id) " +
+           "DO UPDATE SET " +
+           "quantity = daily_product_rollups.quantity + EXCLUDED.quantity, " +
+           "line_total = daily_product_rollups.line_total + EXCLUDED.line_total, " +
+           "line_count = daily_product_rollups.line_count + EXCLUDED.line_count",
+           nativeQuery = true)
+    int upsertDelta(@Param("saleDate") LocalDate saleDate,
+                    @Param("paymentMethod") String paymentMethod,
+                    @Param("paymentStatus") String paymentStatus,
+                    @Param("orderStatus") String orderStatus,
+                    @Param("categoryId") long categoryId,
+                    @Param("productId") long productId,
+                    @Param("comboId") int comboId,
+                    @Param("quantity") long quantity,
+                    @Param("lineTotal") BigDecimal lineTotal,
+                    @Param("lineCount") long lineCount);
+
+    // Rebuild: xóa các bucket trong khoảng ngày
+    @Modifying
+    @Query("DELETE FROM DailyProductRollup r WHERE r.saleDate >= :fromDate AND r.saleDate <= :toDate")
+    int deleteBySaleDateBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Rebuild: tính lại các bucket từ orders + order_items
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_rollups " +
+           "(sale_date, payment_method, payment_status, order_status, category_id, product_id, combo_id, " +
+           "quantity, line_total, line_count) " +
+           "SELECT CAST(o.created_at AS DATE), COALESCE(o.payment_method, ''), COALESCE(o.payment_status, ''), " +
+           "COALESCE(o.order_status, ''), COALESCE(oi.category_id, 0), COALESCE(oi.product_id, 0), " +
+           "COALESCE(oi.combo_id, 0), SUM(oi.quantity), SUM(oi.line_total), COUNT(*) " +
+           "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+           "WHERE o.created_at >= :fromTime AND o.created_at < :toTime " +
+           "GROUP BY 1, 2, 3, 4, 5, 6, 7 " +
+           "ON CONFLICT (sale_date, payment_method, payment_status, order_status, category_id, product_id, combo_id) " +
+           "DO UPDATE SET quantity = EXCLUDED.quantity, line_total = EXCLUDED.line_total, line_count = EXCLUDED.line_count",
+           nativeQuery = true)
+    int rebuildFromOrderItems(@Param("fromTime") LocalDateTime fromTime, @Param("toTime") LocalDateTime toTime);
+
+    // Dashboard: top sản phẩm bán chạy (đơn đã thanh toán) -> [productId, SUM(quantity), SUM(line_total), SUM(line_count)]
+    @Query("SELECT r.productId, SUM(r.quantity), SUM(r.lineTotal), SUM(r.lineCount) FROM DailyProductRollup r " +
+           "WHERE r.paymentStatus = 'paid' AND r.productId <> 0 " +
+           "AND r.saleDate >= :fromDate AND r.saleDate <= :toDate " +
+           "GROUP BY r.productId " +
+           "HAVING SUM(r.quantity) > 0 " +
+           "ORDER BY SUM(r.quantity) DESC")
+    List<Object[]> findTopSellingProducts(@Param("fromDate") LocalDate fromDate,
+                                          @Param("toDate") LocalDate toDate,
+                                          Pageable pageable);
+}
@@ -0,0 +1,40 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.GeoCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface GeoCacheEntryRepository extends JpaRepository<GeoCacheEntry, Long> {
+
+    Optional<GeoCacheEntry> findByCacheNameAndCacheKey(String cacheName, String cacheKey);
+
+    // Ghi đè entry cùng key (upsert)
+    @Modifying
+    @Query(value = "INSERT INTO geo_cache_entries (cache_name, cache_key, payload, expires_at) " +
+           "VALUES (:cacheName, :cacheKey, :payload, :expiresAt) " +
+           "ON CONFLICT (cache_name, cache_key) DO UPDATE SET " +
+           "payload = EXCLUDED.payload, expires_at = EXCLUDED.expires_at",
+           nativeQuery = true)
+    int upsert(@Param("cacheName") String cacheName,
+               @Param("cacheKey") String cacheKey,
+               @Param("payload") String payload,
+               @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    void deleteByCacheNameAndCacheKey(String cacheName, String cacheKey);
+
+    @Modifying
+    void deleteByCacheName(String cacheName);
+
+    // Dọn các entry đã hết hạn
+    @Modifying
+    @Query("DELETE FROM GeoCacheEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,52 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.HotStockStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HotStockStripeRepository extends JpaRepository<HotStockStripe, Long> {
+
+    // Số stripe của từng hot product (nạp / làm mới danh sách hot product)
+    @Query("SELECT s.productId, COUNT(s) FROM HotStockStripe s GROUP BY s.productId")
+    List<Object[]> countStripesByProduct();
+
+    // Các product đang hot trong danh sách (checkout - đọc trực tiếp bảng, đúng trên mọi instance)
+    @Query("SELECT DISTINCT s.productId FROM HotStockStripe s WHERE s.productId IN :productIds")
+    List<Long> findHotProductIds(@Param("productIds") Collection<Long> productIds);
+
+    List<HotStockStripe> findByProductIdOrderByStripeNo(Long productId);
+
+    // Khóa toàn bộ stripe của product theo thứ tự stripe_no (reconcile / lấy hàng khi các stripe bị phân mảnh)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM HotStockStripe s WHERE s.productId = :productId ORDER BY s.stripeNo")
+    List<HotStockStripe> lockByProductId(@Param("productId") Long productId);
+
+    // Lấy hàng trên một stripe nếu còn đủ (chỉ khóa dòng của stripe đó)
+    @Modifying
+    @Query("UPDATE HotStockStripe s SET s.remaining = s.remaining - :quantity, s.consumed = s.consumed + :quantity " +
+           "WHERE s.productId = :productId AND s.stripeNo = :stripeNo AND s.remaining >= :quantity")
+    int take(@Param("productId") Long productId,
+             @Param("stripeNo") Integer stripeNo,
+             @Param("quantity") Integer quantity);
+
+    // Trả hàng về một stripe (hủy đơn)
+    @Modifying
+    @Query("UPDATE HotStockStripe s SET s.remaining = s.remaining + :quantity, s.consumed = s.consumed - :quantity " +
+           "WHERE s.productId = :productId AND s.stripeNo = :stripeNo")
+    int giveBack(@Param("productId") Long productId,
+                 @Param("stripeNo") Integer stripeNo,
+                 @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("DELETE FROM HotStockStripe s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
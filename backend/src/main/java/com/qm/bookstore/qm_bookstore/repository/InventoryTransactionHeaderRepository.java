@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -73,4 +75,42 @@ public interface InventoryTransactionHeaderRepository extends JpaRepository<Inve
         @Param("productId") Long productId,
         Pageable pageable
     );
+
+    /**
+     * Keyset (cursor) - cùng filter như findByFilters, mới nhất trước.
+     * Trang sau so sánh row value (createdAt, id) -> range trên index (created_at, id)
+     */
+    String KEYSET_FILTER = "WHERE (:transactionType IS NULL OR :transactionType = '' OR h.transactionType = :transactionType) " +
+           "AND (:referenceType IS NULL OR :referenceType = '' OR h.referenceType = :referenceType) " +
+           "AND (:referenceId IS NULL OR h.referenceId = :referenceId) " +
+           "AND (:productId IS NULL OR EXISTS (" +
+           "    SELECT 1 FROM InventoryTransactionItem i " +
+           "    WHERE i.headerId = h.id AND i.productId = :productId" +
+           ")) ";
+    String KEYSET_ORDER = "ORDER BY h.createdAt DESC, h.id DESC";
+
+    @Query("SELECT h FROM InventoryTransactionHeader h " + KEYSET_FILTER + KEYSET_ORDER)
+    List<InventoryTransactionHeader> findByFiltersFirst(
+        @Param("transactionType") String transactionType,
+        @Param("referenceType") String referenceType,
+        @Param("referenceId") Integer referenceId,
+        @Param("productId") Long productId,
+        Pageable limit
+    );
+
+    /**
+     * Sau vị trí (afterCreatedAt, afterId)
+     */
+    @Query("SELECT h FROM InventoryTransactionHeader h " + KEYSET_FILTER +
+           "AND h.createdAt <= :afterCreatedAt AND (h.createdAt, h.id) < (:afterCreatedAt, :afterId) " +
+           KEYSET_ORDER)
+    List<InventoryTransactionHeader> findByFiltersAfter(
+        @Param("transactionType") String transactionType,
+        @Param("referenceType") String referenceType,
+        @Param("referenceId") Integer referenceId,
+        @Param("productId") Long productId,
+        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
 }
@@ -65,6 +65,37 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
             @Param("fromDate") LocalDateTime fromDate,
             @Param("toDate") LocalDateTime toDate,
             Pageable pageable);
+
+    // Keyset (cursor) - cùng filter như trên, mới nhất trước; trang sau so sánh row value (createdAt, id) -> range trên index
+    String KEYSET_FILTER = "(n.userId = :userId OR (n.userId IS NULL AND n.type = com.qm.bookstore.qm_bookstore.entity.Notification$NotificationType.NEW_MESSAGE)) AND " +
+           "(:type IS NULL OR n.type = :type) AND " +
+           "(:status IS NULL OR n.status = :status) AND " +
+           "(:fromDate IS NULL OR n.createdAt >= :fromDate) AND " +
+           "(:toDate IS NULL OR n.createdAt <= :toDate) ";
+    String KEYSET_ORDER = "ORDER BY n.createdAt DESC, n.id DESC";
+
+    @Query("SELECT n FROM Notification n WHERE " + KEYSET_FILTER + KEYSET_ORDER)
+    List<Notification> findNotificationsWithFiltersFirst(
+            @Param("userId") UUID userId,
+            @Param("type") Notification.NotificationType type,
+            @Param("status") Notification.NotificationStatus status,
+            @Param("fromDate") LocalDateTime fromDate,
+            @Param("toDate") LocalDateTime toDate,
+            Pageable limit);
+
+    // Sau vị trí (afterCreatedAt, afterId)
+    @Query("SELECT n FROM Notification n WHERE " + KEYSET_FILTER +
+           "AND n.createdAt <= :afterCreatedAt AND (n.createdAt, n.id) < (:afterCreatedAt, :afterId) " +
+           KEYSET_ORDER)
+    List<Notification> findNotificationsWithFiltersAfter(
+            @Param("userId") UUID userId,
+            @Param("type") Notification.NotificationType type,
+            @Param("status") Notification.NotificationStatus status,
+            @Param("fromDate") LocalDateTime fromDate,
+            @Param("toDate") LocalDateTime toDate,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") UUID afterId,
+            Pageable limit);
             
     // Find global notifications (user_id IS NULL) for admin/manager
     @Query("SELECT n FROM Notification n WHERE n.userId IS NULL AND n.type = com.qm.bookstore.qm_bookstore.entity.Notification$NotificationType.NEW_MESSAGE ORDER BY n.createdAt DESC")
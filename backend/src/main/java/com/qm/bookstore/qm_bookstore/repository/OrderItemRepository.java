@@ -4,12 +4,15 @@ import com.qm.bookstore.qm_bookstore.entity.OrderItem;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
     
     // Find by order
     List<OrderItem> findByOrderId(Long orderId);
@@ -40,4 +43,23 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // Find by order IDs (for reports)
     @Query("SELECT oi FROM OrderItem oi WHERE oi.orderId IN :orderIds")
     List<OrderItem> findByOrderIdIn(List<Long> orderIds);
+    
+    // Report: Revenue by category for paid orders in range -> [categoryId, SUM(lineTotal), SUM(quantity)]
+    @Query("SELECT oi.categoryId, SUM(oi.lineTotal), SUM(oi.quantity) " +
+           "FROM OrderItem oi " +
+           "JOIN oi.order o " +
+           "WHERE o.paymentStatus = 'paid' AND oi.categoryId IS NOT NULL " +
+           "AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY oi.categoryId")
+    List<Object[]> sumPaidRevenueByCategoryBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Top selling single products for paid orders in range -> [productId, SUM(quantity), SUM(lineTotal), COUNT]
+    @Query("SELECT oi.productId, SUM(oi.quantity), SUM(oi.lineTotal), COUNT(oi) " +
+           "FROM OrderItem oi " +
+           "JOIN oi.order o " +
+           "WHERE o.paymentStatus = 'paid' AND oi.productId IS NOT NULL " +
+           "AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY oi.productId " +
+           "ORDER BY SUM(oi.quantity) DESC")
+    List<Object[]> findTopSellingProductsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, Pageable pageable);
 }
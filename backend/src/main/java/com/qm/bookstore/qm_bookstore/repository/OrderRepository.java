@@ -15,6 +15,7 @@ import java.util.UUID;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
     
     // Find by user
     Page<Order> findByUserId(UUID userId, Pageable pageable);
@@ -44,6 +45,58 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
         Pageable pageable
     );
     
+    // Keyset (cursor), mới nhất trước. Trang đầu và trang sau là 2 query riêng: vị trí được so sánh bằng row value
+    // (createdAt, id) < (:afterCreatedAt, :afterId) + cận createdAt <= :afterCreatedAt -> điều kiện range trên
+    // index (created_at, id), không duyệt lại các dòng của những trang trước
+    String KEYSET_STATUS_FILTER = "(:paymentStatus IS NULL OR o.paymentStatus = :paymentStatus) " +
+           "AND (:fulfillmentStatus IS NULL OR o.fulfillmentStatus = :fulfillmentStatus) " +
+           "AND (:orderStatus IS NULL OR o.orderStatus = :orderStatus) ";
+    String KEYSET_AFTER = "AND o.createdAt <= :afterCreatedAt " +
+           "AND (o.createdAt, o.id) < (:afterCreatedAt, :afterId) ";
+    String KEYSET_ORDER = "ORDER BY o.createdAt DESC, o.id DESC";
+
+    // Keyset - đơn của user, trang đầu
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId AND " + KEYSET_STATUS_FILTER + KEYSET_ORDER)
+    List<Order> findByUserIdAndStatusesFirst(
+        @Param("userId") UUID userId,
+        @Param("paymentStatus") String paymentStatus,
+        @Param("fulfillmentStatus") String fulfillmentStatus,
+        @Param("orderStatus") String orderStatus,
+        Pageable limit
+    );
+
+    // Keyset - đơn của user, sau vị trí (afterCreatedAt, afterId)
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId AND " + KEYSET_STATUS_FILTER + KEYSET_AFTER + KEYSET_ORDER)
+    List<Order> findByUserIdAndStatusesAfter(
+        @Param("userId") UUID userId,
+        @Param("paymentStatus") String paymentStatus,
+        @Param("fulfillmentStatus") String fulfillmentStatus,
+        @Param("orderStatus") String orderStatus,
+        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
+
+    // Keyset - toàn bộ đơn (admin), trang đầu
+    @Query("SELECT o FROM Order o WHERE " + KEYSET_STATUS_FILTER + KEYSET_ORDER)
+    List<Order> findByStatusesFirst(
+        @Param("paymentStatus") String paymentStatus,
+        @Param("fulfillmentStatus") String fulfillmentStatus,
+        @Param("orderStatus") String orderStatus,
+        Pageable limit
+    );
+
+    // Keyset - toàn bộ đơn (admin), sau vị trí (afterCreatedAt, afterId)
+    @Query("SELECT o FROM Order o WHERE " + KEYSET_STATUS_FILTER + KEYSET_AFTER + KEYSET_ORDER)
+    List<Order> findByStatusesAfter(
+        @Param("paymentStatus") String paymentStatus,
+        @Param("fulfillmentStatus") String fulfillmentStatus,
+        @Param("orderStatus") String orderStatus,
+        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
+    
     // Find by date range
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :fromDate AND :toDate")
     Page<Order> findByDateRange(
@@ -85,5 +138,53 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Find orders by date range (for reports)
     @Query("SELECT o FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
     List<Order> findByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-}
 
+    // ===== Report aggregations (group by in SQL, chỉ trả về tổng theo bucket) =====
+    
+    // Report: Totals of paid orders in range -> [SUM(totalAmount), SUM(discountAmount), SUM(shippingFee), COUNT]
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0), COALESCE(SUM(o.discountAmount), 0), " +
+           "COALESCE(SUM(o.shippingFee), 0), COUNT(o) " +
+           "FROM Order o " +
+           "WHERE o.paymentStatus = 'paid' AND o.createdAt >= :startDate AND o.createdAt <= :endDate")
+    List<Object[]> sumPaidTotalsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Order count per (orderStatus, paymentStatus, fulfillmentStatus) in range
+    @Query("SELECT o.orderStatus, o.paymentStatus, o.fulfillmentStatus, COUNT(o) " +
+           "FROM Order o " +
+           "WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY o.orderStatus, o.paymentStatus, o.fulfillmentStatus")
+    List<Object[]> countByStatusesBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Order count per day (all statuses) -> [LocalDate, COUNT]
+    @Query("SELECT CAST(o.createdAt AS LocalDate), COUNT(o) " +
+           "FROM Order o " +
+           "WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY CAST(o.createdAt AS LocalDate)")
+    List<Object[]> countByDayBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Paid revenue per day -> [LocalDate, SUM(totalAmount), COUNT]
+    @Query("SELECT CAST(o.createdAt AS LocalDate), SUM(o.totalAmount), COUNT(o) " +
+           "FROM Order o " +
+           "WHERE o.paymentStatus = 'paid' AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY CAST(o.createdAt AS LocalDate)")
+    List<Object[]> sumPaidRevenueByDayBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Paid revenue per payment method -> [paymentMethod, SUM(totalAmount), COUNT]
+    @Query("SELECT o.paymentMethod, SUM(o.totalAmount), COUNT(o) " +
+           "FROM Order o " +
+           "WHERE o.paymentStatus = 'paid' AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY o.paymentMethod")
+    List<Object[]> sumPaidRevenueByPaymentMethodBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Paid voucher usage -> [voucherId, COUNT, SUM(discountAmount), COUNT(DISTINCT userId)]
+    @Query("SELECT o.voucherId, COUNT(o), SUM(o.discountAmount), COUNT(DISTINCT o.userId) " +
+           "FROM Order o " +
+           "WHERE o.paymentStatus = 'paid' AND o.voucherId IS NOT NULL " +
+           "AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY o.voucherId")
+    List<Object[]> sumPaidVoucherUsageBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Report: Number of distinct customers who placed an order in range
+    @Query("SELECT COUNT(DISTINCT o.userId) FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
+    long countDistinctUsersBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,7 +45,24 @@ public interface ProductComboRepository extends JpaRepository<ProductCombo, Inte
            "LEFT JOIN FETCH pc.comboItems " +
            "WHERE pc.id = :id")
     Optional<ProductCombo> findByIdWithItems(@Param("id") Integer id);
-    
+
+    /**
+     * Batch load nhiều combo kèm items và product của từng item (1 query)
+     */
+    @Query("SELECT DISTINCT pc FROM ProductCombo pc " +
+           "LEFT JOIN FETCH pc.comboItems ci " +
+           "LEFT JOIN FETCH ci.product " +
+           "WHERE pc.id IN :ids")
+    List<ProductCombo> findAllWithItemsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Batch load nhiều combo kèm items, product của item để lazy (dùng khi cần khóa product sau đó)
+     */
+    @Query("SELECT DISTINCT pc FROM ProductCombo pc " +
+           "LEFT JOIN FETCH pc.comboItems " +
+           "WHERE pc.id IN :ids")
+    List<ProductCombo> findAllWithComboItemsByIdIn(@Param("ids") Collection<Integer> ids);
+
     /**
      * Đếm số combo available
      */
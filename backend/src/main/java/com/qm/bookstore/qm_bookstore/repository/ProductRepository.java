@@ -1,20 +1,30 @@
 package com.qm.bookstore.qm_bookstore.repository;
 
 import com.qm.bookstore.qm_bookstore.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategoryId(Long categoryId);
+
+    // Product của category và mọi category con cháu (closure table, 1 query)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.category.id IN " +
+           "(SELECT c.descendantId FROM CategoryClosure c WHERE c.ancestorId = :categoryId) ORDER BY p.id")
+    List<Product> findByCategorySubtree(@Param("categoryId") Long categoryId);
     List<Product> findByNameContainingIgnoreCase(String name);
     Optional<Product> findBySku(String sku);
     List<Product> findByBrandContainingIgnoreCase(String brand);
@@ -31,6 +41,130 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.reorderLevel AND p.reorderLevel > 0")
     List<Product> findLowStockProducts();
     
+    // Batch load products together with their category (avoids N+1 when rendering lists)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findAllWithCategoryByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Toàn bộ product kèm category (dựng chỉ mục catalog trong bộ nhớ)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
+
+    // (id, stock_quantity, availability) của toàn bộ product - làm mới phần tồn kho của chỉ mục catalog
+    @Query("SELECT p.id, p.stockQuantity, p.availability FROM Product p")
+    List<Object[]> findStockSnapshot();
+
+    // Khóa (SELECT ... FOR UPDATE) nhiều product theo thứ tự id tăng dần - thứ tự khóa cố định tránh deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> lockAllByIdInOrderById(@Param("ids") Collection<Long> ids);
+
+    // Trừ kho nguyên tử: chỉ trừ khi còn đủ hàng (trả về 0 nếu không đủ / không tồn tại)
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int deductStockIfAvailable(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    // Đọc tồn kho hiện tại trực tiếp từ DB (không qua entity đang quản lý)
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Integer findStockQuantityById(@Param("id") Long id);
+
+    // Cộng kho nguyên tử (không đọc - sửa - ghi)
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :id")
+    int addStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    // Trừ kho nhiều product trong 1 câu UPDATE có điều kiện.
+    // Trả về (id, stock_quantity sau khi trừ) của từng dòng trừ thành công - dòng không đủ hàng không có trong kết quả.
+    // Thứ tự khóa dòng của UPDATE ... FROM unnest phụ thuộc plan join -> người gọi phải khóa trước theo id
+    // (lockAllByIdInOrderById).
+    // Không dùng @Modifying (chỉ cho phép void / int): chạy như query trả về dòng, người gọi tự flush persistence
+    // context trước và clear sau (entity Product không bị cũ)
+    @Query(value = "UPDATE products p SET stock_quantity = p.stock_quantity - d.quantity " +
+                   "FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS int[])) AS d(id, quantity) " +
+                   "WHERE p.id = d.id AND p.stock_quantity >= d.quantity " +
+                   "RETURNING p.id, p.stock_quantity",
+           nativeQuery = true)
+    List<Object[]> deductStockBatch(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
+    
+    // Tìm kiếm full-text (product_search_documents, GIN) kết hợp các filter của danh sách product.
+    // :query là tsquery đã chuẩn hóa (ProductSearchIndex.toTsQuery)
+    String SEARCH_FROM = "FROM products p JOIN product_search_documents d ON d.product_id = p.id WHERE " +
+           "d.search_vector @@ to_tsquery('simple', :query) AND " +
+           "(:sku IS NULL OR LOWER(p.sku::text) LIKE LOWER(CONCAT('%', :sku, '%'))) AND " +
+           "(:categoryId IS NULL OR p.category_id = :categoryId) AND " +
+           "(:brand IS NULL OR LOWER(p.brand::text) LIKE LOWER(CONCAT('%', :brand, '%'))) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:availability IS NULL OR p.availability = :availability)";
+
+    // Sắp xếp theo độ liên quan (tên > thương hiệu / SKU > mô tả) - pageable không được có sort
+    @Query(value = "SELECT p.* " + SEARCH_FROM +
+           " ORDER BY ts_rank_cd(d.search_vector, to_tsquery('simple', :query)) DESC, p.id",
+           countQuery = "SELECT COUNT(*) " + SEARCH_FROM,
+           nativeQuery = true)
+    Page<Product> searchProductsWithFilters(
+            @Param("query") String query,
+            @Param("sku") String sku,
+            @Param("categoryId") Long categoryId,
+            @Param("brand") String brand,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("availability") Boolean availability,
+            Pageable pageable);
+
+    // Như trên nhưng sắp xếp theo sort của pageable (người dùng chọn sortBy)
+    @Query(value = "SELECT p.* " + SEARCH_FROM,
+           countQuery = "SELECT COUNT(*) " + SEARCH_FROM,
+           nativeQuery = true)
+    Page<Product> searchProductsWithFiltersSorted(
+            @Param("query") String query,
+            @Param("sku") String sku,
+            @Param("categoryId") Long categoryId,
+            @Param("brand") String brand,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("availability") Boolean availability,
+            Pageable pageable);
+
+    // Keyset (cursor) - cùng filter như findProductsWithFilters (từ khóa qua chỉ mục full-text), mới nhất trước.
+    // Trang sau so sánh row value (created_at, id) < (...) -> range trên idx_product_created_at_id
+    String KEYSET_FILTER = "(CAST(:query AS text) IS NULL OR p.id IN (SELECT d.product_id FROM product_search_documents d " +
+           "    WHERE d.search_vector @@ to_tsquery('simple', CAST(:query AS text)))) AND " +
+           "(:sku IS NULL OR LOWER(p.sku::text) LIKE LOWER(CONCAT('%', :sku, '%'))) AND " +
+           "(:categoryId IS NULL OR p.category_id = :categoryId) AND " +
+           "(:brand IS NULL OR LOWER(p.brand::text) LIKE LOWER(CONCAT('%', :brand, '%'))) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:availability IS NULL OR p.availability = :availability) ";
+    String KEYSET_ORDER = "ORDER BY p.created_at DESC, p.id DESC";
+
+    @Query(value = "SELECT * FROM products p WHERE " + KEYSET_FILTER + KEYSET_ORDER, nativeQuery = true)
+    List<Product> findProductsWithFiltersFirst(
+            @Param("query") String query,
+            @Param("sku") String sku,
+            @Param("categoryId") Long categoryId,
+            @Param("brand") String brand,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("availability") Boolean availability,
+            Pageable limit);
+
+    // Sau vị trí (afterCreatedAt, afterId)
+    @Query(value = "SELECT * FROM products p WHERE " + KEYSET_FILTER +
+           "AND (p.created_at, p.id) < (CAST(:afterCreatedAt AS timestamp), :afterId) " + KEYSET_ORDER,
+           nativeQuery = true)
+    List<Product> findProductsWithFiltersAfter(
+            @Param("query") String query,
+            @Param("sku") String sku,
+            @Param("categoryId") Long categoryId,
+            @Param("brand") String brand,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("availability") Boolean availability,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable limit);
+
     // Paginated queries with filters - Using native query with explicit type casting
     @Query(value = "SELECT * FROM products p WHERE " +
            "(:name IS NULL OR LOWER(p.name::text) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
@@ -0,0 +1,19 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.entity.ProductSearchDocument;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductSearchDocumentRepository extends JpaRepository<ProductSearchDocument, Long> {
+
+    // Product chưa có tài liệu tìm kiếm (backfill khi khởi động)
+    @Query("SELECT p FROM Product p WHERE NOT EXISTS " +
+           "(SELECT 1 FROM ProductSearchDocument d WHERE d.productId = p.id) ORDER BY p.id")
+    List<Product> findUnindexedProducts(Pageable pageable);
+}
@@ -0,0 +1,43 @@
+package com.qm.bookstore.qm_bookstore.repository;
+
+import com.qm.bookstore.qm_bookstore.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Tổng số lượng đang giữ theo product (available-to-promise)
+    @Query("SELECT r.productId, SUM(r.quantity) FROM StockReservation r " +
+           "WHERE r.status = 'ACTIVE' AND r.productId IN :productIds GROUP BY r.productId")
+    List<Object[]> sumActiveQuantityByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Các hold chưa đóng của đơn hàng - ACTIVE và STRIPED (khóa dòng để convert / release / expire không xử lý trùng)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId AND r.status IN ('ACTIVE', 'STRIPED')")
+    List<StockReservation> lockOpenByOrderId(@Param("orderId") Long orderId);
+
+    List<StockReservation> findByOrderIdAndStatus(Long orderId, String status);
+
+    // Các hold đã hết hạn (khóa dòng)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.status = 'ACTIVE' AND r.expiresAt <= :now")
+    List<StockReservation> lockExpired(@Param("now") LocalDateTime now);
+
+    // Đóng nhiều hold trong 1 câu lệnh
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :status, r.closedAt = :now " +
+           "WHERE r.id IN :ids")
+    int closeAll(@Param("ids") Collection<Long> ids,
+                 @Param("status") String status,
+                 @Param("now") LocalDateTime now);
+}
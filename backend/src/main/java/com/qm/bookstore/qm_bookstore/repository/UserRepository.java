@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -39,4 +40,15 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @Query("SELECT COUNT(u) FROM User u")
     Long getTotalRecords();
 
+    // Dashboard: count users of a role (case-insensitive)
+    @Query("SELECT COUNT(u) FROM User u WHERE LOWER(u.role.name) = LOWER(:roleName)")
+    long countByRoleName(@Param("roleName") String roleName);
+
+    // Dashboard: count users of a role created in range (exclusive bounds)
+    @Query("SELECT COUNT(u) FROM User u WHERE LOWER(u.role.name) = LOWER(:roleName) " +
+           "AND u.createdAt > :startDate AND u.createdAt < :endDate")
+    long countByRoleNameAndCreatedAtBetween(@Param("roleName") String roleName,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+
 }
@@ -42,6 +42,30 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
         Pageable pageable
     );
     
+    // Keyset (cursor) - voucher mới nhất trước; trang sau so sánh row value (createdAt, id) -> range trên index
+    String KEYSET_FILTER = "(:status IS NULL OR v.status = :status) AND " +
+           "(:applyTo IS NULL OR v.applyTo = :applyTo) ";
+    String KEYSET_ORDER = "ORDER BY v.createdAt DESC, v.id DESC";
+
+    @Query("SELECT v FROM Voucher v WHERE " + KEYSET_FILTER + KEYSET_ORDER)
+    List<Voucher> findByFiltersFirst(
+        @Param("status") Boolean status,
+        @Param("applyTo") String applyTo,
+        Pageable limit
+    );
+
+    // Sau vị trí (afterCreatedAt, afterId)
+    @Query("SELECT v FROM Voucher v WHERE " + KEYSET_FILTER +
+           "AND v.createdAt <= :afterCreatedAt AND (v.createdAt, v.id) < (:afterCreatedAt, :afterId) " +
+           KEYSET_ORDER)
+    List<Voucher> findByFiltersAfter(
+        @Param("status") Boolean status,
+        @Param("applyTo") String applyTo,
+        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
+    
     // Tăng used_count an toàn (chỉ khi chưa đạt limit)
     @Modifying
     @Query("UPDATE Voucher v SET v.usedCount = v.usedCount + 1 " +
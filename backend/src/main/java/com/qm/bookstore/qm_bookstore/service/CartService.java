@@ -26,9 +26,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +45,7 @@ public class CartService {
     CartItemRepository cartItemRepository;
     ProductRepository productRepository;
     ProductComboRepository productComboRepository;
+    CartStateCache cartStateCache;
 
     /**
      * Get or create cart for user or guest session
@@ -147,6 +152,7 @@ public class CartService {
         log.info("Added new item to cart {}: product {} with quantity {}", 
                 cart.getId(), request.getProductId(), request.getQuantity());
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -155,6 +161,11 @@ public class CartService {
      */
     @Transactional(readOnly = true)
     public CartResponse getCart(UUID userId, String sessionId) {
+        Optional<CartResponse> cached = cartStateCache.get(userId, sessionId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         Cart cart = null;
         
         if (userId != null) {
@@ -179,8 +190,13 @@ public class CartService {
         }
 
         List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
+
+        // Batch load toàn bộ product và combo (kèm items) của giỏ - số query cố định
+        Map<Long, Product> products = loadProducts(cartItems);
+        Map<Integer, ProductCombo> combos = loadCombos(cartItems);
+
         List<CartItemResponse> itemResponses = cartItems.stream()
-                .map(this::toCartItemResponse)
+                .map(item -> toCartItemResponse(item, products, combos))
                 .collect(Collectors.toList());
 
         // Calculate summary
@@ -188,32 +204,12 @@ public class CartService {
         Integer selectedItems = (int) cartItems.stream().filter(CartItem::getIsSelected).count();
         
         BigDecimal totalAmount = cartItems.stream()
-                .map(item -> {
-                    if (item.getItemType() == ItemType.COMBO) {
-                        ProductCombo combo = productComboRepository.findById(item.getComboId()).orElse(null);
-                        if (combo == null) return BigDecimal.ZERO;
-                        return combo.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                    } else {
-                        Product product = productRepository.findById(item.getProductId()).orElse(null);
-                        if (product == null) return BigDecimal.ZERO;
-                        return product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                    }
-                })
+                .map(item -> lineAmount(item, products, combos))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         BigDecimal selectedAmount = cartItems.stream()
                 .filter(CartItem::getIsSelected)
-                .map(item -> {
-                    if (item.getItemType() == ItemType.COMBO) {
-                        ProductCombo combo = productComboRepository.findById(item.getComboId()).orElse(null);
-                        if (combo == null) return BigDecimal.ZERO;
-                        return combo.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                    } else {
-                        Product product = productRepository.findById(item.getProductId()).orElse(null);
-                        if (product == null) return BigDecimal.ZERO;
-                        return product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                    }
-                })
+                .map(item -> lineAmount(item, products, combos))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         Integer totalQuantity = cartItems.stream()
@@ -225,7 +221,7 @@ public class CartService {
                 .mapToInt(CartItem::getQuantity)
                 .sum();
 
-        return CartResponse.builder()
+        CartResponse response = CartResponse.builder()
                 .cartId(cart.getId())
                 .items(itemResponses)
                 .summary(CartSummary.builder()
@@ -237,6 +233,9 @@ public class CartService {
                         .selectedAmount(selectedAmount)
                         .build())
                 .build();
+
+        // Cache lại cho các lần đọc sau (áp thêm các thay đổi chọn / số lượng chưa flush)
+        return cartStateCache.store(userId, sessionId, response);
     }
 
     /**
@@ -244,6 +243,16 @@ public class CartService {
      */
     @Transactional
     public CartResponse updateQuantity(Long itemId, Integer quantity, UUID userId, String sessionId) {
+        if (quantity < 1) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+
+        // Giỏ đang cache: chỉ sửa trong bộ nhớ, ghi xuống DB theo lô sau
+        Optional<CartResponse> cached = cartStateCache.applyQuantity(userId, sessionId, itemId, quantity);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         CartItem cartItem = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
 
@@ -253,13 +262,10 @@ public class CartService {
         
         verifyCartOwnership(cart, userId, sessionId);
 
-        if (quantity < 1) {
-            throw new AppException(ErrorCode.INVALID_REQUEST);
-        }
-
         cartItem.setQuantity(quantity);
         cartItemRepository.save(cartItem);
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -268,6 +274,12 @@ public class CartService {
      */
     @Transactional
     public CartResponse toggleSelection(Long itemId, Boolean selected, UUID userId, String sessionId) {
+        // Giỏ đang cache: chỉ sửa trong bộ nhớ, ghi xuống DB theo lô sau
+        Optional<CartResponse> cached = cartStateCache.applySelection(userId, sessionId, itemId, selected);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         CartItem cartItem = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
 
@@ -280,6 +292,7 @@ public class CartService {
         cartItem.setIsSelected(selected);
         cartItemRepository.save(cartItem);
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -288,12 +301,18 @@ public class CartService {
      */
     @Transactional
     public CartResponse selectAll(Boolean selected, UUID userId, String sessionId) {
+        Optional<CartResponse> cached = cartStateCache.applySelectAll(userId, sessionId, selected);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         Cart cart = getOrCreateCart(userId, sessionId);
         List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
 
         cartItems.forEach(item -> item.setIsSelected(selected));
         cartItemRepository.saveAll(cartItems);
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -313,6 +332,7 @@ public class CartService {
 
         cartItemRepository.delete(cartItem);
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -324,6 +344,7 @@ public class CartService {
         Cart cart = getOrCreateCart(userId, sessionId);
         cartItemRepository.deleteByCartId(cart.getId());
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
@@ -334,6 +355,10 @@ public class CartService {
     public void mergeGuestCartToUser(String sessionId, UUID userId) {
         if (sessionId == null || userId == null) return;
 
+        // Ghi các thay đổi chọn / số lượng đang chờ của cả 2 giỏ trước khi chuyển item
+        cartStateCache.flush(null, sessionId);
+        cartStateCache.flush(userId, null);
+
         Cart guestCart = cartRepository.findBySessionId(sessionId).orElse(null);
         if (guestCart == null) return;
 
@@ -376,6 +401,9 @@ public class CartService {
 
         // Delete guest cart
         cartRepository.delete(guestCart);
+
+        cartStateCache.invalidate(null, sessionId);
+        cartStateCache.invalidate(userId, null);
     }
 
     /**
@@ -436,17 +464,21 @@ public class CartService {
                     request.getComboId(), request.getQuantity());
         }
 
+        cartStateCache.invalidate(userId, sessionId);
         return getCart(userId, sessionId);
     }
 
     /**
      * Convert CartItem to CartItemResponse
      */
-    private CartItemResponse toCartItemResponse(CartItem cartItem) {
+    private CartItemResponse toCartItemResponse(CartItem cartItem, Map<Long, Product> products,
+                                                Map<Integer, ProductCombo> combos) {
         if (cartItem.getItemType() == ItemType.COMBO) {
             // Handle combo item
-            ProductCombo combo = productComboRepository.findByIdWithItems(cartItem.getComboId())
-                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_COMBO_NOT_FOUND));
+            ProductCombo combo = combos.get(cartItem.getComboId());
+            if (combo == null) {
+                throw new AppException(ErrorCode.PRODUCT_COMBO_NOT_FOUND);
+            }
 
             BigDecimal subtotal = combo.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
 
@@ -493,8 +525,10 @@ public class CartService {
                     .build();
         } else {
             // Handle single product (existing logic)
-            Product product = productRepository.findById(cartItem.getProductId())
-                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+            Product product = products.get(cartItem.getProductId());
+            if (product == null) {
+                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
 
             BigDecimal subtotal = product.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
 
@@ -514,6 +548,56 @@ public class CartService {
         }
     }
 
+    /**
+     * Batch load product (không phải combo) được tham chiếu trong giỏ
+     */
+    private Map<Long, Product> loadProducts(List<CartItem> cartItems) {
+        List<Long> productIds = cartItems.stream()
+                .filter(item -> item.getItemType() != ItemType.COMBO)
+                .map(CartItem::getProductId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    /**
+     * Batch load combo (kèm combo items + product) được tham chiếu trong giỏ
+     */
+    private Map<Integer, ProductCombo> loadCombos(List<CartItem> cartItems) {
+        List<Integer> comboIds = cartItems.stream()
+                .filter(item -> item.getItemType() == ItemType.COMBO)
+                .map(CartItem::getComboId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (comboIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return productComboRepository.findAllWithItemsByIdIn(comboIds).stream()
+                .collect(Collectors.toMap(ProductCombo::getId, Function.identity()));
+    }
+
+    /**
+     * Thành tiền của một dòng trong giỏ (0 nếu product/combo không còn tồn tại)
+     */
+    private BigDecimal lineAmount(CartItem item, Map<Long, Product> products, Map<Integer, ProductCombo> combos) {
+        BigDecimal price;
+        if (item.getItemType() == ItemType.COMBO) {
+            ProductCombo combo = combos.get(item.getComboId());
+            price = combo != null ? combo.getPrice() : null;
+        } else {
+            Product product = products.get(item.getProductId());
+            price = product != null ? product.getPrice() : null;
+        }
+        if (price == null) return BigDecimal.ZERO;
+        return price.multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+
     /**
      * Verify cart ownership
      */
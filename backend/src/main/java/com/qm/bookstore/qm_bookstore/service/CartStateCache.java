@@ -0,0 +1,452 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.cart.response.CartItemResponse;
+import com.qm.bookstore.qm_bookstore.dto.cart.response.CartResponse;
+import com.qm.bookstore.qm_bookstore.dto.cart.response.CartSummary;
+import com.qm.bookstore.qm_bookstore.entity.ItemType;
+import com.qm.bookstore.qm_bookstore.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Cache trạng thái giỏ hàng theo user id / session id, kèm ghi trễ (write-behind) cho thao tác chọn item
+ * và đổi số lượng.
+ *
+ * - getCart đọc thẳng CartResponse trong bộ nhớ (TTL ngắn để giá sản phẩm không bị cũ lâu).
+ * - toggleSelection / selectAll / updateQuantity chỉ sửa bản trong bộ nhớ và ghi nhận thay đổi chờ ghi;
+ *   nhiều lần bấm liên tiếp trên cùng item được gộp lại (giá trị cuối cùng thắng).
+ * - Thay đổi chờ ghi được flush theo lô bằng UPDATE ... WHERE id IN (...) theo chu kỳ, trước checkout,
+ *   trước các thao tác đổi cấu trúc giỏ và khi ứng dụng tắt. Transaction flush bị rollback thì thay đổi
+ *   được đưa lại vào hàng đợi.
+ * - Khi giỏ được build lại từ DB, các thay đổi chưa flush được áp lên kết quả nên người dùng luôn thấy
+ *   đúng thao tác của mình.
+ *
+ * - Thay đổi đang được ghi (đã lấy khỏi hàng đợi, transaction chưa kết thúc) được đánh dấu theo giỏ;
+ *   flush() của giỏ đó chờ các lần ghi này kết thúc trước khi trả về, nên checkout luôn đọc thấy thay đổi.
+ *
+ * Cache và thay đổi chờ ghi nằm trong bộ nhớ của từng instance. Khi chạy nhiều instance mà request của một
+ * user không luôn tới cùng instance (không có sticky session), đặt cart.write-behind.enabled=false: thay đổi
+ * được ghi ngay xuống DB trong request (write-through), view trong cache vẫn được dùng cho getCart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartStateCache {
+
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.cache.ttl:2m}")
+    private Duration ttl;
+
+    @Value("${cart.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${cart.write-behind.enabled:true}")
+    private boolean writeBehind;
+
+    // Thời gian tối đa flush() chờ lần ghi đang chạy của cùng giỏ
+    @Value("${cart.write-behind.flush-wait-ms:5000}")
+    private long flushWaitMs;
+
+    private record CachedCart(CartResponse response, Instant expiresAt) {
+    }
+
+    /**
+     * Thay đổi chờ ghi của một cart item (null = không đổi trường đó)
+     */
+    private record PendingWrite(Boolean selected, Integer quantity) {
+        PendingWrite mergeOlder(PendingWrite older) {
+            return new PendingWrite(
+                    selected != null ? selected : older.selected(),
+                    quantity != null ? quantity : older.quantity());
+        }
+    }
+
+    private final Map<String, CachedCart> carts = new ConcurrentHashMap<>();
+
+    // ownerKey -> (cartItemId -> thay đổi chờ ghi); mọi truy cập đều synchronized trên chính map này
+    private final Map<String, Map<Long, PendingWrite>> pending = new HashMap<>();
+
+    // ownerKey -> các thread đang ghi thay đổi của giỏ (transaction chưa kết thúc); synchronized trên pending
+    private final Map<String, List<Thread>> inFlight = new HashMap<>();
+
+    /**
+     * Giỏ hàng trong cache (nếu còn hạn)
+     */
+    public Optional<CartResponse> get(UUID userId, String sessionId) {
+        String ownerKey = ownerKey(userId, sessionId);
+        if (ownerKey == null) {
+            return Optional.empty();
+        }
+        CachedCart cached = carts.get(ownerKey);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (!Instant.now().isBefore(cached.expiresAt())) {
+            carts.remove(ownerKey, cached);
+            return Optional.empty();
+        }
+        return Optional.of(cached.response());
+    }
+
+    /**
+     * Lưu giỏ vừa build từ DB; các thay đổi chưa flush được áp lên trước khi lưu và trả về
+     */
+    public CartResponse store(UUID userId, String sessionId, CartResponse response) {
+        String ownerKey = ownerKey(userId, sessionId);
+        if (ownerKey == null || response.getCartId() == null) {
+            return response;
+        }
+
+        Map<Long, PendingWrite> writes = pendingSnapshot(ownerKey);
+        CartResponse merged = writes.isEmpty()
+                ? response
+                : rebuild(response, item -> {
+                    PendingWrite write = writes.get(item.getId());
+                    return write != null ? apply(item, write) : item;
+                });
+
+        if (carts.size() >= maxSize) {
+            evictExpired();
+        }
+        carts.put(ownerKey, new CachedCart(merged, Instant.now().plus(ttl)));
+        return merged;
+    }
+
+    /**
+     * Bỏ giỏ khỏi cache (sau khi thêm / xóa item, merge, checkout...).
+     * Nếu đang trong transaction thì bỏ thêm một lần sau commit để không giữ lại dữ liệu đọc trước commit.
+     */
+    public void invalidate(UUID userId, String sessionId) {
+        String ownerKey = ownerKey(userId, sessionId);
+        if (ownerKey == null) {
+            return;
+        }
+        carts.remove(ownerKey);
+        TransactionHooks.afterCompletion(committed -> carts.remove(ownerKey));
+    }
+
+    /**
+     * Đổi trạng thái chọn của một item trong giỏ đang cache.
+     * Trả về empty nếu giỏ không có trong cache hoặc item không thuộc giỏ này.
+     */
+    public Optional<CartResponse> applySelection(UUID userId, String sessionId, Long itemId, Boolean selected) {
+        return update(userId, sessionId, itemId, new PendingWrite(selected, null));
+    }
+
+    /**
+     * Đổi số lượng của một item trong giỏ đang cache (subtotal và summary được tính lại)
+     */
+    public Optional<CartResponse> applyQuantity(UUID userId, String sessionId, Long itemId, Integer quantity) {
+        return update(userId, sessionId, itemId, new PendingWrite(null, quantity));
+    }
+
+    /**
+     * Chọn / bỏ chọn toàn bộ item của giỏ đang cache
+     */
+    public Optional<CartResponse> applySelectAll(UUID userId, String sessionId, Boolean selected) {
+        return update(userId, sessionId, null, new PendingWrite(selected, null));
+    }
+
+    /**
+     * Ghi xuống DB các thay đổi đang chờ của một giỏ (gọi trước khi đọc cart_items trực tiếp từ DB)
+     */
+    @Transactional
+    public void flush(UUID userId, String sessionId) {
+        String ownerKey = ownerKey(userId, sessionId);
+        if (ownerKey == null) {
+            return;
+        }
+        Map<String, Map<Long, PendingWrite>> drained = new HashMap<>();
+        synchronized (pending) {
+            // Lần ghi của job định kỳ / request khác chưa commit -> chờ, nếu không sẽ đọc thấy dữ liệu cũ
+            awaitInFlight(ownerKey);
+            Map<Long, PendingWrite> writes = pending.remove(ownerKey);
+            if (writes != null) {
+                drained.put(ownerKey, writes);
+                markInFlight(drained.keySet());
+            }
+        }
+        write(drained);
+    }
+
+    /**
+     * Job định kỳ: flush toàn bộ thay đổi đang chờ theo lô.
+     * Dùng TransactionTemplate để chỉ mở transaction khi thực sự có thay đổi cần ghi.
+     */
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:2000}")
+    public void flushAll() {
+        Map<String, Map<Long, PendingWrite>> drained;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = new HashMap<>(pending);
+            pending.clear();
+            markInFlight(drained.keySet());
+        }
+        boolean[] started = {false};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                started[0] = true;
+                write(drained);
+            });
+        } catch (RuntimeException e) {
+            // Không mở được transaction -> write() chưa đăng ký requeue / bỏ đánh dấu
+            if (!started[0]) {
+                requeue(drained);
+                releaseInFlight(drained.keySet(), Thread.currentThread());
+            }
+            log.error("[flushAll] Failed to flush pending cart writes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Flush lần cuối khi ứng dụng tắt
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void flushOnShutdown() {
+        log.info("[flushOnShutdown] Flushing pending cart writes before shutdown");
+        flushAll();
+    }
+
+    // Helper methods
+
+    /**
+     * Áp thay đổi lên một item (itemId != null) hoặc toàn bộ item của giỏ đang cache.
+     * Cập nhật view và ghi nhận thay đổi chờ ghi trong cùng một thao tác nguyên tử trên entry của giỏ.
+     */
+    private Optional<CartResponse> update(UUID userId, String sessionId, Long itemId, PendingWrite write) {
+        String ownerKey = ownerKey(userId, sessionId);
+        if (ownerKey == null) {
+            return Optional.empty();
+        }
+
+        Instant now = Instant.now();
+        CartResponse[] result = new CartResponse[1];
+        carts.computeIfPresent(ownerKey, (key, cached) -> {
+            if (!now.isBefore(cached.expiresAt())) {
+                return null;
+            }
+            List<Long> targetIds = cached.response().getItems().stream()
+                    .map(CartItemResponse::getId)
+                    .filter(id -> itemId == null || id.equals(itemId))
+                    .collect(Collectors.toList());
+            if (targetIds.isEmpty() && itemId != null) {
+                return cached;
+            }
+
+            result[0] = rebuild(cached.response(),
+                    item -> targetIds.contains(item.getId()) ? apply(item, write) : item);
+            targetIds.forEach(id -> enqueue(key, id, write));
+            return new CachedCart(result[0], now.plus(ttl));
+        });
+        if (result[0] != null && !writeBehind) {
+            transactionTemplate.executeWithoutResult(status -> flush(userId, sessionId));
+        }
+        return Optional.ofNullable(result[0]);
+    }
+
+    private void enqueue(String ownerKey, Long itemId, PendingWrite write) {
+        synchronized (pending) {
+            pending.computeIfAbsent(ownerKey, key -> new HashMap<>())
+                    .merge(itemId, write, (older, newer) -> newer.mergeOlder(older));
+        }
+    }
+
+    // Gọi khi đang giữ khóa pending
+    private void markInFlight(Collection<String> ownerKeys) {
+        Thread current = Thread.currentThread();
+        ownerKeys.forEach(ownerKey -> inFlight.computeIfAbsent(ownerKey, key -> new ArrayList<>()).add(current));
+    }
+
+    private void releaseInFlight(Collection<String> ownerKeys, Thread thread) {
+        synchronized (pending) {
+            ownerKeys.forEach(ownerKey -> {
+                List<Thread> threads = inFlight.get(ownerKey);
+                if (threads != null) {
+                    threads.remove(thread);
+                    if (threads.isEmpty()) {
+                        inFlight.remove(ownerKey);
+                    }
+                }
+            });
+            pending.notifyAll();
+        }
+    }
+
+    // Gọi khi đang giữ khóa pending; bỏ qua lần ghi của chính thread này (cùng transaction)
+    private void awaitInFlight(String ownerKey) {
+        Thread current = Thread.currentThread();
+        long deadline = System.currentTimeMillis() + flushWaitMs;
+        while (inFlight.getOrDefault(ownerKey, List.of()).stream().anyMatch(thread -> thread != current)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                log.warn("[awaitInFlight] Timed out waiting for in-flight cart writes of {}", ownerKey);
+                return;
+            }
+            try {
+                pending.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Map<Long, PendingWrite> pendingSnapshot(String ownerKey) {
+        synchronized (pending) {
+            Map<Long, PendingWrite> writes = pending.get(ownerKey);
+            return writes != null ? new HashMap<>(writes) : Map.of();
+        }
+    }
+
+    /**
+     * Gom thay đổi theo giá trị rồi ghi bằng UPDATE ... WHERE id IN (...): số câu lệnh không phụ thuộc số item
+     */
+    private void write(Map<String, Map<Long, PendingWrite>> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        // Transaction rollback -> đưa thay đổi lại hàng đợi (không ghi đè thay đổi mới hơn);
+        // kết thúc transaction -> bỏ đánh dấu đang ghi
+        Thread writer = Thread.currentThread();
+        boolean transactional = TransactionHooks.afterCompletion(committed -> {
+            if (!committed) {
+                requeue(drained);
+            }
+            releaseInFlight(drained.keySet(), writer);
+        });
+
+        Map<Boolean, List<Long>> bySelection = new HashMap<>();
+        Map<Integer, List<Long>> byQuantity = new HashMap<>();
+        drained.values().forEach(writes -> writes.forEach((itemId, write) -> {
+            if (write.selected() != null) {
+                bySelection.computeIfAbsent(write.selected(), key -> new ArrayList<>()).add(itemId);
+            }
+            if (write.quantity() != null) {
+                byQuantity.computeIfAbsent(write.quantity(), key -> new ArrayList<>()).add(itemId);
+            }
+        }));
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            bySelection.forEach((selected, ids) -> cartItemRepository.updateSelectionByIdIn(ids, selected, now));
+            byQuantity.forEach((quantity, ids) -> cartItemRepository.updateQuantityByIdIn(ids, quantity, now));
+        } catch (RuntimeException e) {
+            if (!transactional) {
+                requeue(drained);
+            }
+            throw e;
+        } finally {
+            if (!transactional) {
+                releaseInFlight(drained.keySet(), writer);
+            }
+        }
+
+        log.debug("[write] Flushed cart writes for {} carts ({} selection groups, {} quantity groups)",
+                drained.size(), bySelection.size(), byQuantity.size());
+    }
+
+    private void requeue(Map<String, Map<Long, PendingWrite>> drained) {
+        synchronized (pending) {
+            drained.forEach((ownerKey, writes) -> {
+                Map<Long, PendingWrite> current = pending.computeIfAbsent(ownerKey, key -> new HashMap<>());
+                writes.forEach((itemId, older) -> current.merge(itemId, older, (newer, old) -> newer.mergeOlder(old)));
+            });
+        }
+        log.warn("[requeue] Cart write flush failed, {} carts re-queued", drained.size());
+    }
+
+    private void evictExpired() {
+        Instant now = Instant.now();
+        carts.values().removeIf(cached -> !now.isBefore(cached.expiresAt()));
+        if (carts.size() >= maxSize) {
+            // Vẫn đầy: bỏ toàn bộ view (thay đổi chờ ghi nằm riêng nên không bị mất)
+            carts.clear();
+        }
+    }
+
+    private static CartItemResponse apply(CartItemResponse item, PendingWrite write) {
+        CartItemResponse.CartItemResponseBuilder builder = item.toBuilder();
+        if (write.selected() != null) {
+            builder.isSelected(write.selected());
+        }
+        if (write.quantity() != null) {
+            BigDecimal unitPrice = item.getItemType() == ItemType.COMBO
+                    ? item.getCombo().getPrice()
+                    : item.getPrice();
+            builder.quantity(write.quantity())
+                    .subtotal(unitPrice.multiply(BigDecimal.valueOf(write.quantity())));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tạo CartResponse mới (copy-on-write) và tính lại summary
+     */
+    private static CartResponse rebuild(CartResponse response, UnaryOperator<CartItemResponse> mapper) {
+        List<CartItemResponse> items = response.getItems().stream()
+                .map(mapper)
+                .collect(Collectors.toList());
+
+        List<CartItemResponse> selected = items.stream()
+                .filter(item -> Boolean.TRUE.equals(item.getIsSelected()))
+                .collect(Collectors.toList());
+
+        return CartResponse.builder()
+                .cartId(response.getCartId())
+                .items(items)
+                .summary(CartSummary.builder()
+                        .totalItems(items.size())
+                        .selectedItems(selected.size())
+                        .totalQuantity(items.stream().mapToInt(CartItemResponse::getQuantity).sum())
+                        .selectedQuantity(selected.stream().mapToInt(CartItemResponse::getQuantity).sum())
+                        .totalAmount(sumSubtotals(items))
+                        .selectedAmount(sumSubtotals(selected))
+                        .build())
+                .build();
+    }
+
+    private static BigDecimal sumSubtotals(List<CartItemResponse> items) {
+        return items.stream()
+                .map(CartItemResponse::getSubtotal)
+                .filter(Objects::nonNull)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static String ownerKey(UUID userId, String sessionId) {
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        if (sessionId != null && !sessionId.isEmpty()) {
+            return "session:" + sessionId;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,399 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.product.request.ProductBrowseRequest;
+import com.qm.bookstore.qm_bookstore.dto.product.response.FacetCount;
+import com.qm.bookstore.qm_bookstore.dto.product.response.ProductBrowseResponse;
+import com.qm.bookstore.qm_bookstore.dto.product.response.ProductResponse;
+import com.qm.bookstore.qm_bookstore.mapper.ProductMapper;
+import com.qm.bookstore.qm_bookstore.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục catalog trong bộ nhớ cho trang duyệt sản phẩm (filter sidebar).
+ *
+ * Mỗi product chiếm một slot; mỗi giá trị lọc (category, brand, khoảng giá, availability, còn hàng) là một BitSet
+ * các slot. Lọc = AND / OR các BitSet, số đếm facet = cardinality của phép giao - không truy vấn DB.
+ * Số đếm của một facet tính theo bộ lọc của các facet KHÁC (chọn thêm giá trị trong cùng nhóm -> OR).
+ *
+ * Đồng bộ: ProductService gọi upsert / remove sau commit; tồn kho (thay đổi qua phiếu kho, checkout...)
+ * được làm mới định kỳ bằng một query nhẹ; toàn bộ chỉ mục được dựng lại định kỳ (thay đổi từ instance khác).
+ * Object trong slot không bao giờ lộ ra ngoài: upsert lưu bản sao, browse trả về bản sao
+ * (refreshStock sửa object trong slot dưới write lock trong khi response cũ có thể đang được serialize).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogIndex {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+
+    // Cận dưới của các khoảng giá (VND), khoảng cuối không có cận trên
+    @Value("${catalog.price-bands:0,50000,100000,200000,500000}")
+    private List<BigDecimal> priceBandBounds;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile State state;
+
+    /**
+     * Dữ liệu chỉ mục (chỉ đọc / ghi dưới lock)
+     */
+    private static final class State {
+        final List<ProductResponse> slots = new ArrayList<>();
+        final Map<Long, Integer> slotById = new HashMap<>();
+        final Deque<Integer> freeSlots = new ArrayDeque<>();
+        final BitSet live = new BitSet();
+        final BitSet available = new BitSet();
+        final BitSet inStock = new BitSet();
+        final Map<Long, BitSet> byCategory = new HashMap<>();
+        final Map<Long, String> categoryNames = new HashMap<>();
+        final Map<String, BitSet> byBrand = new TreeMap<>();
+        final BitSet[] byPriceBand;
+
+        State(int priceBands) {
+            byPriceBand = new BitSet[priceBands];
+            for (int i = 0; i < priceBands; i++) {
+                byPriceBand[i] = new BitSet();
+            }
+        }
+    }
+
+    /**
+     * Duyệt catalog: trang product + số đếm facet category / brand / khoảng giá
+     */
+    public ProductBrowseResponse browse(ProductBrowseRequest request) {
+        State current = ensureLoaded();
+        lock.readLock().lock();
+        try {
+            // Bộ lọc chung (không phải facet)
+            BitSet base = (BitSet) current.live.clone();
+            if (request.getAvailability() != null) {
+                if (request.getAvailability()) {
+                    base.and(current.available);
+                } else {
+                    base.andNot(current.available);
+                }
+            }
+            if (Boolean.TRUE.equals(request.getInStock())) {
+                base.and(current.inStock);
+            }
+
+            // Bộ lọc theo từng facet (null = không lọc)
+            BitSet categoryFilter = union(request.getCategoryIds(), current.byCategory::get);
+            BitSet brandFilter = union(request.getBrands(), brand -> current.byBrand.get(brandKey(brand)));
+            BitSet priceFilter = union(request.getPriceBands(),
+                    band -> band != null && band >= 0 && band < current.byPriceBand.length
+                            ? current.byPriceBand[band] : null);
+
+            BitSet matched = intersect(base, categoryFilter, brandFilter, priceFilter);
+
+            // Facet category: áp dụng filter brand + giá, bỏ qua filter category
+            BitSet forCategories = intersect(base, brandFilter, priceFilter);
+            List<FacetCount> categories = current.byCategory.entrySet().stream()
+                    .map(entry -> FacetCount.builder()
+                            .value(String.valueOf(entry.getKey()))
+                            .label(current.categoryNames.get(entry.getKey()))
+                            .count(countAnd(forCategories, entry.getValue()))
+                            .build())
+                    .filter(facet -> facet.getCount() > 0)
+                    .sorted(Comparator.comparing(FacetCount::getLabel, Comparator.nullsLast(String::compareTo)))
+                    .collect(Collectors.toList());
+
+            BitSet forBrands = intersect(base, categoryFilter, priceFilter);
+            List<FacetCount> brands = current.byBrand.entrySet().stream()
+                    .map(entry -> FacetCount.builder()
+                            .value(entry.getKey())
+                            .label(entry.getKey())
+                            .count(countAnd(forBrands, entry.getValue()))
+                            .build())
+                    .filter(facet -> facet.getCount() > 0)
+                    .collect(Collectors.toList());
+
+            BitSet forPrices = intersect(base, categoryFilter, brandFilter);
+            List<FacetCount> priceBands = new ArrayList<>();
+            for (int i = 0; i < current.byPriceBand.length; i++) {
+                priceBands.add(FacetCount.builder()
+                        .value(String.valueOf(i))
+                        .label(priceBandLabel(i))
+                        .count(countAnd(forPrices, current.byPriceBand[i]))
+                        .build());
+            }
+
+            // Trang kết quả
+            List<ProductResponse> page = matched.stream()
+                    .mapToObj(current.slots::get)
+                    .sorted(comparator(request.getSortBy(), request.getSortDirection()))
+                    .skip(request.getSkipCount())
+                    .limit(request.getMaxResultCount())
+                    .map(productMapper::copyProductResponse)
+                    .collect(Collectors.toList());
+
+            return ProductBrowseResponse.builder()
+                    .data(page)
+                    .totalRecords(matched.cardinality())
+                    .categories(categories)
+                    .brands(brands)
+                    .priceBands(priceBands)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Thêm / cập nhật product trong chỉ mục (sau khi transaction hiện tại commit)
+     */
+    public void upsert(ProductResponse response) {
+        // Bản sao: response gốc được trả cho client, không dùng chung với chỉ mục
+        ProductResponse product = productMapper.copyProductResponse(response);
+        TransactionHooks.afterCommit(() -> {
+            if (state == null) {
+                return; // chưa dựng - lần dùng đầu sẽ nạp từ DB
+            }
+            lock.writeLock().lock();
+            try {
+                put(state, product);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Xóa product khỏi chỉ mục (sau khi transaction hiện tại commit)
+     */
+    public void remove(Long productId) {
+        TransactionHooks.afterCommit(() -> {
+            if (state == null) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                clear(state, productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Job định kỳ: làm mới tồn kho / availability (mặc định mỗi 10 giây)
+     */
+    @Scheduled(fixedDelayString = "${catalog.index.stock-refresh-interval-ms:10000}")
+    public void refreshStock() {
+        State current = state;
+        if (current == null) {
+            return;
+        }
+        List<Object[]> rows = productRepository.findStockSnapshot();
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                Integer slot = current.slotById.get(((Number) row[0]).longValue());
+                if (slot == null) {
+                    continue;
+                }
+                ProductResponse product = current.slots.get(slot);
+                product.setStockQuantity((Integer) row[1]);
+                product.setAvailability((Boolean) row[2]);
+                current.inStock.set(slot, isInStock(product));
+                current.available.set(slot, Boolean.TRUE.equals(product.getAvailability()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Job định kỳ: dựng lại toàn bộ chỉ mục (mặc định mỗi 5 phút)
+     */
+    @Scheduled(fixedDelayString = "${catalog.index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        if (state == null) {
+            return;
+        }
+        State rebuilt = load();
+        lock.writeLock().lock();
+        try {
+            state = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Helper methods
+
+    private State ensureLoaded() {
+        State current = state;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (state == null) {
+                state = load();
+            }
+            return state;
+        }
+    }
+
+    private State load() {
+        State loaded = new State(priceBandBounds.size());
+        productRepository.findAllWithCategory().stream()
+                .map(productMapper::toProductResponse)
+                .forEach(product -> put(loaded, product));
+        log.info("[load] Catalog index built with {} products", loaded.slotById.size());
+        return loaded;
+    }
+
+    private void put(State current, ProductResponse product) {
+        clear(current, product.getId());
+
+        Integer slot = current.freeSlots.poll();
+        if (slot == null) {
+            slot = current.slots.size();
+            current.slots.add(product);
+        } else {
+            current.slots.set(slot, product);
+        }
+        current.slotById.put(product.getId(), slot);
+
+        current.live.set(slot);
+        current.available.set(slot, Boolean.TRUE.equals(product.getAvailability()));
+        current.inStock.set(slot, isInStock(product));
+        if (product.getCategoryId() != null) {
+            current.byCategory.computeIfAbsent(product.getCategoryId(), id -> new BitSet()).set(slot);
+            current.categoryNames.put(product.getCategoryId(), product.getCategoryName());
+        }
+        String brand = brandKey(product.getBrand());
+        if (brand != null) {
+            current.byBrand.computeIfAbsent(brand, key -> new BitSet()).set(slot);
+        }
+        int band = priceBand(product.getPrice());
+        if (band >= 0) {
+            current.byPriceBand[band].set(slot);
+        }
+    }
+
+    private void clear(State current, Long productId) {
+        Integer slot = current.slotById.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        ProductResponse old = current.slots.set(slot, null);
+        current.freeSlots.push(slot);
+
+        current.live.clear(slot);
+        current.available.clear(slot);
+        current.inStock.clear(slot);
+        if (old.getCategoryId() != null) {
+            removeBit(current.byCategory, old.getCategoryId(), slot);
+        }
+        String brand = brandKey(old.getBrand());
+        if (brand != null) {
+            removeBit(current.byBrand, brand, slot);
+        }
+        int band = priceBand(old.getPrice());
+        if (band >= 0) {
+            current.byPriceBand[band].clear(slot);
+        }
+    }
+
+    private static <K> void removeBit(Map<K, BitSet> index, K key, int slot) {
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <T> BitSet union(Collection<T> values, Function<T, BitSet> lookup) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        values.stream().map(lookup).filter(Objects::nonNull).forEach(result::or);
+        return result;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static long countAnd(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result.cardinality();
+    }
+
+    private static boolean isInStock(ProductResponse product) {
+        return product.getStockQuantity() != null && product.getStockQuantity() > 0;
+    }
+
+    private static String brandKey(String brand) {
+        return brand == null || brand.isBlank() ? null : brand.trim();
+    }
+
+    private int priceBand(BigDecimal price) {
+        if (price == null) {
+            return -1;
+        }
+        for (int i = priceBandBounds.size() - 1; i >= 0; i--) {
+            if (price.compareTo(priceBandBounds.get(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String priceBandLabel(int band) {
+        String from = priceBandBounds.get(band).toPlainString();
+        return band + 1 < priceBandBounds.size()
+                ? from + " - " + priceBandBounds.get(band + 1).toPlainString()
+                : from + "+";
+    }
+
+    private static Comparator<ProductResponse> comparator(String sortBy, String sortDirection) {
+        Comparator<ProductResponse> comparator;
+        if ("price".equals(sortBy)) {
+            comparator = Comparator.comparing(ProductResponse::getPrice, Comparator.nullsLast(BigDecimal::compareTo));
+        } else if ("name".equals(sortBy)) {
+            comparator = Comparator.comparing(ProductResponse::getName, Comparator.nullsLast(String::compareToIgnoreCase));
+        } else if ("createdAt".equals(sortBy)) {
+            comparator = Comparator.comparing(ProductResponse::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()));
+        } else if ("stockQuantity".equals(sortBy)) {
+            comparator = Comparator.comparing(ProductResponse::getStockQuantity, Comparator.nullsLast(Integer::compareTo));
+        } else {
+            comparator = Comparator.comparing(ProductResponse::getId);
+        }
+        comparator = "desc".equalsIgnoreCase(sortDirection) ? comparator.reversed() : comparator;
+        return comparator.thenComparing(ProductResponse::getId);
+    }
+}
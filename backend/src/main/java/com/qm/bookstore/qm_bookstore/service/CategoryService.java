@@ -2,49 +2,76 @@ package com.qm.bookstore.qm_bookstore.service;
 
 import com.qm.bookstore.qm_bookstore.dto.category.*;
 import com.qm.bookstore.qm_bookstore.entity.Category;
+import com.qm.bookstore.qm_bookstore.entity.CategoryClosure;
+import com.qm.bookstore.qm_bookstore.repository.CategoryClosureRepository;
 import com.qm.bookstore.qm_bookstore.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.Normalizer;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final CategorySnapshotHolder categorySnapshotHolder;
+
+    /**
+     * Khởi động: dựng lại closure table nếu chưa đủ (lần đầu triển khai hoặc dữ liệu category sửa tay)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void ensureClosure() {
+        long categories = categoryRepository.count();
+        if (categoryClosureRepository.countNodes() == categories) {
+            return;
+        }
+        categoryClosureRepository.lockHierarchy();
+        categoryClosureRepository.deleteAllRows();
+        int rows = categoryClosureRepository.rebuildAll();
+        log.info("[ensureClosure] Rebuilt category closure: {} categories, {} rows", categories, rows);
+    }
 
     /**
      * Get category tree structure (recursive hierarchy)
      * Only returns id, name, slug, children
      * For public/customer use - only active categories
      */
-    @Transactional(readOnly = true)
     public List<CategoryTreeDTO> getCategoryTree() {
-        // Fetch all active categories
-        List<Category> allCategories = categoryRepository.findByStatusTrueOrderByIdAsc();
-
-        // Build tree from flat list
-        return buildTree(allCategories);
+        return categorySnapshotHolder.current().publicTree();
     }
 
     /**
      * Get category tree structure for ADMIN (includes inactive categories)
      * Returns all categories regardless of status
      */
-    @Transactional(readOnly = true)
     public List<CategoryTreeDTO> getAdminCategoryTree() {
-        // Fetch ALL categories (including inactive)
-        List<Category> allCategories = categoryRepository.findAllByOrderByIdAsc();
+        return categorySnapshotHolder.current().adminTree();
+    }
 
-        // Build tree from flat list (reuse existing buildTree method)
-        return buildTree(allCategories);
+    /**
+     * Snapshot hiện tại của cây category (cây + tra cứu + version cho ETag)
+     */
+    public CategorySnapshot getSnapshot() {
+        return categorySnapshotHolder.current();
     }
 
     /**
@@ -52,80 +79,31 @@ public class CategoryService {
      * 
      * @param parentId - null for root categories, specific ID for children
      */
-    @Transactional(readOnly = true)
     public List<CategoryDTO> getCategoriesByParent(Long parentId) {
-        List<Category> categories;
-
-        if (parentId == null) {
-            // Get root categories
-            categories = categoryRepository.findByParentIdIsNullAndStatusTrueOrderByIdAsc();
-        } else {
-            // Get direct children
-            categories = categoryRepository.findByParentIdAndStatusTrueOrderByIdAsc(parentId);
-        }
-
-        return categories.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return categorySnapshotHolder.current().activeByParent()
+                .getOrDefault(parentId != null ? parentId : CategorySnapshot.ROOT_PARENT, List.of());
     }
 
     /**
-     * Build hierarchical tree from flat list of categories
+     * Đường dẫn từ root đến category (breadcrumb)
      */
-    private List<CategoryTreeDTO> buildTree(List<Category> categories) {
-        // Create a map for quick lookup
-        Map<Long, CategoryTreeDTO> categoryMap = categories.stream()
-                .collect(Collectors.toMap(
-                        Category::getId,
-                        this::convertToTreeDTO));
-
-        List<CategoryTreeDTO> roots = new ArrayList<>();
-
-        // Build the tree structure
-        for (Category category : categories) {
-            CategoryTreeDTO dto = categoryMap.get(category.getId());
-
-            if (category.getParentId() == null) {
-                // Root category
-                roots.add(dto);
-            } else {
-                // Child category - add to parent
-                CategoryTreeDTO parent = categoryMap.get(category.getParentId());
-                if (parent != null) {
-                    parent.getChildren().add(dto);
-                }
-            }
+    public List<CategoryDTO> getCategoryPath(Long id) {
+        List<CategoryDTO> path = categorySnapshotHolder.current().pathById().get(id);
+        if (path == null) {
+            throw new RuntimeException("Category not found with id: " + id);
         }
-
-        return roots;
+        return path;
     }
 
     /**
-     * Convert Category entity to CategoryTreeDTO (for tree structure)
+     * Số product theo cây con (category + mọi category con cháu) của từng category - 1 query
      */
-    private CategoryTreeDTO convertToTreeDTO(Category category) {
-        return CategoryTreeDTO.builder()
-                .id(category.getId())
-                .name(category.getName())
-                .slug(category.getSlug())
-                .description(category.getDescription())
-                .status(category.getStatus())
-                .children(new ArrayList<>())
-                .build();
-    }
-
-    /**
-     * Convert Category entity to CategoryDTO (for flat list)
-     */
-    private CategoryDTO convertToDTO(Category category) {
-        return CategoryDTO.builder()
-                .id(category.getId())
-                .name(category.getName())
-                .slug(category.getSlug())
-                .description(category.getDescription())
-                .parentId(category.getParentId())
-                .status(category.getStatus())
-                .build();
+    public Map<Long, Long> getSubtreeProductCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : categoryClosureRepository.countProductsBySubtree()) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
     }
 
     /**
@@ -147,34 +125,32 @@ public class CategoryService {
     /**
      * Get all categories (for admin/management)
      */
-    @Transactional(readOnly = true)
     public List<CategoryDTO> getAllCategories() {
-        return categoryRepository.findByStatusTrueOrderByIdAsc()
-                .stream()
-                .map(this::convertToDTO)
+        return categorySnapshotHolder.current().byId().values().stream()
+                .filter(category -> Boolean.TRUE.equals(category.getStatus()))
                 .collect(Collectors.toList());
     }
 
     /**
      * Get single category by ID
      */
-    @Transactional(readOnly = true)
     public CategoryDTO getCategoryById(Long id) {
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
-        return convertToDTO(category);
+        CategoryDTO category = categorySnapshotHolder.current().byId().get(id);
+        if (category == null) {
+            throw new RuntimeException("Category not found with id: " + id);
+        }
+        return category;
     }
 
     /**
      * Get category by slug
      */
-    @Transactional(readOnly = true)
     public CategoryDTO getCategoryBySlug(String slug) {
-        Category category = categoryRepository.findBySlug(slug);
+        CategoryDTO category = categorySnapshotHolder.current().bySlug().get(slug);
         if (category == null) {
             throw new RuntimeException("Category not found with slug: " + slug);
         }
-        return convertToDTO(category);
+        return category;
     }
 
     // ========== ADMIN CRUD OPERATIONS ==========
@@ -215,7 +191,10 @@ public class CategoryService {
         category.setParentId(request.getParentId());
         category.setStatus(request.getStatus() != null ? request.getStatus() : true);
 
+        categoryClosureRepository.lockHierarchy();
         Category saved = categoryRepository.save(category);
+        categoryClosureRepository.insertNode(saved.getId(), saved.getParentId());
+        categorySnapshotHolder.invalidate();
         return convertToDetailDTO(saved);
     }
 
@@ -260,8 +239,8 @@ public class CategoryService {
             }
 
             // Check if new parent is a descendant
-            List<Long> descendants = categoryRepository.findAllDescendantIds(id);
-            if (descendants.contains(request.getParentId())) {
+            categoryClosureRepository.lockHierarchy();
+            if (categoryClosureRepository.existsByAncestorIdAndDescendantId(id, request.getParentId())) {
                 throw new RuntimeException("Cannot set parent to itself or its descendants");
             }
 
@@ -270,6 +249,9 @@ public class CategoryService {
                 throw new RuntimeException("Parent category not found with id: " + request.getParentId());
             }
 
+            if (!request.getParentId().equals(category.getParentId())) {
+                relink(List.of(id), request.getParentId());
+            }
             category.setParentId(request.getParentId());
         }
 
@@ -279,6 +261,7 @@ public class CategoryService {
         }
 
         Category updated = categoryRepository.save(category);
+        categorySnapshotHolder.invalidate();
         return convertToDetailDTO(updated);
     }
 
@@ -298,21 +281,19 @@ public class CategoryService {
         }
 
         List<Long> deletedIds = new ArrayList<>();
+        categoryClosureRepository.lockHierarchy();
 
         if (force != null && force && childrenCount > 0) {
             // Get all descendants
-            List<Long> descendantIds = categoryRepository.findAllDescendantIds(id);
+            List<Long> descendantIds = categoryClosureRepository.findDescendantIds(id);
             descendantIds.add(id);
 
-            // Check if any descendant has products
-            for (Long descendantId : descendantIds) {
-                long productCount = categoryRepository.countProductsByCategoryId(descendantId);
-                if (productCount > 0) {
-                    Category cat = categoryRepository.findById(descendantId).orElse(null);
-                    String name = cat != null ? cat.getName() : "Unknown";
-                    throw new RuntimeException("Cannot delete category tree because category '" + name + "' (id: "
-                            + descendantId + ") has " + productCount + " products");
-                }
+            // Check if any descendant has products (1 query cho cả cây con)
+            List<Object[]> productCounts = categoryClosureRepository.countProductsBySubtreeNode(id);
+            if (!productCounts.isEmpty()) {
+                Object[] first = productCounts.get(0);
+                throw new RuntimeException("Cannot delete category tree because category '" + first[1] + "' (id: "
+                        + first[0] + ") has " + first[2] + " products");
             }
 
             // Delete all descendants and the category
@@ -331,6 +312,9 @@ public class CategoryService {
             deletedIds.add(id);
         }
 
+        categoryClosureRepository.deleteNodes(deletedIds);
+        categorySnapshotHolder.invalidate();
+
         return DeleteResult.builder()
                 .deletedCount(deletedIds.size())
                 .deletedIds(deletedIds)
@@ -347,6 +331,7 @@ public class CategoryService {
 
         category.setStatus(!category.getStatus());
         Category updated = categoryRepository.save(category);
+        categorySnapshotHolder.invalidate();
 
         return convertToDetailDTO(updated);
     }
@@ -358,6 +343,7 @@ public class CategoryService {
     public CategoryDetailDTO moveCategory(Long id, Long newParentId) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
+        categoryClosureRepository.lockHierarchy();
 
         // Validate newParent exists if not null
         if (newParentId != null) {
@@ -367,8 +353,7 @@ public class CategoryService {
             }
 
             // Check if new parent is a descendant
-            List<Long> descendants = categoryRepository.findAllDescendantIds(id);
-            if (descendants.contains(newParentId)) {
+            if (categoryClosureRepository.existsByAncestorIdAndDescendantId(id, newParentId)) {
                 throw new RuntimeException("Cannot move category into itself or its descendants");
             }
 
@@ -378,42 +363,212 @@ public class CategoryService {
             }
         }
 
+        if (!Objects.equals(newParentId, category.getParentId())) {
+            relink(List.of(id), newParentId);
+        }
         category.setParentId(newParentId);
         Category updated = categoryRepository.save(category);
+        categorySnapshotHolder.invalidate();
 
         return convertToDetailDTO(updated);
     }
 
     /**
-     * Bulk delete categories
+     * Bulk delete categories (set-based).
+     * Cây con của mọi category được tính trong 1 query closure, số product trong 1 query gộp,
+     * rồi xóa bằng 1 câu DELETE. Không có force: category có con vẫn xóa được nếu toàn bộ cây con cùng nằm trong danh sách
      */
     @Transactional
     public BulkDeleteResult bulkDeleteCategories(List<Long> categoryIds, Boolean force) {
+        List<Long> requested = categoryIds.stream().distinct().collect(Collectors.toList());
+        Set<Long> requestedSet = new HashSet<>(requested);
+        boolean forced = Boolean.TRUE.equals(force);
+
+        categoryClosureRepository.lockHierarchy();
+        Map<Long, Category> categories = findCategories(requested);
+
+        // Cây con của từng category (kể cả chính nó)
+        Map<Long, List<Long>> subtrees = new HashMap<>();
+        if (!categories.isEmpty()) {
+            for (CategoryClosure row : categoryClosureRepository.findSubtreeRows(categories.keySet())) {
+                subtrees.computeIfAbsent(row.getAncestorId(), key -> new ArrayList<>()).add(row.getDescendantId());
+            }
+        }
+
+        // categoryId -> (id, tên, số product) cho mọi category bị ảnh hưởng có product
+        Set<Long> affected = subtrees.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        Map<Long, Object[]> productCounts = new HashMap<>();
+        if (!affected.isEmpty()) {
+            for (Object[] row : categoryRepository.countProductsByCategoryIds(affected)) {
+                productCounts.put(((Number) row[0]).longValue(), row);
+            }
+        }
+
         List<BulkDeleteResult.FailedDelete> failed = new ArrayList<>();
-        List<Long> successfullyDeleted = new ArrayList<>();
-
-        for (Long id : categoryIds) {
-            try {
-                DeleteResult result = deleteCategory(id, force);
-                successfullyDeleted.addAll(result.getDeletedIds());
-            } catch (Exception e) {
-                Category category = categoryRepository.findById(id).orElse(null);
-                String name = category != null ? category.getName() : "Unknown";
-
-                failed.add(BulkDeleteResult.FailedDelete.builder()
-                        .id(id)
-                        .name(name)
-                        .reason(e.getMessage())
-                        .build());
+        Set<Long> deletedIds = new LinkedHashSet<>();
+        for (Long id : requested) {
+            Category category = categories.get(id);
+            if (category == null) {
+                failed.add(deleteFailure(id, "Unknown", "Category not found with id: " + id));
+                continue;
+            }
+            List<Long> subtree = subtrees.getOrDefault(id, List.of(id));
+            String reason = deleteBlocker(id, subtree, forced, requestedSet, productCounts);
+            if (reason != null) {
+                failed.add(deleteFailure(id, category.getName(), reason));
+            } else {
+                deletedIds.addAll(subtree);
             }
         }
 
+        if (!deletedIds.isEmpty()) {
+            categoryClosureRepository.deleteNodes(deletedIds);
+            categoryRepository.deleteAllByIdInBatch(deletedIds);
+            categorySnapshotHolder.invalidate();
+        }
+
         return BulkDeleteResult.builder()
-                .deletedCount(successfullyDeleted.size())
+                .deletedCount(deletedIds.size())
+                .deletedIds(new ArrayList<>(deletedIds))
+                .failed(failed)
+                .build();
+    }
+
+    /**
+     * Bulk status: đặt status cho các category (status = null: đảo trạng thái từng category) - 1 câu UPDATE
+     */
+    @Transactional
+    public BulkUpdateResult bulkUpdateStatus(List<Long> categoryIds, Boolean status) {
+        List<Long> requested = categoryIds.stream().distinct().collect(Collectors.toList());
+        Map<Long, Category> categories = findCategories(requested);
+
+        List<BulkUpdateResult.FailedUpdate> failed = new ArrayList<>();
+        List<Long> updatedIds = new ArrayList<>();
+        for (Long id : requested) {
+            if (categories.containsKey(id)) {
+                updatedIds.add(id);
+            } else {
+                failed.add(updateFailure(id, "Unknown", "Category not found with id: " + id));
+            }
+        }
+
+        if (!updatedIds.isEmpty()) {
+            if (status == null) {
+                categoryRepository.toggleStatus(updatedIds, LocalDateTime.now());
+            } else {
+                categoryRepository.updateStatus(updatedIds, status, LocalDateTime.now());
+            }
+            categorySnapshotHolder.invalidate();
+        }
+
+        return BulkUpdateResult.builder()
+                .updatedCount(updatedIds.size())
+                .updatedIds(updatedIds)
+                .failed(failed)
+                .build();
+    }
+
+    /**
+     * Bulk move: chuyển các category sang cùng một parent mới (null: thành root).
+     * Kiểm tra vòng lặp bằng 1 query closure; closure table và parent_id được cập nhật theo lô
+     */
+    @Transactional
+    public BulkUpdateResult bulkMoveCategories(List<Long> categoryIds, Long newParentId) {
+        if (newParentId != null && !categoryRepository.existsById(newParentId)) {
+            throw new RuntimeException("Parent category not found with id: " + newParentId);
+        }
+
+        List<Long> requested = categoryIds.stream().distinct().collect(Collectors.toList());
+        categoryClosureRepository.lockHierarchy();
+        Map<Long, Category> categories = findCategories(requested);
+
+        // Category chứa parent mới trong cây con của nó (kể cả chính nó) không thể di chuyển
+        Set<Long> cyclic = newParentId == null || categories.isEmpty()
+                ? Set.of()
+                : new HashSet<>(categoryClosureRepository.findAncestorIdsAmong(categories.keySet(), newParentId));
+
+        List<BulkUpdateResult.FailedUpdate> failed = new ArrayList<>();
+        List<Long> updatedIds = new ArrayList<>();
+        List<Long> movedIds = new ArrayList<>();
+        for (Long id : requested) {
+            Category category = categories.get(id);
+            if (category == null) {
+                failed.add(updateFailure(id, "Unknown", "Category not found with id: " + id));
+            } else if (cyclic.contains(id)) {
+                failed.add(updateFailure(id, category.getName(), "Cannot move category into itself or its descendants"));
+            } else {
+                updatedIds.add(id);
+                if (!Objects.equals(newParentId, category.getParentId())) {
+                    movedIds.add(id);
+                }
+            }
+        }
+
+        if (!movedIds.isEmpty()) {
+            relink(movedIds, newParentId);
+            categoryRepository.updateParent(movedIds, newParentId, LocalDateTime.now());
+            categorySnapshotHolder.invalidate();
+        }
+
+        return BulkUpdateResult.builder()
+                .updatedCount(updatedIds.size())
+                .updatedIds(updatedIds)
                 .failed(failed)
                 .build();
     }
 
+    /**
+     * Chuyển cả cây con của các category sang parent mới trong closure table (newParentId = null: thành root)
+     */
+    private void relink(Collection<Long> ids, Long newParentId) {
+        categoryClosureRepository.detachSubtrees(ids);
+        if (newParentId != null) {
+            categoryClosureRepository.attachSubtrees(ids, newParentId);
+        }
+    }
+
+    private Map<Long, Category> findCategories(List<Long> ids) {
+        return categoryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Category::getId, category -> category));
+    }
+
+    /**
+     * Lý do không xóa được cây con của category (null: xóa được)
+     */
+    private String deleteBlocker(Long id, List<Long> subtree, boolean force, Set<Long> requested,
+                                 Map<Long, Object[]> productCounts) {
+        if (!force && !requested.containsAll(subtree)) {
+            return "Cannot delete category with children. Use force=true to delete all children.";
+        }
+        if (productCounts.containsKey(id)) {
+            return "Cannot delete category with products. Please reassign or delete products first.";
+        }
+        for (Long descendantId : subtree) {
+            Object[] count = productCounts.get(descendantId);
+            if (count != null) {
+                return "Cannot delete category tree because category '" + count[1] + "' (id: "
+                        + count[0] + ") has " + count[2] + " products";
+            }
+        }
+        return null;
+    }
+
+    private BulkDeleteResult.FailedDelete deleteFailure(Long id, String name, String reason) {
+        return BulkDeleteResult.FailedDelete.builder()
+                .id(id)
+                .name(name)
+                .reason(reason)
+                .build();
+    }
+
+    private BulkUpdateResult.FailedUpdate updateFailure(Long id, String name, String reason) {
+        return BulkUpdateResult.FailedUpdate.builder()
+                .id(id)
+                .name(name)
+                .reason(reason)
+                .build();
+    }
+
     /**
      * Generate slug from name (Vietnamese support)
      */
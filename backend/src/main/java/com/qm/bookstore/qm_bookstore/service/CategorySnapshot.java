@@ -0,0 +1,37 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.category.CategoryDTO;
+import com.qm.bookstore.qm_bookstore.dto.category.CategoryTreeDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ảnh chụp bất biến của toàn bộ cây category tại một phiên bản.
+ *
+ * @param version          hash nội dung (giống nhau giữa các instance cho cùng dữ liệu) - dùng làm ETag
+ * @param publicTree       cây chỉ gồm category active (category con của category inactive bị ẩn)
+ * @param adminTree        cây đầy đủ (kể cả inactive)
+ * @param byId             id -> category
+ * @param bySlug           slug -> category
+ * @param activeByParent   parentId -> category con active theo id tăng dần (root: key 0)
+ * @param pathById         id -> đường dẫn từ root đến category (breadcrumb)
+ */
+public record CategorySnapshot(
+        String version,
+        List<CategoryTreeDTO> publicTree,
+        List<CategoryTreeDTO> adminTree,
+        Map<Long, CategoryDTO> byId,
+        Map<String, CategoryDTO> bySlug,
+        Map<Long, List<CategoryDTO>> activeByParent,
+        Map<Long, List<CategoryDTO>> pathById) {
+
+    public static final long ROOT_PARENT = 0L;
+
+    /**
+     * ETag (strong) cho phản hồi dựng từ snapshot này
+     */
+    public String etag() {
+        return "\"" + version + "\"";
+    }
+}
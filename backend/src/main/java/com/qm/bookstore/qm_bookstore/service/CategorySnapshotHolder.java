@@ -0,0 +1,221 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.category.CategoryDTO;
+import com.qm.bookstore.qm_bookstore.dto.category.CategoryTreeDTO;
+import com.qm.bookstore.qm_bookstore.entity.Category;
+import com.qm.bookstore.qm_bookstore.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ CategorySnapshot hiện tại (đọc không khóa, không truy vấn DB).
+ *
+ * Mọi thay đổi category gọi invalidate(): sau commit, snapshot mới được dựng từ 1 query và thay thế nguyên tử
+ * (mỗi transaction dựng lại đúng một lần). Job định kỳ so sánh hash nội dung để nhận thay đổi từ instance khác.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategorySnapshotHolder {
+
+    private static final Object REBUILD_KEY = new Object();
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile CategorySnapshot snapshot;
+
+    /**
+     * Snapshot hiện tại (dựng lần đầu khi cần)
+     */
+    public CategorySnapshot current() {
+        CategorySnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = build(categoryRepository.findAllByOrderByIdAsc());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Dựng lại snapshot sau khi transaction hiện tại commit
+     */
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(REBUILD_KEY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(REBUILD_KEY, Boolean.TRUE);
+        TransactionHooks.afterCompletion(committed -> {
+            TransactionSynchronizationManager.unbindResourceIfPossible(REBUILD_KEY);
+            if (committed) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * Job định kỳ: nhận thay đổi category từ instance khác (chỉ thay snapshot khi nội dung đổi)
+     */
+    @Scheduled(fixedDelayString = "${category.snapshot.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (snapshot != null) {
+            rebuild();
+        }
+    }
+
+    // Helper methods
+
+    private synchronized void rebuild() {
+        try {
+            CategorySnapshot rebuilt = build(categoryRepository.findAllByOrderByIdAsc());
+            CategorySnapshot previous = snapshot;
+            if (previous == null || !previous.version().equals(rebuilt.version())) {
+                snapshot = rebuilt;
+                log.debug("[rebuild] Category snapshot {} -> {}",
+                        previous != null ? previous.version() : null, rebuilt.version());
+            }
+        } catch (RuntimeException e) {
+            // Không giữ snapshot cũ đã biết là lỗi thời - lần đọc sau sẽ dựng lại
+            snapshot = null;
+            log.error("[rebuild] Failed to rebuild category snapshot: {}", e.getMessage());
+        }
+    }
+
+    private CategorySnapshot build(List<Category> categories) {
+        Map<Long, CategoryDTO> byId = new LinkedHashMap<>();
+        Map<String, CategoryDTO> bySlug = new HashMap<>();
+        Map<Long, List<CategoryDTO>> activeByParent = new HashMap<>();
+        for (Category category : categories) {
+            CategoryDTO dto = convertToDTO(category);
+            byId.put(dto.getId(), dto);
+            if (dto.getSlug() != null) {
+                bySlug.put(dto.getSlug(), dto);
+            }
+            if (Boolean.TRUE.equals(dto.getStatus())) {
+                activeByParent.computeIfAbsent(
+                        dto.getParentId() != null ? dto.getParentId() : CategorySnapshot.ROOT_PARENT,
+                        key -> new ArrayList<>()).add(dto);
+            }
+        }
+
+        Map<Long, List<CategoryDTO>> pathById = new HashMap<>();
+        for (CategoryDTO dto : byId.values()) {
+            pathById.put(dto.getId(), pathOf(dto, byId));
+        }
+
+        List<Category> active = categories.stream()
+                .filter(category -> Boolean.TRUE.equals(category.getStatus()))
+                .collect(Collectors.toList());
+
+        return new CategorySnapshot(
+                versionOf(categories),
+                buildTree(active),
+                buildTree(categories),
+                Collections.unmodifiableMap(byId),
+                Map.copyOf(bySlug),
+                activeByParent.entrySet().stream()
+                        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue()))),
+                Map.copyOf(pathById));
+    }
+
+    /**
+     * Đường dẫn root -> category (dừng nếu gặp vòng lặp / parent không tồn tại)
+     */
+    private List<CategoryDTO> pathOf(CategoryDTO category, Map<Long, CategoryDTO> byId) {
+        List<CategoryDTO> path = new ArrayList<>();
+        CategoryDTO current = category;
+        while (current != null && path.size() <= byId.size() && !path.contains(current)) {
+            path.add(current);
+            current = current.getParentId() != null ? byId.get(current.getParentId()) : null;
+        }
+        Collections.reverse(path);
+        return List.copyOf(path);
+    }
+
+    /**
+     * Build hierarchical tree from flat list of categories (danh sách con bất biến)
+     */
+    private List<CategoryTreeDTO> buildTree(List<Category> categories) {
+        Map<Long, CategoryTreeDTO> categoryMap = categories.stream()
+                .collect(Collectors.toMap(Category::getId, this::convertToTreeDTO));
+
+        List<CategoryTreeDTO> roots = new ArrayList<>();
+        for (Category category : categories) {
+            CategoryTreeDTO dto = categoryMap.get(category.getId());
+            if (category.getParentId() == null) {
+                roots.add(dto);
+            } else {
+                CategoryTreeDTO parent = categoryMap.get(category.getParentId());
+                if (parent != null) {
+                    parent.getChildren().add(dto);
+                }
+            }
+        }
+
+        categoryMap.values().forEach(dto -> dto.setChildren(List.copyOf(dto.getChildren())));
+        return List.copyOf(roots);
+    }
+
+    /**
+     * Hash SHA-256 (16 ký tự hex đầu) trên toàn bộ dữ liệu category theo id
+     */
+    private String versionOf(List<Category> categories) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Category category : categories) {
+                String row = category.getId() + "\u0001" + category.getName() + "\u0001" + category.getSlug()
+                        + "\u0001" + category.getDescription() + "\u0001" + category.getParentId()
+                        + "\u0001" + category.getStatus() + "\u0001" + Objects.toString(category.getUpdatedAt()) + "\n";
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CategoryTreeDTO convertToTreeDTO(Category category) {
+        return CategoryTreeDTO.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .slug(category.getSlug())
+                .description(category.getDescription())
+                .status(category.getStatus())
+                .children(new ArrayList<>())
+                .build();
+    }
+
+    private CategoryDTO convertToDTO(Category category) {
+        return CategoryDTO.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .slug(category.getSlug())
+                .description(category.getDescription())
+                .parentId(category.getParentId())
+                .status(category.getStatus())
+                .build();
+    }
+}
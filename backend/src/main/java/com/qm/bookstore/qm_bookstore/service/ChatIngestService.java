@@ -0,0 +1,265 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.chat.ChatMessageDto;
+import com.qm.bookstore.qm_bookstore.dto.chat.ChatReceipt;
+import com.qm.bookstore.qm_bookstore.exception.AppException;
+import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pipeline lưu tin nhắn chat bất đồng bộ, theo lô (thay cho lưu đồng bộ trên luồng inbound của STOMP).
+ *
+ * - submit() gán clientId (nếu client chưa gửi), xếp tin nhắn vào hàng đợi và trả về ngay (ack)
+ * - tin nhắn được chia cho N worker theo hội thoại (customer): mỗi worker là một hàng đợi FIFO nên thứ tự trong
+ *   một hội thoại được giữ nguyên, các hội thoại khác worker được lưu song song
+ * - worker gom tối đa batch-size tin nhắn (chờ thêm tối đa linger-ms) và lưu cả lô trong 1 transaction
+ *   (ChatService.saveMessages); lô lỗi được lưu lại từng tin nhắn để một tin hỏng không kéo theo cả lô
+ * - sau khi lưu: receipt (clientId -> id) gửi tới người gửi qua /user/{senderId}/queue/chat-receipts
+ * - hàng đợi đầy: luồng gọi chờ tối đa offer-timeout-ms (backpressure); vẫn đầy hoặc pipeline đã dừng thì từ chối
+ *   (receipt "failed", client gửi lại) - không bao giờ lưu vượt trước tin nhắn đang xếp hàng của cùng hội thoại
+ * - graceful shutdown: ngừng nhận, lưu hết tin nhắn còn trong hàng đợi rồi mới dừng
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatIngestService implements SmartLifecycle {
+
+    private static final String RECEIPT_DESTINATION = "/queue/chat-receipts";
+
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.ingest.workers:2}")
+    private int workerCount;
+
+    @Value("${chat.ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.ingest.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${chat.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.ingest.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    @Value("${chat.ingest.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private final List<Worker> workers = new ArrayList<>();
+    // submit giữ read lock khi kiểm tra running + xếp hàng; stop lấy write lock -> không tin nhắn nào vào hàng đợi sau khi dừng
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running = false;
+
+    /**
+     * Nhận tin nhắn để lưu. Future hoàn thành với tin nhắn đã lưu (có id) hoặc lỗi nếu lưu thất bại
+     */
+    public CompletableFuture<ChatMessageDto> submit(ChatMessageDto message) {
+        if (message.getClientId() == null || message.getClientId().isBlank()) {
+            message.setClientId(UUID.randomUUID().toString());
+        }
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(LocalDateTime.now());
+        }
+
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        boolean queued = false;
+        stateLock.readLock().lock();
+        try {
+            if (running) {
+                queued = workerFor(message).queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (!queued) {
+            log.warn("[submit] Ingest queue unavailable, rejecting message {}", message.getClientId());
+            reject(pending, new AppException(ErrorCode.CHAT_INGEST_BUSY));
+        }
+        return pending.result;
+    }
+
+    @Override
+    public void start() {
+        stateLock.writeLock().lock();
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = new Worker(new ArrayBlockingQueue<>(queueCapacity));
+                worker.thread = new Thread(() -> run(worker), "chat-ingest-" + i);
+                workers.add(worker);
+                worker.thread.start();
+            }
+            running = true;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        log.info("[start] Chat ingest started with {} workers (batch size {}, linger {} ms)",
+                workerCount, batchSize, lingerMs);
+    }
+
+    @Override
+    public void stop() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+
+        // Worker lưu hết hàng đợi rồi tự kết thúc
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!worker.queue.isEmpty()) {
+                log.error("[stop] {} chat messages still queued on {} after shutdown timeout",
+                        worker.queue.size(), worker.thread.getName());
+            }
+        }
+        workers.clear();
+        log.info("[stop] Chat ingest stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Dừng sau web server (WebServerGracefulShutdownLifecycle / WebServerStartStopLifecycle):
+     * request đang xử lý đã xếp hàng xong trước khi hàng đợi được xả
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // Helper methods
+
+    private void run(Worker worker) {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !worker.queue.isEmpty()) {
+            collect(worker.queue, batch);
+            if (!batch.isEmpty()) {
+                persist(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Gom tin nhắn: chờ tin đầu tiên (tối đa 100ms để kiểm tra lại trạng thái dừng), sau đó chờ thêm tối đa linger-ms
+    private void collect(BlockingQueue<Pending> queue, List<Pending> batch) {
+        try {
+            Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+            while (batch.size() < batchSize) {
+                queue.drainTo(batch, batchSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || remaining <= 0) {
+                    break;
+                }
+                Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            // Không dừng worker khi bị interrupt - hàng đợi vẫn phải được lưu hết
+            log.warn("[collect] Chat ingest worker interrupted, continuing until the queue is drained");
+        }
+    }
+
+    private void persist(List<Pending> batch) {
+        List<ChatMessageDto> saved;
+        try {
+            saved = chatService.saveMessages(batch.stream().map(Pending::message).toList());
+        } catch (Exception e) {
+            log.warn("[persist] Batch of {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::persistOne);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), saved.get(i));
+        }
+    }
+
+    private void persistOne(Pending pending) {
+        try {
+            ChatMessageDto saved = chatService.saveMessage(pending.message());
+            saved.setClientId(pending.message().getClientId());
+            complete(pending, saved);
+        } catch (Exception e) {
+            log.error("[persistOne] Failed to save chat message {}: {}", pending.message().getClientId(), e.getMessage());
+            reject(pending, e);
+        }
+    }
+
+    private void reject(Pending pending, Exception cause) {
+        sendReceipt(pending.message().getSenderId(), ChatReceipt.failed(pending.message().getClientId()));
+        pending.result().completeExceptionally(cause);
+    }
+
+    private void complete(Pending pending, ChatMessageDto saved) {
+        sendReceipt(saved.getSenderId(), ChatReceipt.persisted(saved));
+        pending.result().complete(saved);
+    }
+
+    private void sendReceipt(UUID senderId, ChatReceipt receipt) {
+        if (senderId == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(senderId.toString(), RECEIPT_DESTINATION, receipt);
+        } catch (Exception e) {
+            log.warn("[sendReceipt] Failed to send receipt {} to {}: {}", receipt.getClientId(), senderId, e.getMessage());
+        }
+    }
+
+    // Cùng hội thoại (customer) -> cùng worker
+    private Worker workerFor(ChatMessageDto message) {
+        UUID conversation = "user".equals(message.getSenderType()) || message.getReceiverId() == null
+                ? message.getSenderId()
+                : message.getReceiverId();
+        int hash = conversation != null ? conversation.hashCode() : 0;
+        return workers.get(Math.floorMod(hash, workers.size()));
+    }
+
+    private record Pending(ChatMessageDto message, CompletableFuture<ChatMessageDto> result) {
+    }
+
+    private static final class Worker {
+        private final BlockingQueue<Pending> queue;
+        private Thread thread;
+
+        private Worker(BlockingQueue<Pending> queue) {
+            this.queue = queue;
+        }
+    }
+}
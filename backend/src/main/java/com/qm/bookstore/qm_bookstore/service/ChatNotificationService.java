@@ -18,6 +18,8 @@ public class ChatNotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final NotificationService notificationService;
+    private final PresenceService presenceService;
+    private final TypingIndicatorService typingIndicatorService;
     
     /**
      * Broadcast global notification qua WebSocket (notification đã được tạo trong database)
@@ -94,28 +96,19 @@ public class ChatNotificationService {
     }
     
     /**
-     * Gửi typing indicator
+     * Gửi typing indicator (được gom theo conversation/actor trong TypingIndicatorService)
      */
     public void sendTypingIndicator(UUID conversationUserId, UUID actorId, 
                                    String actorUsername, String actorType, boolean isTyping) {
-        ConversationUpdate update = ConversationUpdate.typing(
-                conversationUserId, actorId, actorUsername, actorType, isTyping
-        );
-        sendConversationUpdate(conversationUserId, update);
+        typingIndicatorService.onTyping(conversationUserId, actorId, actorUsername, actorType, isTyping);
     }
     
     /**
-     * Gửi thông báo trạng thái user (online/offline)
+     * Cập nhật trạng thái user (online/away/busy/offline).
+     * PresenceService gom thay đổi và gửi theo lô tới /topic/admin-presence, không gửi system alert cho mỗi lần đổi
      */
     public void sendUserStatusUpdate(UUID userId, String status, String username) {
-        ConversationUpdate update = ConversationUpdate.userStatus(userId, status, username);
-        sendConversationUpdate(userId, update);
-        
-        // Cũng thông báo tới admin
-        AdminNotification notification = AdminNotification.systemAlert(
-                "User " + username + " is now " + status
-        );
-        sendAdminNotification(notification);
+        presenceService.updateStatus(userId, username, status, null);
     }
     
     /**
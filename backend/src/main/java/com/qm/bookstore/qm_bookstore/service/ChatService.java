@@ -1,12 +1,17 @@
 package com.qm.bookstore.qm_bookstore.service;
 
 import com.qm.bookstore.qm_bookstore.dto.chat.ChatMessageDto;
+import com.qm.bookstore.qm_bookstore.dto.notification.request.NotificationCreateRequest;
 import com.qm.bookstore.qm_bookstore.dto.notification.response.NotificationResponse;
+import com.qm.bookstore.qm_bookstore.dto.chat.response.ConversationSummaryResponse;
 import com.qm.bookstore.qm_bookstore.entity.ChatMessage;
+import com.qm.bookstore.qm_bookstore.entity.ConversationSummary;
+import com.qm.bookstore.qm_bookstore.entity.User;
 import com.qm.bookstore.qm_bookstore.exception.AppException;
 import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
 import com.qm.bookstore.qm_bookstore.mapper.ChatMapper;
 import com.qm.bookstore.qm_bookstore.repository.ChatMessageRepository;
+import com.qm.bookstore.qm_bookstore.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -15,8 +20,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,30 +37,16 @@ public class ChatService {
     private final ChatMapper chatMapper;
     private final NotificationService notificationService;
     private final ChatNotificationService chatNotificationService;
-    private final com.qm.bookstore.qm_bookstore.repository.UserRepository userRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final UserRepository userRepository;
 
     @Transactional
     public ChatMessageDto saveMessage(ChatMessageDto messageDto) {
         try {
-            ChatMessage message = chatMapper.toEntity(messageDto);
-            
-            // Set timestamp if not provided
-            if (message.getCreatedAt() == null) {
-                message.setCreatedAt(LocalDateTime.now());
-            }
-            
-            // Business logic: User messages don't need receiver_id (broadcast to all admins/managers)
-            if ("user".equals(messageDto.getSenderType())) {
-                message.setReceiverId(null); // User messages go to system, no specific receiver
-                log.info("User message from {} will be visible to all admin/manager", message.getSenderId());
-            }
-            // Admin/Manager messages must have receiver_id for traceability
-            else if (("admin".equals(messageDto.getSenderType()) || "manager".equals(messageDto.getSenderType())) 
-                     && message.getReceiverId() == null) {
-                log.warn("Admin/Manager message should have receiver_id for traceability");
-            }
+            ChatMessage message = toNewMessage(messageDto);
             
             ChatMessage savedMessage = chatMessageRepository.save(message);
+            conversationSummaryService.recordMessage(savedMessage);
             
             log.info("Saved chat message with ID: {} from sender: {} type: {} to receiver: {}", 
                     savedMessage.getId(), savedMessage.getSenderId(), savedMessage.getSenderType(), savedMessage.getReceiverId());
@@ -65,41 +61,122 @@ public class ChatService {
         }
     }
 
+    /**
+     * Lưu một lô tin nhắn trong 1 transaction (group commit cho ChatIngestService).
+     * Tin nhắn được insert theo thứ tự trong danh sách (id tăng dần); read model và notification của cả lô
+     * được ghi trong cùng transaction, notification chỉ broadcast sau khi commit.
+     * Trả về DTO đã lưu theo cùng thứ tự, giữ nguyên clientId
+     */
+    @Transactional
+    public List<ChatMessageDto> saveMessages(List<ChatMessageDto> messageDtos) {
+        List<ChatMessage> saved = chatMessageRepository.saveAll(messageDtos.stream()
+                .map(this::toNewMessage)
+                .collect(Collectors.toList()));
+        conversationSummaryService.recordMessages(saved);
+
+        List<NotificationCreateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            NotificationCreateRequest request = notificationRequestFor(saved.get(i), messageDtos.get(i));
+            if (request != null) {
+                requests.add(request);
+            }
+        }
+        List<NotificationResponse> notifications = notificationService.createNotifications(requests);
+        TransactionHooks.afterCommit(() -> {
+            for (NotificationResponse notification : notifications) {
+                if (notification.getUserId() == null) {
+                    chatNotificationService.broadcastGlobalNotification(notification);
+                } else {
+                    chatNotificationService.broadcastPersonalNotification(notification.getUserId(), notification);
+                }
+            }
+        });
+
+        List<ChatMessageDto> result = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            ChatMessageDto dto = chatMapper.toDto(saved.get(i));
+            dto.setClientId(messageDtos.get(i).getClientId());
+            dto.setSenderUsername(messageDtos.get(i).getSenderUsername());
+            result.add(dto);
+        }
+        log.debug("Saved batch of {} chat messages with {} notifications", saved.size(), notifications.size());
+        return result;
+    }
+
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getChatHistory(UUID userId, Pageable pageable) {
         Page<ChatMessage> messages = chatMessageRepository.findChatHistoryByUserId(userId, pageable);
-        return messages.map(chatMapper::toDto);
+        return withReadState(messages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getAllMessages(Pageable pageable) {
         Page<ChatMessage> messages = chatMessageRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return messages.map(chatMapper::toDto);
+        return withReadState(messages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
     public List<UUID> getActiveConversations() {
-        return chatMessageRepository.findActiveConversations();
+        return conversationSummaryService.getActiveUserIds();
+    }
+
+    /**
+     * Inbox của admin từ read model conversation_summary, phân trang theo hoạt động gần nhất
+     */
+    @Transactional(readOnly = true)
+    public Page<ConversationSummaryResponse> getInbox(UUID staffId, boolean unreadOnly, Pageable pageable) {
+        Page<ConversationSummary> summaries = conversationSummaryService.getInbox(staffId, unreadOnly, pageable);
+        Map<UUID, String> usernames = userRepository.findAllById(summaries.map(ConversationSummary::getUserId).getContent())
+                .stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+        return summaries.map(summary -> ConversationSummaryResponse.builder()
+                .userId(summary.getUserId())
+                .username(usernames.get(summary.getUserId()))
+                .lastMessageId(summary.getLastMessageId())
+                .lastMessagePreview(summary.getLastMessagePreview())
+                .lastMessageAt(summary.getLastMessageAt())
+                .lastSenderType(summary.getLastSenderType())
+                .assignedStaffId(summary.getAssignedStaffId())
+                .unreadByStaff(summary.getUnreadByStaff())
+                .unreadByUser(summary.getUnreadByUser())
+                .build());
+    }
+
+    /**
+     * Gán staff phụ trách hội thoại với customer (staffId = null: bỏ gán)
+     */
+    @Transactional
+    public boolean assignConversation(UUID userId, UUID staffId) {
+        log.info("Assigning conversation with user {} to staff {}", userId, staffId);
+        return conversationSummaryService.assign(userId, staffId);
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getConversationBetweenUsers(UUID user1Id, UUID user2Id, Pageable pageable) {
         Page<ChatMessage> messages = chatMessageRepository.findConversationBetweenUsers(user1Id, user2Id, pageable);
-        return messages.map(chatMapper::toDto);
+        return withReadState(messages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
     public List<ChatMessageDto> getLatestConversationsForAdmin(UUID adminId) {
-        List<ChatMessage> messages = chatMessageRepository.findLatestConversationsForAdmin(adminId);
-        return messages.stream()
-                .map(chatMapper::toDto)
+        // Tin nhắn mới nhất của từng hội thoại lấy theo id từ read model, giữ thứ tự hoạt động gần nhất
+        List<Long> latestIds = conversationSummaryService.getForStaff(adminId).stream()
+                .map(ConversationSummary::getLastMessageId)
+                .filter(Objects::nonNull)
                 .toList();
+        Map<Long, ChatMessage> messages = chatMessageRepository.findAllById(latestIds).stream()
+                .collect(Collectors.toMap(ChatMessage::getId, Function.identity()));
+        return withReadState(latestIds.stream()
+                .map(messages::get)
+                .filter(Objects::nonNull)
+                .map(chatMapper::toDto)
+                .toList());
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getMessagesByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
         Page<ChatMessage> messages = chatMessageRepository.findMessagesByDateRange(startDate, endDate, pageable);
-        return messages.map(chatMapper::toDto);
+        return withReadState(messages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
@@ -109,28 +186,28 @@ public class ChatService {
 
     @Transactional(readOnly = true)
     public Long countUnreadAdminMessages(UUID userId) {
-        return chatMessageRepository.countUnreadAdminMessages(userId);
+        return conversationSummaryService.getUnreadByUser(userId);
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getAllUserMessages(Pageable pageable) {
         Page<ChatMessage> userMessages = chatMessageRepository.findByMessageTypeUser(pageable);
-        return userMessages.map(chatMapper::toDto);
+        return withReadState(userMessages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getMessagesFromUser(UUID userId, Pageable pageable) {
         Page<ChatMessage> messages = chatMessageRepository.findMessagesByUserIdAndSenderType(userId, ChatMessage.SenderType.user, pageable);
-        return messages.map(chatMapper::toDto);
+        return withReadState(messages.map(chatMapper::toDto));
     }
 
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getFullConversationWithUser(UUID userId, Pageable pageable) {
         Page<ChatMessage> conversation = chatMessageRepository.findFullConversationWithUser(userId, pageable);
-        return conversation.map(chatMapper::toDto);
+        return withReadState(conversation.map(chatMapper::toDto));
     }
 
-    // ===== READ STATUS METHODS =====
+    // ===== READ STATUS METHODS (watermark - ConversationSummaryService) =====
 
     /**
      * Đánh dấu tin nhắn đã đọc bởi admin cho user cụ thể
@@ -138,7 +215,7 @@ public class ChatService {
     @Transactional
     public int markAsReadByAdminForUser(UUID userId) {
         log.info("Marking messages as read by admin for user: {}", userId);
-        return chatMessageRepository.markAsReadByAdminForUser(userId);
+        return conversationSummaryService.markReadByStaff(userId);
     }
 
     /**
@@ -147,25 +224,25 @@ public class ChatService {
     @Transactional
     public int markAsReadByUserFromAdmin(UUID userId) {
         log.info("Marking messages as read by user: {}", userId);
-        return chatMessageRepository.markAsReadByUserFromAdmin(userId);
+        return conversationSummaryService.markReadByUser(userId);
     }
 
     /**
-     * Đánh dấu một tin nhắn cụ thể đã đọc bởi admin
+     * Đánh dấu đã đọc bởi admin đến các tin nhắn này (watermark dời đến tin nhắn lớn nhất của mỗi hội thoại)
      */
     @Transactional
-    public int markMessageAsReadByAdmin(Long messageId) {
-        log.info("Marking message {} as read by admin", messageId);
-        return chatMessageRepository.markMessageAsReadByAdmin(messageId);
+    public int markMessagesAsReadByAdmin(List<Long> messageIds) {
+        log.info("Marking messages {} as read by admin", messageIds);
+        return conversationSummaryService.markMessagesReadByStaff(messageIds);
     }
 
     /**
-     * Đánh dấu một tin nhắn cụ thể đã đọc bởi user
+     * Đánh dấu đã đọc bởi user đến các tin nhắn này (watermark dời đến tin nhắn lớn nhất)
      */
     @Transactional
-    public int markMessageAsReadByUser(Long messageId) {
-        log.info("Marking message {} as read by user", messageId);
-        return chatMessageRepository.markMessageAsReadByUser(messageId);
+    public int markMessagesAsReadByUser(List<Long> messageIds) {
+        log.info("Marking messages {} as read by user", messageIds);
+        return conversationSummaryService.markMessagesReadByUser(messageIds);
     }
 
     /**
@@ -173,7 +250,7 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public Long getUnreadCountByAdminFromUser(UUID userId) {
-        return chatMessageRepository.countUnreadByAdminFromUser(userId);
+        return conversationSummaryService.getUnreadByStaff(userId);
     }
 
     /**
@@ -181,7 +258,7 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public Long getUnreadCountByUserFromAdmin(UUID userId) {
-        return chatMessageRepository.countUnreadByUserFromAdmin(userId);
+        return conversationSummaryService.getUnreadByUser(userId);
     }
 
     /**
@@ -189,7 +266,7 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public Long getTotalUnreadByAdmin() {
-        return chatMessageRepository.countTotalUnreadByAdmin();
+        return conversationSummaryService.getTotalUnreadByStaff();
     }
 
     /**
@@ -197,7 +274,7 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public List<UUID> getUsersWithUnreadMessages() {
-        return chatMessageRepository.findUsersWithUnreadMessages();
+        return conversationSummaryService.getUsersWithUnreadByStaff();
     }
 
     /**
@@ -206,7 +283,7 @@ public class ChatService {
     @Transactional(readOnly = true)
     public Page<ChatMessageDto> getUnreadMessagesByAdmin(Pageable pageable) {
         Page<ChatMessage> unreadMessages = chatMessageRepository.findUnreadByAdmin(pageable);
-        return unreadMessages.map(chatMapper::toDto);
+        return withReadState(unreadMessages.map(chatMapper::toDto));
     }
 
     /**
@@ -214,10 +291,65 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public List<ChatMessageDto> getUnreadMessagesByUser(UUID userId) {
-        List<ChatMessage> unreadMessages = chatMessageRepository.findUnreadByUser(userId);
-        return unreadMessages.stream()
+        List<ChatMessage> unreadMessages = chatMessageRepository.findUnreadByUser(
+                userId, conversationSummaryService.getUserWatermark(userId));
+        return withReadState(unreadMessages.stream()
                 .map(chatMapper::toDto)
-                .toList();
+                .toList());
+    }
+
+    // Cờ đã đọc của DTO lấy từ watermark của hội thoại
+    private Page<ChatMessageDto> withReadState(Page<ChatMessageDto> messages) {
+        conversationSummaryService.applyReadState(messages.getContent());
+        return messages;
+    }
+
+    private List<ChatMessageDto> withReadState(List<ChatMessageDto> messages) {
+        conversationSummaryService.applyReadState(messages);
+        return messages;
+    }
+
+    /**
+     * Chuẩn hóa tin nhắn mới trước khi lưu
+     */
+    private ChatMessage toNewMessage(ChatMessageDto messageDto) {
+        ChatMessage message = chatMapper.toEntity(messageDto);
+
+        // Set timestamp if not provided
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(LocalDateTime.now());
+        }
+
+        // Business logic: User messages don't need receiver_id (broadcast to all admins/managers)
+        if ("user".equals(messageDto.getSenderType())) {
+            message.setReceiverId(null); // User messages go to system, no specific receiver
+            log.info("User message from {} will be visible to all admin/manager", message.getSenderId());
+        }
+        // Admin/Manager messages must have receiver_id for traceability
+        else if (("admin".equals(messageDto.getSenderType()) || "manager".equals(messageDto.getSenderType()))
+                 && message.getReceiverId() == null) {
+            log.warn("Admin/Manager message should have receiver_id for traceability");
+        }
+        return message;
+    }
+
+    /**
+     * Notification cho tin nhắn đã lưu (null nếu tin nhắn không cần notification) - cùng quy tắc với
+     * createNotificationsForMessage
+     */
+    private NotificationCreateRequest notificationRequestFor(ChatMessage savedMessage, ChatMessageDto messageDto) {
+        String preview = truncateMessage(savedMessage.getMessage());
+        ChatMessage.SenderType senderType = savedMessage.getSenderType();
+        if (senderType == ChatMessage.SenderType.user) {
+            return notificationService.globalNewMessageRequest(
+                    messageDto.getSenderUsername() != null ? messageDto.getSenderUsername() : "Customer", preview);
+        }
+        if ((senderType == ChatMessage.SenderType.admin || senderType == ChatMessage.SenderType.manager)
+                && savedMessage.getReceiverId() != null) {
+            return notificationService.newMessageRequest(savedMessage.getReceiverId(),
+                    messageDto.getSenderUsername() != null ? messageDto.getSenderUsername() : "Admin", preview);
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,327 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.chat.ChatMessageDto;
+import com.qm.bookstore.qm_bookstore.entity.ChatMessage;
+import com.qm.bookstore.qm_bookstore.entity.ConversationSummary;
+import com.qm.bookstore.qm_bookstore.repository.ChatMessageRepository;
+import com.qm.bookstore.qm_bookstore.repository.ConversationSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read model hội thoại chat (bảng conversation_summary, mỗi customer một dòng): inbox của admin và trạng thái đã đọc
+ * theo watermark.
+ *
+ * - lưu tin nhắn: cập nhật tin nhắn mới nhất, staff phụ trách và cộng bộ đếm chưa đọc của phía nhận
+ *   (1 câu upsert mỗi hội thoại, kể cả khi lưu theo lô)
+ * - inbox phân trang theo hoạt động gần nhất đọc thẳng từ read model (không quét chat_messages)
+ * - đánh dấu đã đọc: khóa dòng hội thoại, dời watermark và đặt lại bộ đếm (1 dòng, không cập nhật từng tin nhắn)
+ * - số chưa đọc của một hội thoại là 1 lookup theo khóa; tổng / danh sách phía staff đọc partial index
+ * - cờ isReadByAdmin / isReadByUser của DTO được suy ra từ watermark
+ *
+ * Khóa dòng trước khi đọc id tin nhắn mới nhất: tin nhắn đang lưu dở (chưa commit) không lọt dưới watermark
+ * mà vẫn bị cộng vào bộ đếm sau đó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSummaryService {
+
+    private static final int PREVIEW_LENGTH = 100;
+
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Ghi nhận tin nhắn vừa lưu vào read model (gọi trong transaction lưu tin nhắn, sau khi insert)
+     */
+    public void recordMessage(ChatMessage message) {
+        recordMessages(List.of(message));
+    }
+
+    /**
+     * Ghi nhận một lô tin nhắn vừa lưu: mỗi hội thoại 1 câu upsert (tin nhắn mới nhất + tổng số chưa đọc của lô)
+     */
+    public void recordMessages(List<ChatMessage> messages) {
+        Map<UUID, List<ChatMessage>> byConversation = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            UUID userId = conversationOf(message);
+            if (userId != null) {
+                byConversation.computeIfAbsent(userId, key -> new ArrayList<>()).add(message);
+            }
+        }
+
+        byConversation.forEach((userId, conversation) -> {
+            ChatMessage last = conversation.stream().max(Comparator.comparing(ChatMessage::getId)).orElseThrow();
+            int fromUser = (int) conversation.stream()
+                    .filter(message -> message.getSenderType() == ChatMessage.SenderType.user)
+                    .count();
+            UUID staffId = conversation.stream()
+                    .filter(message -> message.getSenderType() != ChatMessage.SenderType.user)
+                    .map(ChatMessage::getSenderId)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(null);
+            conversationSummaryRepository.recordMessage(
+                    userId,
+                    last.getId(),
+                    preview(last.getMessage()),
+                    last.getCreatedAt() != null ? last.getCreatedAt() : LocalDateTime.now(),
+                    last.getSenderType().name(),
+                    staffId,
+                    fromUser,
+                    conversation.size() - fromUser);
+        });
+    }
+
+    /**
+     * Inbox của admin: hội thoại theo hoạt động gần nhất
+     *
+     * @param staffId    null: mọi hội thoại; khác null: hội thoại được gán cho staff này
+     * @param unreadOnly chỉ hội thoại còn tin nhắn staff chưa đọc
+     */
+    @Transactional(readOnly = true)
+    public Page<ConversationSummary> getInbox(UUID staffId, boolean unreadOnly, Pageable pageable) {
+        return conversationSummaryRepository.findInbox(staffId, unreadOnly, pageable);
+    }
+
+    /**
+     * Hội thoại của staff (được gán hoặc chưa ai phụ trách), hoạt động gần nhất trước
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> getForStaff(UUID staffId) {
+        return conversationSummaryRepository.findForStaff(staffId);
+    }
+
+    /**
+     * Customer có hội thoại, hoạt động gần nhất trước
+     */
+    @Transactional(readOnly = true)
+    public List<UUID> getActiveUserIds() {
+        return conversationSummaryRepository.findUserIdsByLastActivity();
+    }
+
+    /**
+     * Gán staff phụ trách hội thoại (staffId = null: bỏ gán)
+     */
+    @Transactional
+    public boolean assign(UUID userId, UUID staffId) {
+        return conversationSummaryRepository.assign(userId, staffId, LocalDateTime.now()) > 0;
+    }
+
+    /**
+     * Staff đọc toàn bộ hội thoại với customer. Trả về số tin nhắn vừa được đánh dấu
+     */
+    @Transactional
+    public int markReadByStaff(UUID userId) {
+        return lock(userId)
+                .map(state -> advanceStaff(state, chatMessageRepository.findLatestIdFromUser(userId)))
+                .orElse(0);
+    }
+
+    /**
+     * Customer đọc toàn bộ tin nhắn từ staff. Trả về số tin nhắn vừa được đánh dấu
+     */
+    @Transactional
+    public int markReadByUser(UUID userId) {
+        return lock(userId)
+                .map(state -> advanceUser(state, chatMessageRepository.findLatestIdToUser(userId)))
+                .orElse(0);
+    }
+
+    /**
+     * Staff đã đọc đến các tin nhắn này (mỗi hội thoại dời watermark đến tin nhắn lớn nhất)
+     */
+    @Transactional
+    public int markMessagesReadByStaff(Collection<Long> messageIds) {
+        return watermarks(messageIds, true).entrySet().stream()
+                .mapToInt(entry -> lock(entry.getKey()).map(state -> advanceStaff(state, entry.getValue())).orElse(0))
+                .sum();
+    }
+
+    /**
+     * Customer đã đọc đến các tin nhắn này (mỗi hội thoại dời watermark đến tin nhắn lớn nhất)
+     */
+    @Transactional
+    public int markMessagesReadByUser(Collection<Long> messageIds) {
+        return watermarks(messageIds, false).entrySet().stream()
+                .mapToInt(entry -> lock(entry.getKey()).map(state -> advanceUser(state, entry.getValue())).orElse(0))
+                .sum();
+    }
+
+    @Transactional(readOnly = true)
+    public long getUnreadByStaff(UUID userId) {
+        return conversationSummaryRepository.findById(userId).map(ConversationSummary::getUnreadByStaff).orElse(0);
+    }
+
+    @Transactional(readOnly = true)
+    public long getUnreadByUser(UUID userId) {
+        return conversationSummaryRepository.findById(userId).map(ConversationSummary::getUnreadByUser).orElse(0);
+    }
+
+    @Transactional(readOnly = true)
+    public long getTotalUnreadByStaff() {
+        return conversationSummaryRepository.sumUnreadByStaff();
+    }
+
+    @Transactional(readOnly = true)
+    public List<UUID> getUsersWithUnreadByStaff() {
+        return conversationSummaryRepository.findUserIdsWithUnreadByStaff();
+    }
+
+    /**
+     * Watermark phía customer (tin nhắn staff có id lớn hơn là chưa đọc)
+     */
+    @Transactional(readOnly = true)
+    public long getUserWatermark(UUID userId) {
+        return conversationSummaryRepository.findById(userId).map(ConversationSummary::getUserLastReadId).orElse(0L);
+    }
+
+    /**
+     * Điền isReadByAdmin / isReadByUser của các DTO từ watermark (1 query cho mọi hội thoại liên quan)
+     */
+    public void applyReadState(List<ChatMessageDto> messages) {
+        List<UUID> userIds = messages.stream()
+                .map(this::conversationOf)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<UUID, ConversationSummary> states = userIds.isEmpty() ? Map.of()
+                : conversationSummaryRepository.findAllById(userIds).stream()
+                        .collect(Collectors.toMap(ConversationSummary::getUserId, Function.identity()));
+
+        for (ChatMessageDto message : messages) {
+            UUID userId = conversationOf(message);
+            ConversationSummary state = userId != null ? states.get(userId) : null;
+            if (state == null || message.getId() == null) {
+                continue;
+            }
+            message.setIsReadByAdmin(message.getId() <= state.getStaffLastReadId());
+            message.setIsReadByUser(message.getId() <= state.getUserLastReadId());
+        }
+    }
+
+    /**
+     * Khi khởi động: tạo partial index cho các hội thoại còn tin chưa đọc phía staff (Hibernate không sinh được),
+     * dựng trạng thái từ cờ đã đọc cũ khi bảng còn trống và điền tin nhắn mới nhất cho hội thoại còn thiếu
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_conversation_summary_unread_by_staff "
+                    + "ON conversation_summary (user_id) INCLUDE (unread_by_staff) WHERE unread_by_staff > 0");
+
+            Integer created = transactionTemplate.execute(status -> conversationSummaryRepository.count() == 0
+                    ? conversationSummaryRepository.backfillFromMessageFlags()
+                    : 0);
+            if (created != null && created > 0) {
+                log.info("[initialize] Backfilled read state for {} conversations", created);
+            }
+
+            Integer filled = transactionTemplate.execute(status -> conversationSummaryRepository.existsByLastMessageIdIsNull()
+                    ? conversationSummaryRepository.backfillLastMessage()
+                    : 0);
+            if (filled != null && filled > 0) {
+                log.info("[initialize] Backfilled last message for {} conversations", filled);
+            }
+        } catch (Exception e) {
+            log.error("[initialize] Failed to initialize chat read state: {}", e.getMessage(), e);
+        }
+    }
+
+    // Helper methods
+
+    private int advanceStaff(ConversationSummary state, Long latestId) {
+        if (latestId == null || latestId <= state.getStaffLastReadId()) {
+            return 0;
+        }
+        int before = state.getUnreadByStaff();
+        state.setStaffLastReadId(latestId);
+        state.setUnreadByStaff((int) chatMessageRepository.countFromUserAfter(state.getUserId(), latestId));
+        state.setUpdatedAt(LocalDateTime.now());
+        return Math.max(before - state.getUnreadByStaff(), 0);
+    }
+
+    private int advanceUser(ConversationSummary state, Long latestId) {
+        if (latestId == null || latestId <= state.getUserLastReadId()) {
+            return 0;
+        }
+        int before = state.getUnreadByUser();
+        state.setUserLastReadId(latestId);
+        state.setUnreadByUser((int) chatMessageRepository.countToUserAfter(state.getUserId(), latestId));
+        state.setUpdatedAt(LocalDateTime.now());
+        return Math.max(before - state.getUnreadByUser(), 0);
+    }
+
+    // Chưa có dòng: hội thoại chưa có tin nhắn nào commit (tin nhắn đang lưu sẽ tạo dòng và được tính là chưa đọc)
+    private Optional<ConversationSummary> lock(UUID userId) {
+        return conversationSummaryRepository.lockByUserId(userId);
+    }
+
+    private String preview(String message) {
+        if (message == null) {
+            return "";
+        }
+        return message.length() > PREVIEW_LENGTH ? message.substring(0, PREVIEW_LENGTH - 3) + "..." : message;
+    }
+
+    // Hội thoại -> id tin nhắn lớn nhất trong danh sách.
+    // fromUser = true: chỉ tin nhắn customer gửi; false: chỉ tin nhắn staff gửi cho customer
+    private Map<UUID, Long> watermarks(Collection<Long> messageIds, boolean fromUser) {
+        Map<UUID, Long> latest = new HashMap<>();
+        for (ChatMessage message : chatMessageRepository.findAllById(messageIds)) {
+            UUID userId = conversationOf(message);
+            if (userId != null && (message.getSenderType() == ChatMessage.SenderType.user) == fromUser) {
+                latest.merge(userId, message.getId(), Math::max);
+            }
+        }
+        return latest;
+    }
+
+    // Customer của hội thoại chứa tin nhắn (null: tin nhắn không thuộc hội thoại customer - staff)
+    private UUID conversationOf(ChatMessage message) {
+        ChatMessage.SenderType type = message.getSenderType();
+        if (type == ChatMessage.SenderType.user) {
+            return message.getSenderId();
+        }
+        if (type == ChatMessage.SenderType.admin || type == ChatMessage.SenderType.manager) {
+            return message.getReceiverId();
+        }
+        return null;
+    }
+
+    private UUID conversationOf(ChatMessageDto message) {
+        String type = message.getSenderType();
+        if ("user".equalsIgnoreCase(type)) {
+            return message.getSenderId();
+        }
+        if ("admin".equalsIgnoreCase(type) || "manager".equalsIgnoreCase(type)) {
+            return message.getReceiverId();
+        }
+        return null;
+    }
+}
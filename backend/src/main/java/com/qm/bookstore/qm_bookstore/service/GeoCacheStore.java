@@ -0,0 +1,81 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qm.bookstore.qm_bookstore.config.BoundedTtlCache;
+import com.qm.bookstore.qm_bookstore.repository.GeoCacheEntryRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Lưu bền cache geocoding / routes vào bảng geo_cache_entries (JSON).
+ * Mỗi thao tác của cache chạy trong transaction riêng (REQUIRES_NEW): BoundedTtlCache nuốt lỗi của store,
+ * nên lỗi ở đây không được làm rollback-only transaction của request đang gọi.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class GeoCacheStore implements BoundedTtlCache.BackingStore {
+
+    GeoCacheEntryRepository geoCacheEntryRepository;
+    ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public Optional<BoundedTtlCache.StoredValue> load(String cacheName, String key, Class<?> valueType) {
+        return geoCacheEntryRepository.findByCacheNameAndCacheKey(cacheName, key)
+                .map(entry -> {
+                    try {
+                        return new BoundedTtlCache.StoredValue(
+                                objectMapper.readValue(entry.getPayload(), valueType), entry.getExpiresAt());
+                    } catch (JsonProcessingException e) {
+                        log.warn("[load] Cannot deserialize cache entry {}/{}: {}", cacheName, key, e.getMessage());
+                        return null;
+                    }
+                });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(String cacheName, String key, Object value, Instant expiresAt) {
+        try {
+            geoCacheEntryRepository.upsert(cacheName, key, objectMapper.writeValueAsString(value), expiresAt);
+        } catch (JsonProcessingException e) {
+            log.warn("[save] Cannot serialize cache entry {}/{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void evict(String cacheName, String key) {
+        geoCacheEntryRepository.deleteByCacheNameAndCacheKey(cacheName, key);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void clear(String cacheName) {
+        geoCacheEntryRepository.deleteByCacheName(cacheName);
+    }
+
+    /**
+     * Dọn entry hết hạn mỗi giờ
+     */
+    @Scheduled(fixedDelayString = "${goong.cache.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = geoCacheEntryRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("[purgeExpired] Removed {} expired geo cache entries", deleted);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.qm.bookstore.qm_bookstore.service;
 
+import com.qm.bookstore.qm_bookstore.config.CacheConfig;
 import com.qm.bookstore.qm_bookstore.dto.goong.*;
 import com.qm.bookstore.qm_bookstore.dto.shipping.Coordinates;
 import com.qm.bookstore.qm_bookstore.exception.AppException;
@@ -15,6 +16,8 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -35,8 +38,11 @@ public class GoongService {
     /**
      * Geocode address to coordinates
      * Cache results to avoid repeated API calls for same address
+     * (key = địa chỉ đã chuẩn hóa, xem {@link #normalizeAddress(String)})
      */
-    @Cacheable(value = "geocoding", key = "#address", unless = "#result == null")
+    @Cacheable(value = CacheConfig.GEOCODING_CACHE,
+            key = "T(com.qm.bookstore.qm_bookstore.service.GoongService).normalizeAddress(#address)",
+            unless = "#result == null")
     public Coordinates geocodeAddress(String address) {
         log.info("[geocodeAddress] Converting address to coordinates: {}", address);
         
@@ -74,7 +80,9 @@ public class GoongService {
      * Calculate route distance and duration between two coordinates
      * Cache results to avoid repeated API calls
      */
-    @Cacheable(value = "routes", key = "#origin.lat + ',' + #origin.lng + '-' + #destination.lat + ',' + #destination.lng", unless = "#result == null")
+    @Cacheable(value = CacheConfig.ROUTES_CACHE,
+            key = "T(com.qm.bookstore.qm_bookstore.service.GoongService).routeKey(#origin, #destination)",
+            unless = "#result == null")
     public RouteInfo calculateRoute(Coordinates origin, Coordinates destination) {
         log.info("[calculateRoute] Calculating route from ({},{}) to ({},{})",
                 origin.getLat(), origin.getLng(), destination.getLat(), destination.getLng());
@@ -117,4 +125,28 @@ public class GoongService {
             throw new AppException(ErrorCode.GOONG_API_ERROR);
         }
     }
+
+    /**
+     * Chuẩn hóa địa chỉ làm cache key để các cách viết khác nhau không đáng kể dùng chung một entry:
+     * Unicode NFC, chữ thường, gộp khoảng trắng, chuẩn hóa dấu phẩy, bỏ dấu câu thừa ở đầu/cuối.
+     */
+    public static String normalizeAddress(String address) {
+        if (address == null) {
+            return "";
+        }
+        return Normalizer.normalize(address, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s*,\\s*", ", ")
+                .replaceAll("(,\\s*)+", ", ")
+                .replaceAll("\\s+", " ")
+                .replaceAll("^[\\s,.;]+|[\\s,.;]+$", "");
+    }
+
+    /**
+     * Cache key cho route: tọa độ làm tròn 5 chữ số thập phân (~1m)
+     */
+    public static String routeKey(Coordinates origin, Coordinates destination) {
+        return String.format(Locale.ROOT, "%.5f,%.5f-%.5f,%.5f",
+                origin.getLat(), origin.getLng(), destination.getLat(), destination.getLng());
+    }
 }
@@ -0,0 +1,362 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.inventory.response.HotProductResponse;
+import com.qm.bookstore.qm_bookstore.entity.HotStockStripe;
+import com.qm.bookstore.qm_bookstore.entity.InventoryTransactionHeader;
+import com.qm.bookstore.qm_bookstore.entity.InventoryTransactionItem;
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.exception.AppException;
+import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
+import com.qm.bookstore.qm_bookstore.repository.HotStockStripeRepository;
+import com.qm.bookstore.qm_bookstore.repository.InventoryTransactionHeaderRepository;
+import com.qm.bookstore.qm_bookstore.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Chế độ "hot product" cho flash sale (bật thủ công cho từng product).
+ *
+ * Tồn kho bán được của product được chia thành N stripe (bảng hot_stock_stripes). Checkout lấy hàng trên một
+ * stripe ngẫu nhiên bằng UPDATE có điều kiện - chỉ khóa dòng của stripe đó, không khóa dòng products - nên N
+ * checkout đồng thời trên cùng một product chạy song song. Khi các stripe bị phân mảnh (không stripe nào đủ
+ * một mình) thì khóa toàn bộ stripe theo thứ tự và lấy dồn.
+ *
+ * Job reconcile định kỳ gộp phần đã bán (consumed) về products.stock_quantity, ghi phiếu kho
+ * (reference_type = HOT_STOCK) và chia lại tồn kho bán được cho các stripe (tính cả hàng nhập thêm).
+ *
+ * Bảng hot_stock_stripes là nguồn dữ liệu gốc: checkout xác định hot product bằng hotProductIds() (đọc bảng);
+ * danh sách trong bộ nhớ (số stripe theo product) chỉ dùng để chọn stripe và được làm mới mỗi lần reconcile
+ * (bật / tắt trên instance khác).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotStockService {
+
+    private static final String REFERENCE_TYPE_HOT_STOCK = "HOT_STOCK";
+
+    private final HotStockStripeRepository hotStockStripeRepository;
+    private final ProductRepository productRepository;
+    private final InventoryTransactionHeaderRepository headerRepository;
+    private final StockReservationService stockReservationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.hot-stock.max-stripes:64}")
+    private int maxStripes;
+
+    // productId -> số stripe
+    private final Map<Long, Integer> hotProducts = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    /**
+     * Các product đang ở chế độ hot trong danh sách (đọc hot_stock_stripes)
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> hotProductIds(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(hotStockStripeRepository.findHotProductIds(productIds));
+    }
+
+    /**
+     * Bật chế độ hot cho product với N stripe (bật lại sẽ chia lại stripe)
+     */
+    @Transactional
+    public HotProductResponse enable(Long productId, int stripes) {
+        if (stripes < 1 || stripes > maxStripes) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+        ensureLoaded();
+
+        // Khóa dòng product: không checkout thường nào chạy song song trong lúc chuyển chế độ
+        List<Product> locked = productRepository.lockAllByIdInOrderById(List.of(productId));
+        if (locked.isEmpty()) {
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+
+        // Đang hot -> gộp phần đã bán trước khi chia lại
+        List<HeaderLine> lines = new ArrayList<>();
+        List<HotStockStripe> existing = hotStockStripeRepository.lockByProductId(productId);
+        if (!existing.isEmpty()) {
+            foldConsumed(productId, existing, lines);
+            if (existing.stream().anyMatch(stripe -> stripe.getConsumed() != 0)) {
+                throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY);
+            }
+            hotStockStripeRepository.deleteAll(existing);
+            hotStockStripeRepository.flush();
+        }
+        saveHeaders(lines);
+
+        List<HotStockStripe> created = new ArrayList<>();
+        for (int i = 0; i < stripes; i++) {
+            created.add(HotStockStripe.builder().productId(productId).stripeNo(i).build());
+        }
+        redistribute(productId, created);
+        hotStockStripeRepository.saveAll(created);
+
+        // Checkout thường đang chờ khóa product đọc lại hot_stock_stripes sau khi lấy được khóa.
+        // Danh sách trong bộ nhớ của instance này được cập nhật ngay, hoàn lại nếu rollback
+        Integer previous = hotProducts.put(productId, stripes);
+        TransactionHooks.onRollback(() -> {
+            if (previous != null) {
+                hotProducts.put(productId, previous);
+            } else {
+                hotProducts.remove(productId);
+            }
+        });
+        log.info("[enable] Product {} is now hot with {} stripes", productId, stripes);
+        return toResponse(productId, created);
+    }
+
+    /**
+     * Tắt chế độ hot: gộp phần đã bán về products và xóa stripe
+     */
+    @Transactional
+    public void disable(Long productId) {
+        ensureLoaded();
+        List<HotStockStripe> stripes = hotStockStripeRepository.lockByProductId(productId);
+        if (stripes.isEmpty()) {
+            return;
+        }
+
+        List<HeaderLine> lines = new ArrayList<>();
+        foldConsumed(productId, stripes, lines);
+        // Chưa gộp được phần đã bán (tồn kho bị giảm ngoài luồng) -> giữ stripe, không làm mất hàng đã bán
+        if (stripes.stream().anyMatch(stripe -> stripe.getConsumed() != 0)) {
+            throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY);
+        }
+        saveHeaders(lines);
+        hotStockStripeRepository.deleteByProductId(productId);
+
+        TransactionHooks.afterCommit(() -> hotProducts.remove(productId));
+        log.info("[disable] Product {} is no longer hot", productId);
+    }
+
+    /**
+     * Danh sách hot product và tồn kho còn bán được trên các stripe
+     */
+    @Transactional(readOnly = true)
+    public List<HotProductResponse> getHotProducts() {
+        refresh();
+        return hotProducts.keySet().stream()
+                .sorted()
+                .map(productId -> toResponse(productId, hotStockStripeRepository.findByProductIdOrderByStripeNo(productId)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lấy hàng cho checkout (gọi trong transaction checkout).
+     * Thử lần lượt các stripe bắt đầu từ một stripe ngẫu nhiên; nếu không stripe nào đủ thì lấy dồn.
+     */
+    @Transactional
+    public void take(Long productId, int quantity) {
+        int stripes = hotProducts.getOrDefault(productId, 0);
+        int start = stripes > 0 ? ThreadLocalRandom.current().nextInt(stripes) : 0;
+        for (int i = 0; i < stripes; i++) {
+            if (hotStockStripeRepository.take(productId, (start + i) % stripes, quantity) == 1) {
+                return;
+            }
+        }
+
+        // Phân mảnh: khóa toàn bộ stripe theo thứ tự và lấy dồn
+        List<HotStockStripe> all = hotStockStripeRepository.lockByProductId(productId);
+        int total = all.stream().mapToInt(HotStockStripe::getRemaining).sum();
+        if (all.isEmpty() || total < quantity) {
+            throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
+        }
+
+        int left = quantity;
+        for (HotStockStripe stripe : all) {
+            int taken = Math.min(left, stripe.getRemaining());
+            if (taken > 0) {
+                stripe.setRemaining(stripe.getRemaining() - taken);
+                stripe.setConsumed(stripe.getConsumed() + taken);
+                stripe.setUpdatedAt(LocalDateTime.now());
+                left -= taken;
+            }
+        }
+        hotStockStripeRepository.saveAll(all);
+    }
+
+    /**
+     * Trả lại hàng đã lấy từ stripe (hủy đơn). Product không còn hot -> phần đã bán đã được gộp, cộng lại vào kho.
+     */
+    @Transactional
+    public void giveBack(Map<Long, Integer> quantityByProduct) {
+        ensureLoaded();
+        new TreeMap<>(quantityByProduct).forEach((productId, quantity) -> {
+            int stripes = hotProducts.getOrDefault(productId, 0);
+            if (stripes > 0
+                    && hotStockStripeRepository.giveBack(productId,
+                            ThreadLocalRandom.current().nextInt(stripes), quantity) == 1) {
+                return;
+            }
+            productRepository.addStock(productId, quantity);
+            log.info("[giveBack] Product {} is no longer hot, returned {} directly to stock", productId, quantity);
+        });
+    }
+
+    /**
+     * Job định kỳ: gộp phần đã bán của mọi hot product về products.stock_quantity + phiếu kho,
+     * rồi chia lại tồn kho bán được cho các stripe
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot-stock.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        refresh();
+        if (hotProducts.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> reconcileAll());
+        } catch (RuntimeException e) {
+            log.error("[reconcile] Hot stock reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    // Helper methods
+
+    /**
+     * Một dòng phiếu kho sinh ra khi gộp stripe (quantity > 0: bán ra, < 0: hoàn lại)
+     */
+    private record HeaderLine(Long productId, int quantity) {
+    }
+
+    private void reconcileAll() {
+        List<HeaderLine> lines = new ArrayList<>();
+        for (Long productId : new TreeMap<>(hotProducts).keySet()) {
+            List<HotStockStripe> stripes = hotStockStripeRepository.lockByProductId(productId);
+            if (stripes.isEmpty()) {
+                continue;
+            }
+            foldConsumed(productId, stripes, lines);
+            redistribute(productId, stripes);
+            hotStockStripeRepository.saveAll(stripes);
+        }
+        saveHeaders(lines);
+        if (!lines.isEmpty()) {
+            log.info("[reconcile] Folded hot stock for {} products", lines.size());
+        }
+    }
+
+    /**
+     * Gộp consumed (ròng) của các stripe đã khóa về products.stock_quantity
+     */
+    private void foldConsumed(Long productId, List<HotStockStripe> stripes, List<HeaderLine> lines) {
+        int consumed = stripes.stream().mapToInt(HotStockStripe::getConsumed).sum();
+        if (consumed == 0) {
+            return;
+        }
+
+        if (consumed > 0) {
+            if (productRepository.deductStockIfAvailable(productId, consumed) == 0) {
+                // Tồn kho bị giảm ngoài luồng (hàng hỏng, kiểm kê...) - giữ lại consumed để lần sau gộp tiếp
+                log.error("[foldConsumed] Cannot fold {} sold units of hot product {}: insufficient stock",
+                        consumed, productId);
+                return;
+            }
+        } else {
+            productRepository.addStock(productId, -consumed);
+        }
+
+        stripes.forEach(stripe -> stripe.setConsumed(0));
+        lines.add(new HeaderLine(productId, consumed));
+    }
+
+    /**
+     * Chia đều tồn kho bán được (stock - hàng đang giữ - phần đã bán chưa gộp) cho các stripe
+     */
+    private void redistribute(Long productId, List<HotStockStripe> stripes) {
+        int stock = productRepository.findStockQuantityById(productId);
+        int pendingConsumed = stripes.stream().mapToInt(HotStockStripe::getConsumed).sum();
+        int budget = Math.max(0, stock - stockReservationService.heldQuantity(productId) - pendingConsumed);
+
+        int share = budget / stripes.size();
+        int extra = budget % stripes.size();
+        LocalDateTime now = LocalDateTime.now();
+        for (HotStockStripe stripe : stripes) {
+            stripe.setRemaining(share + (stripe.getStripeNo() < extra ? 1 : 0));
+            stripe.setUpdatedAt(now);
+        }
+    }
+
+    /**
+     * Ghi phiếu kho cho phần đã gộp: OUT/MINUS cho hàng bán ra, IN/PLUS cho hàng hoàn lại
+     */
+    private void saveHeaders(List<HeaderLine> lines) {
+        saveHeader("OUT", "MINUS", lines.stream().filter(line -> line.quantity() > 0).collect(Collectors.toList()));
+        saveHeader("IN", "PLUS", lines.stream().filter(line -> line.quantity() < 0).collect(Collectors.toList()));
+    }
+
+    private void saveHeader(String transactionType, String changeType, List<HeaderLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        InventoryTransactionHeader header = headerRepository.save(InventoryTransactionHeader.builder()
+                .transactionType(transactionType)
+                .referenceType(REFERENCE_TYPE_HOT_STOCK)
+                .note("Gộp tồn kho hot product (flash sale)")
+                .build());
+
+        for (HeaderLine line : lines) {
+            header.addItem(InventoryTransactionItem.builder()
+                    .headerId(header.getId())
+                    .productId(line.productId())
+                    .changeType(changeType)
+                    .quantity(Math.abs(line.quantity()))
+                    .build());
+        }
+        headerRepository.save(header);
+    }
+
+    private HotProductResponse toResponse(Long productId, List<HotStockStripe> stripes) {
+        return HotProductResponse.builder()
+                .productId(productId)
+                .stripes(stripes.size())
+                .remaining(stripes.stream().mapToInt(HotStockStripe::getRemaining).sum())
+                .pendingConsumed(stripes.stream().mapToInt(HotStockStripe::getConsumed).sum())
+                .build();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (hotProducts) {
+            if (!loaded) {
+                refresh();
+            }
+        }
+    }
+
+    // Nạp lại danh sách hot product từ hot_stock_stripes
+    private void refresh() {
+        Map<Long, Integer> current = new HashMap<>();
+        for (Object[] row : hotStockStripeRepository.countStripesByProduct()) {
+            current.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        synchronized (hotProducts) {
+            hotProducts.keySet().retainAll(current.keySet());
+            hotProducts.putAll(current);
+            loaded = true;
+        }
+    }
+}
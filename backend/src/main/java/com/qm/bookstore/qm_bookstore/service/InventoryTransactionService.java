@@ -12,6 +12,7 @@ import com.qm.bookstore.qm_bookstore.entity.*;
 import com.qm.bookstore.qm_bookstore.exception.AppException;
 import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
 import com.qm.bookstore.qm_bookstore.repository.*;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +25,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +52,8 @@ public class InventoryTransactionService {
     ProductRepository productRepository;
     OrderRepository orderRepository;
     OrderItemRepository orderItemRepository;
+    StockReservationService stockReservationService;
+    EntityManager entityManager;
 
     // ==================== CONSTANTS ====================
     
@@ -169,81 +177,80 @@ public class InventoryTransactionService {
         header = headerRepository.save(header);
         log.info("Header saved with ID: {}", header.getId());
 
-        // 5. Duyệt từng order item
+        // 5. Bung order items thành các dòng xuất kho (combo -> từng product thành phần)
+        List<OutLine> outLines = new ArrayList<>();
         for (OrderItem orderItem : orderItems) {
-            // Check if this is a combo or single product
             if (orderItem.getItemType() == ItemType.COMBO) {
-                // Handle combo items: process each product in the combo
                 log.info("Processing combo item: comboId={}, comboName={}, quantity={}", 
                     orderItem.getComboId(), orderItem.getComboName(), orderItem.getQuantity());
-                
+
                 if (orderItem.getComboSnapshot() == null || orderItem.getComboSnapshot().getItems() == null) {
                     throw new AppException(ErrorCode.COMBO_SNAPSHOT_NOT_FOUND);
                 }
-                
-                // Iterate through each product in the combo
-                for (ComboItemSnapshot comboProduct : orderItem.getComboSnapshot().getItems()) {
-                    Product product = productRepository.findById(comboProduct.getProductId())
-                            .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-
-                    // Calculate total quantity: combo product quantity * order quantity
-                    int totalQuantity = comboProduct.getQuantity() * orderItem.getQuantity();
-
-                    // Calculate price from product (for reference, optional for OUT)
-                    BigDecimal unitPrice = product.getPrice();
-                    BigDecimal totalPrice = unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(totalQuantity)) : null;
-
-                    // Create transaction item for this product
-                    InventoryTransactionItem item = InventoryTransactionItem.builder()
-                            .headerId(header.getId())
-                            .productId(comboProduct.getProductId())
-                            .changeType(CHANGE_TYPE_MINUS)
-                            .quantity(totalQuantity)
-                            .unitPrice(unitPrice)
-                            .totalPrice(totalPrice)
-                            .build();
 
-                    header.addItem(item);
-
-                    // Deduct stock and save product
-                    deductStock(product, totalQuantity);
-                    productRepository.save(product);
-                    
-                    log.info("Deducted stock for combo product: productId={}, productName={}, quantity={}, newStock={}", 
-                        product.getId(), product.getName(), totalQuantity, product.getStockQuantity());
+                // Total quantity: combo product quantity * order quantity
+                for (ComboItemSnapshot comboProduct : orderItem.getComboSnapshot().getItems()) {
+                    outLines.add(new OutLine(comboProduct.getProductId(),
+                            comboProduct.getQuantity() * orderItem.getQuantity()));
                 }
             } else {
-                // Handle single product items (existing logic)
-                Product product = productRepository.findById(orderItem.getProductId())
-                        .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-
-                // Calculate price from product (for reference, optional for OUT)
-                BigDecimal unitPrice = product.getPrice();
-                BigDecimal totalPrice = unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(orderItem.getQuantity())) : null;
-
-                // Tạo item với headerId
-                InventoryTransactionItem item = InventoryTransactionItem.builder()
-                        .headerId(header.getId())  // ✅ Set headerId thủ công
-                        .productId(orderItem.getProductId())
-                        .changeType(CHANGE_TYPE_MINUS)
-                        .quantity(orderItem.getQuantity())
-                        .unitPrice(unitPrice)
-                        .totalPrice(totalPrice)
-                        .build();
-
-                header.addItem(item);
-
-                // 6. Trừ kho với điều kiện và lưu product
-                deductStock(product, orderItem.getQuantity());
-                productRepository.save(product);
+                outLines.add(new OutLine(orderItem.getProductId(), orderItem.getQuantity()));
+            }
+        }
+
+        // Product đã được trừ kho qua stripe lúc checkout (hot product) -> đã nằm trong phiếu HOT_STOCK, không trừ lại
+        Set<Long> stripedProductIds = stockReservationService.stripedProductIds(request.getOrderId());
+        if (!stripedProductIds.isEmpty()) {
+            log.info("Order {} products {} were already deducted via hot stock stripes", orderId, stripedProductIds);
+            outLines.removeIf(line -> stripedProductIds.contains(line.productId()));
+        }
+
+        // Batch load product (giá tham chiếu cho dòng xuất kho)
+        Map<Long, Product> products = productRepository.findAllById(
+                        outLines.stream().map(OutLine::productId).distinct().collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Tổng số lượng cần trừ theo product (id tăng dần -> thứ tự khóa dòng cố định)
+        Map<Long, Integer> quantityByProduct = new TreeMap<>();
+        for (OutLine line : outLines) {
+            Product product = products.get(line.productId());
+            if (product == null) {
+                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
             }
+
+            // Calculate price from product (for reference, optional for OUT)
+            BigDecimal unitPrice = product.getPrice();
+            BigDecimal totalPrice = unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(line.quantity())) : null;
+
+            InventoryTransactionItem item = InventoryTransactionItem.builder()
+                    .headerId(header.getId())  // ✅ Set headerId thủ công
+                    .productId(line.productId())
+                    .changeType(CHANGE_TYPE_MINUS)
+                    .quantity(line.quantity())
+                    .unitPrice(unitPrice)
+                    .totalPrice(totalPrice)
+                    .build();
+
+            header.addItem(item);
+            quantityByProduct.merge(line.productId(), line.quantity(), Integer::sum);
         }
 
-        // 7. Lưu lại header (cascade save items)
+        // 6. Trừ kho toàn bộ product trong 1 câu UPDATE có điều kiện (rollback nếu bất kỳ product nào không đủ)
+        Map<Long, Integer> stockAfter = deductStock(quantityByProduct);
+
+        // Hàng đang giữ cho đơn đã thực sự được trừ kho -> chuyển hold sang CONVERTED
+        stockReservationService.convert(request.getOrderId());
+
+        // 7. Lưu lại header (cascade save items) - header đã bị detach khi trừ kho, save() merge và trả về bản managed
         header = headerRepository.save(header);
 
         log.info("OUT transaction from order created successfully: id={}, orderId={}", header.getId(), orderId);
-        return mapToResponse(header);
+
+        // Báo cáo tồn kho sau khi trừ cho từng dòng
+        InventoryTransactionResponse response = mapToResponse(header);
+        response.getItems().forEach(item -> item.setStockAfter(stockAfter.get(item.getProductId())));
+        return response;
     }
 
     /**
@@ -262,6 +269,29 @@ public class InventoryTransactionService {
     @Transactional(readOnly = true)
     public BaseGetAllResponse<InventoryTransactionResponse> getAllTransactions(
             InventoryTransactionGetAllRequest request) {
+
+        // Chế độ cursor: keyset (createdAt DESC, id DESC), không OFFSET / COUNT
+        if (request.isCursorMode()) {
+            KeysetCursor.Position after = KeysetCursor.decode(request.getAfter());
+            List<InventoryTransactionHeader> rows = after.isFirst()
+                    ? headerRepository.findByFiltersFirst(
+                            request.getTransactionType(),
+                            request.getReferenceType(),
+                            request.getReferenceId(),
+                            request.getProductId(),
+                            KeysetCursor.limit(request.getMaxResultCount()))
+                    : headerRepository.findByFiltersAfter(
+                            request.getTransactionType(),
+                            request.getReferenceType(),
+                            request.getReferenceId(),
+                            request.getProductId(),
+                            after.createdAt(),
+                            after.idAsLong(),
+                            KeysetCursor.limit(request.getMaxResultCount()));
+            return KeysetCursor.toResponse(rows, request.getMaxResultCount(),
+                    InventoryTransactionHeader::getCreatedAt, InventoryTransactionHeader::getId,
+                    headers -> headers.stream().map(this::mapToResponse).collect(Collectors.toList()));
+        }
         
         Sort sort = Sort.by(Sort.Direction.DESC, "createdAt"); // Mặc định sắp xếp theo ngày mới nhất
         
@@ -343,35 +373,64 @@ public class InventoryTransactionService {
     }
 
     /**
-     * Cập nhật tồn kho theo change type
+     * Cập nhật tồn kho theo change type (UPDATE nguyên tử trên DB, không đọc - sửa - ghi)
      */
     private void updateProductStock(Product product, String changeType, Integer quantity) {
         if (CHANGE_TYPE_PLUS.equals(changeType)) {
-            product.setStockQuantity(product.getStockQuantity() + quantity);
-            log.debug("Added {} to product {} stock. New stock: {}", 
-                     quantity, product.getId(), product.getStockQuantity());
+            productRepository.addStock(product.getId(), quantity);
+            log.debug("Added {} to product {} stock", quantity, product.getId());
         } else if (CHANGE_TYPE_MINUS.equals(changeType)) {
-            deductStock(product, quantity);
+            if (productRepository.deductStockIfAvailable(product.getId(), quantity) == 0) {
+                log.error("Insufficient stock for product {}: name={}, required={}", 
+                         product.getId(), product.getName(), quantity);
+                throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY);
+            }
+            log.debug("Deducted {} from product {} stock", quantity, product.getId());
         }
-        productRepository.save(product);
     }
 
     /**
-     * Trừ kho với kiểm tra điều kiện không âm
-     * Atomic operation: UPDATE có điều kiện
+     * Trừ kho nhiều product với kiểm tra điều kiện không âm
+     * Atomic operation: khóa dòng product theo id tăng dần (SELECT ... ORDER BY id FOR UPDATE - tránh deadlock giữa các
+     * phiếu xuất đồng thời), rồi 1 câu UPDATE có điều kiện stock_quantity >= quantity cho toàn bộ product,
+     * trả về tồn kho mới của từng product. Product nào không đủ hàng -> báo lỗi (transaction rollback).
+     * Persistence context bị clear sau UPDATE: entity đã load trước đó phải dùng giá trị trả về của save/merge.
      */
-    private void deductStock(Product product, Integer quantity) {
-        Integer currentStock = product.getStockQuantity();
-        
-        if (currentStock < quantity) {
-            log.error("Insufficient stock for product {}: name={}, available={}, required={}", 
-                     product.getId(), product.getName(), currentStock, quantity);
+    private Map<Long, Integer> deductStock(Map<Long, Integer> quantityByProduct) {
+        if (quantityByProduct.isEmpty()) {
+            return new HashMap<>();
+        }
+        productRepository.lockAllByIdInOrderById(quantityByProduct.keySet());
+
+        Long[] ids = quantityByProduct.keySet().toArray(new Long[0]);
+        Integer[] quantities = quantityByProduct.values().toArray(new Integer[0]);
+
+        entityManager.flush();
+        List<Object[]> rows = productRepository.deductStockBatch(ids, quantities);
+        entityManager.clear();
+
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        for (Object[] row : rows) {
+            stockAfter.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+
+        if (stockAfter.size() < ids.length) {
+            quantityByProduct.forEach((productId, quantity) -> {
+                if (!stockAfter.containsKey(productId)) {
+                    log.error("Insufficient stock for product {}: required={}", productId, quantity);
+                }
+            });
             throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY);
         }
 
-        product.setStockQuantity(currentStock - quantity);
-        log.debug("Deducted {} from product {} stock. New stock: {}", 
-                 quantity, product.getId(), product.getStockQuantity());
+        log.debug("Deducted stock for {} products: {}", stockAfter.size(), stockAfter);
+        return stockAfter;
+    }
+
+    /**
+     * Một dòng xuất kho: product và số lượng (combo đã được bung thành product thành phần)
+     */
+    private record OutLine(Long productId, int quantity) {
     }
 
     /**
@@ -254,12 +254,8 @@ public class InvoiceService {
      * Helper method to get config value from SystemConfig with fallback
      */
     private String getConfigValue(String configKey, String defaultValue) {
-        try {
-            return systemConfigService.getConfigByKey(configKey).getConfigValue();
-        } catch (Exception e) {
-            log.warn("[getConfigValue] Config key '{}' not found, using default: {}", configKey, defaultValue);
-            return defaultValue;
-        }
+        // Đọc từ snapshot in-memory của SystemConfigService (không query DB)
+        return systemConfigService.getConfigValue(configKey, defaultValue);
     }
     
     /**
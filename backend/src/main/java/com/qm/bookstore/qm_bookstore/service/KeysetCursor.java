@@ -0,0 +1,117 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
+import com.qm.bookstore.qm_bookstore.exception.AppException;
+import com.qm.bookstore.qm_bookstore.exception.ErrorCode;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Phân trang keyset (cursor) cho các danh sách sắp xếp mới nhất trước: (createdAt DESC, id DESC).
+ *
+ * Token "after" là vị trí (createdAt, id) của dòng cuối trang trước, mã hóa base64url - client coi như chuỗi mờ.
+ * Query keyset lấy size + 1 dòng sau vị trí đó (dùng index (created_at, id), không OFFSET, không COUNT);
+ * dòng dư cho biết còn trang sau.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Vị trí trong danh sách; null-object FIRST cho trang đầu (createdAt = null)
+     */
+    public record Position(LocalDateTime createdAt, String id) {
+
+        public static final Position FIRST = new Position(null, null);
+
+        // Trang đầu: dùng query không có điều kiện vị trí
+        public boolean isFirst() {
+            return createdAt == null;
+        }
+
+        // Token của danh sách khác (id không đúng kiểu) -> INVALID_REQUEST, không để lỗi parse thành 500
+        public Long idAsLong() {
+            if (id == null) {
+                return null;
+            }
+            try {
+                return Long.valueOf(id);
+            } catch (NumberFormatException e) {
+                throw new AppException(ErrorCode.INVALID_REQUEST);
+            }
+        }
+
+        public UUID idAsUuid() {
+            if (id == null) {
+                return null;
+            }
+            try {
+                return UUID.fromString(id);
+            } catch (IllegalArgumentException e) {
+                throw new AppException(ErrorCode.INVALID_REQUEST);
+            }
+        }
+    }
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Giải mã token after (null / rỗng -> trang đầu)
+     */
+    public static Position decode(String after) {
+        if (after == null || after.isEmpty()) {
+            return Position.FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new Position(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+        }
+    }
+
+    public static String encode(LocalDateTime createdAt, Object id) {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giới hạn cho query keyset: size + 1 dòng (không sort - thứ tự nằm trong query)
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, Math.max(size, 1) + 1);
+    }
+
+    /**
+     * Dựng response từ kết quả query keyset (size + 1 dòng): cắt dòng dư, sinh nextCursor, totalRecords = -1
+     */
+    public static <E, R> BaseGetAllResponse<R> toResponse(List<E> rows, int size,
+                                                          Function<E, LocalDateTime> createdAt,
+                                                          Function<E, Object> id,
+                                                          Function<List<E>, List<R>> mapper) {
+        int pageSize = Math.max(size, 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<E> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            E last = page.get(page.size() - 1);
+            nextCursor = encode(createdAt.apply(last), id.apply(last));
+        }
+
+        return BaseGetAllResponse.<R>builder()
+                .data(mapper.apply(page))
+                .totalRecords(-1)
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
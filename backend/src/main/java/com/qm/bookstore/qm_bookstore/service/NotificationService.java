@@ -23,8 +23,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -43,6 +47,30 @@ public class NotificationService {
     }
 
     public BaseGetAllResponse<NotificationResponse> getAllNotifications(NotificationGetAllRequest request) {
+        // Chế độ cursor: keyset (createdAt DESC, id DESC), không OFFSET / COUNT
+        if (request.isCursorMode()) {
+            KeysetCursor.Position after = KeysetCursor.decode(request.getAfter());
+            List<Notification> rows = after.isFirst()
+                ? notificationRepository.findNotificationsWithFiltersFirst(
+                    request.getUserId(),
+                    request.getType(),
+                    request.getStatus(),
+                    request.getFromDate(),
+                    request.getToDate(),
+                    KeysetCursor.limit(request.getMaxResultCount()))
+                : notificationRepository.findNotificationsWithFiltersAfter(
+                    request.getUserId(),
+                    request.getType(),
+                    request.getStatus(),
+                    request.getFromDate(),
+                    request.getToDate(),
+                    after.createdAt(),
+                    after.idAsUuid(),
+                    KeysetCursor.limit(request.getMaxResultCount()));
+            return KeysetCursor.toResponse(rows, request.getMaxResultCount(),
+                Notification::getCreatedAt, Notification::getId, notificationMapper::toNotificationResponseList);
+        }
+
         // Create pageable
         Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
         if (request.getSortBy() != null && !request.getSortBy().isEmpty()) {
@@ -95,6 +123,36 @@ public class NotificationService {
         return response;
     }
 
+    /**
+     * Tạo nhiều notification trong 1 lần saveAll (user được kiểm tra bằng 1 query; notification của user
+     * không tồn tại bị bỏ qua thay vì làm hỏng cả lô)
+     */
+    @Transactional
+    public List<NotificationResponse> createNotifications(List<NotificationCreateRequest> requests) {
+        Set<UUID> userIds = requests.stream()
+                .map(NotificationCreateRequest::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<UUID> existing = userIds.isEmpty() ? Set.of()
+                : userRepository.findAllById(userIds).stream().map(User::getId).collect(Collectors.toSet());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>();
+        for (NotificationCreateRequest request : requests) {
+            if (request.getUserId() != null && !existing.contains(request.getUserId())) {
+                log.warn("[createNotifications] Skipping notification for unknown user {}", request.getUserId());
+                continue;
+            }
+            Notification notification = notificationMapper.toNotification(request);
+            notification.setStatus(Notification.NotificationStatus.UNREAD);
+            notification.setCreatedAt(now);
+            notification.setUpdatedAt(now);
+            notifications.add(notification);
+        }
+
+        return notificationMapper.toNotificationResponseList(notificationRepository.saveAll(notifications));
+    }
+
     @Transactional
     public NotificationResponse updateNotificationStatus(NotificationUpdateRequest request) {
         Notification notification = notificationRepository.findById(request.getId())
@@ -183,6 +241,13 @@ public class NotificationService {
     
     @Transactional
     public NotificationResponse createNewMessageNotification(UUID userId, String senderName, String messagePreview) {
+        return createNotification(newMessageRequest(userId, senderName, messagePreview));
+    }
+
+    /**
+     * Request notification "tin nhắn mới" cho customer (dùng chung cho tạo đơn lẻ và theo lô)
+     */
+    public NotificationCreateRequest newMessageRequest(UUID userId, String senderName, String messagePreview) {
         NotificationCreateRequest request = new NotificationCreateRequest();
         request.setUserId(userId);
         request.setType(Notification.NotificationType.NEW_MESSAGE);
@@ -195,11 +260,18 @@ public class NotificationService {
         // Tin nhắn từ admin đến user không cần anchor
         request.setAnchor(null);
         
-        return createNotification(request);
+        return request;
     }
 
     @Transactional
     public NotificationResponse createGlobalNewMessageNotification(UUID senderUserId, String senderName, String messagePreview) {
+        return createNotification(globalNewMessageRequest(senderName, messagePreview));
+    }
+
+    /**
+     * Request notification global "tin nhắn mới" cho admin/manager (dùng chung cho tạo đơn lẻ và theo lô)
+     */
+    public NotificationCreateRequest globalNewMessageRequest(String senderName, String messagePreview) {
         NotificationCreateRequest request = new NotificationCreateRequest();
         request.setUserId(null); // NULL user_id for global notification
         request.setType(Notification.NotificationType.NEW_MESSAGE);
@@ -211,7 +283,7 @@ public class NotificationService {
         request.setMessage(formattedMessage);
         request.setAnchor("/admin/messages");
         
-        return createNotification(request);
+        return request;
     }
 
     @Transactional
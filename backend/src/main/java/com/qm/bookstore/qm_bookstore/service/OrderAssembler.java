@@ -0,0 +1,179 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.order.response.OrderDetailResponse;
+import com.qm.bookstore.qm_bookstore.dto.order.response.OrderItemResponse;
+import com.qm.bookstore.qm_bookstore.dto.order.response.OrderResponse;
+import com.qm.bookstore.qm_bookstore.entity.ItemType;
+import com.qm.bookstore.qm_bookstore.entity.Order;
+import com.qm.bookstore.qm_bookstore.entity.OrderItem;
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.entity.Voucher;
+import com.qm.bookstore.qm_bookstore.mapper.OrderMapper;
+import com.qm.bookstore.qm_bookstore.repository.OrderItemRepository;
+import com.qm.bookstore.qm_bookstore.repository.ProductRepository;
+import com.qm.bookstore.qm_bookstore.repository.VoucherRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Build OrderResponse / OrderDetailResponse cho một trang đơn hàng.
+ * Load toàn bộ order items của trang bằng 1 query, toàn bộ product (kèm category) bằng 1 query,
+ * sau đó map từ bộ nhớ - số query không phụ thuộc vào số đơn hay số dòng hàng.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Transactional(readOnly = true)
+public class OrderAssembler {
+
+    OrderItemRepository orderItemRepository;
+    ProductRepository productRepository;
+    VoucherRepository voucherRepository;
+    OrderMapper orderMapper;
+
+    /**
+     * Map một trang Order sang trang OrderResponse (giữ nguyên thông tin phân trang)
+     */
+    public Page<OrderResponse> toOrderResponsePage(Page<Order> orders) {
+        return new PageImpl<>(toOrderResponses(orders.getContent()), orders.getPageable(), orders.getTotalElements());
+    }
+
+    /**
+     * Map danh sách Order sang OrderResponse với số query cố định
+     */
+    public List<OrderResponse> toOrderResponses(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, List<OrderItem>> itemsByOrder = loadItemsByOrder(orders);
+        Map<Long, Product> products = loadProducts(itemsByOrder.values());
+
+        return orders.stream()
+                .map(order -> {
+                    List<OrderItem> items = itemsByOrder.getOrDefault(order.getId(), Collections.emptyList());
+                    OrderResponse response = orderMapper.toOrderResponse(order);
+                    response.setItemCount(items.size());
+                    response.setItems(toItemResponses(items, products));
+                    return response;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Map một Order sang OrderDetailResponse (items + voucher + receiver)
+     */
+    public OrderDetailResponse toOrderDetailResponse(Order order) {
+        Map<Long, List<OrderItem>> itemsByOrder = loadItemsByOrder(List.of(order));
+        Map<Long, Product> products = loadProducts(itemsByOrder.values());
+        List<OrderItem> items = itemsByOrder.getOrDefault(order.getId(), Collections.emptyList());
+
+        // Map basic order info using mapper
+        OrderDetailResponse response = orderMapper.toOrderDetailResponse(order);
+
+        // Voucher info
+        if (order.getVoucherId() != null) {
+            Voucher voucher = voucherRepository.findById(order.getVoucherId()).orElse(null);
+            if (voucher != null) {
+                OrderDetailResponse.VoucherInfo voucherInfo = OrderDetailResponse.VoucherInfo.builder()
+                        .code(voucher.getCode())
+                        .discountType(voucher.getDiscountType())
+                        .discountAmount(voucher.getDiscountAmount())
+                        .build();
+                response.setVoucher(voucherInfo);
+            }
+        }
+
+        // Receiver info
+        OrderDetailResponse.ReceiverInfo receiverInfo = OrderDetailResponse.ReceiverInfo.builder()
+                .name(order.getReceiverName())
+                .phone(order.getReceiverPhone())
+                .address(order.getReceiverAddress())
+                .build();
+        response.setReceiver(receiverInfo);
+
+        // Set items
+        response.setItems(toItemResponses(items, products));
+
+        return response;
+    }
+
+    // Helper methods
+
+    private Map<Long, List<OrderItem>> loadItemsByOrder(List<Order> orders) {
+        List<Long> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        return orderItemRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+    }
+
+    private Map<Long, Product> loadProducts(Iterable<List<OrderItem>> itemGroups) {
+        List<Long> productIds = new ArrayList<>();
+        for (List<OrderItem> items : itemGroups) {
+            items.stream()
+                    .filter(item -> item.getItemType() != ItemType.COMBO)
+                    .map(OrderItem::getProductId)
+                    .filter(Objects::nonNull)
+                    .forEach(productIds::add);
+        }
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return productRepository.findAllWithCategoryByIdIn(productIds.stream().distinct().toList()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private List<OrderItemResponse> toItemResponses(List<OrderItem> items, Map<Long, Product> products) {
+        return items.stream()
+                .map(item -> {
+                    if (item.getItemType() == ItemType.COMBO) {
+                        // Handle combo item
+                        return OrderItemResponse.builder()
+                                .itemType(ItemType.COMBO)
+                                .comboId(item.getComboId())
+                                .comboName(item.getComboName())
+                                .comboSnapshot(item.getComboSnapshot())
+                                .quantity(item.getQuantity())
+                                .unitPrice(item.getUnitPrice())
+                                .lineTotal(item.getLineTotal())
+                                .thumbnail(
+                                        item.getComboSnapshot() != null && !item.getComboSnapshot().getItems().isEmpty()
+                                                ? item.getComboSnapshot().getItems().get(0).getProductName()
+                                                : null)
+                                .build();
+                    }
+
+                    // Handle product item
+                    Product product = products.get(item.getProductId());
+                    if (product == null) {
+                        throw new NoSuchElementException("Product not found: " + item.getProductId());
+                    }
+                    return OrderItemResponse.builder()
+                            .itemType(ItemType.PRODUCT)
+                            .productId(item.getProductId())
+                            .productName(product.getName())
+                            .categoryId(item.getCategoryId())
+                            .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
+                            .quantity(item.getQuantity())
+                            .unitPrice(item.getUnitPrice())
+                            .lineTotal(item.getLineTotal())
+                            .thumbnail(product.getImageUrl())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+}
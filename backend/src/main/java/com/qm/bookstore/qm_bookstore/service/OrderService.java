@@ -1,5 +1,6 @@
 package com.qm.bookstore.qm_bookstore.service;
 
+import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
 import com.qm.bookstore.qm_bookstore.dto.order.ComboItemSnapshot;
 import com.qm.bookstore.qm_bookstore.dto.order.ComboSnapshot;
 import com.qm.bookstore.qm_bookstore.dto.order.request.CancelOrderRequest;
@@ -24,8 +25,16 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -49,6 +58,11 @@ public class OrderService {
     UserService userService;
     ShippingService shippingService;
     SystemConfigService systemConfigService;
+    OrderAssembler orderAssembler;
+    SalesRollupService salesRollupService;
+    CartStateCache cartStateCache;
+    StockReservationService stockReservationService;
+    HotStockService hotStockService;
 
     /**
      * Checkout - Tạo đơn hàng từ giỏ hàng (Updated with new schema)
@@ -57,108 +71,46 @@ public class OrderService {
         log.info("[checkout] User {} is checking out with paymentMethod={}, fulfillmentMethod={}",
                 userId, request.getPaymentMethod(), request.getFulfillmentMethod());
 
+        // Ghi các thay đổi chọn / số lượng đang chờ trong cache giỏ hàng trước khi đọc từ DB
+        cartStateCache.flush(userId, null);
+
         // Lấy cart items đã được chọn
         List<CartItem> selectedItems = cartItemRepository.findSelectedItemsByUserId(userId);
         if (selectedItems.isEmpty()) {
             throw new AppException(ErrorCode.CART_EMPTY);
         }
 
-        // Validate inventory
-        for (CartItem item : selectedItems) {
-            if (item.getItemType() == ItemType.COMBO) {
-                ProductCombo combo = productComboRepository.findByIdWithItems(item.getComboId())
-                        .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_COMBO_NOT_FOUND));
-
-                for (ProductComboItem comboItem : combo.getComboItems()) {
-                    int requiredStock = comboItem.getQuantity() * item.getQuantity();
-                    if (comboItem.getProduct().getStockQuantity() < requiredStock) {
-                        throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
-                    }
-                }
-            } else {
-                // Validate single product stock
-                Product product = productRepository.findById(item.getProductId())
-                        .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-
-                if (product.getStockQuantity() < item.getQuantity()) {
-                    throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
-                }
+        // Batch load combo (kèm items) và khóa toàn bộ product liên quan theo thứ tự id
+        // (thứ tự khóa cố định giữa các checkout đồng thời -> không deadlock)
+        Map<Integer, ProductCombo> combos = loadCombos(selectedItems);
+        Set<Long> hotIds = new HashSet<>();
+        Map<Long, Product> products = lockProducts(selectedItems, combos, hotIds);
+
+        // Validate inventory trên available-to-promise (tồn kho - hàng đang giữ cho đơn khác),
+        // gộp số lượng cần của cùng một product giữa sản phẩm lẻ và combo
+        Map<Long, Integer> requiredByProduct = validateStock(selectedItems, combos, products, hotIds);
+
+        // Hot product: lấy hàng trên stripe (theo id tăng dần), không đặt hold
+        Map<Long, Integer> stripedByProduct = new TreeMap<>();
+        requiredByProduct.keySet().removeIf(productId -> {
+            if (!hotIds.contains(productId)) {
+                return false;
             }
-        }
+            stripedByProduct.put(productId, requiredByProduct.get(productId));
+            return true;
+        });
+        stripedByProduct.forEach(hotStockService::take);
 
         // Calculate subtotal_amount và tạo OrderItems với snapshot
         BigDecimal subtotalAmount = BigDecimal.ZERO;
-        List<OrderItem> orderItems = new ArrayList<>();
+        List<OrderItem> orderItems = new ArrayList<>(selectedItems.size());
 
         for (CartItem cartItem : selectedItems) {
-            OrderItem orderItem;
-
-            if (cartItem.getItemType() == ItemType.COMBO) {
-                // Handle combo item
-                ProductCombo combo = productComboRepository.findByIdWithItems(cartItem.getComboId())
-                        .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_COMBO_NOT_FOUND));
-
-                // Create combo snapshot
-                List<ComboItemSnapshot> snapshotItems = combo.getComboItems().stream()
-                        .map(item -> ComboItemSnapshot.builder()
-                                .productId(item.getProduct().getId())
-                                .productName(item.getProduct().getName())
-                                .quantity(item.getQuantity())
-                                .productPrice(item.getProduct().getPrice())
-                                .build())
-                        .collect(Collectors.toList());
-
-                BigDecimal originalPrice = combo.getComboItems().stream()
-                        .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal discountAmountCombo = originalPrice.subtract(combo.getPrice());
-                BigDecimal discountPercentage = originalPrice.compareTo(BigDecimal.ZERO) > 0
-                        ? discountAmountCombo.divide(originalPrice, 4, RoundingMode.HALF_UP)
-                                .multiply(BigDecimal.valueOf(100))
-                        : BigDecimal.ZERO;
-
-                ComboSnapshot comboSnapshot = ComboSnapshot.builder()
-                        .items(snapshotItems)
-                        .originalPrice(originalPrice)
-                        .discountAmount(discountAmountCombo)
-                        .discountPercentage(discountPercentage)
-                        .build();
-
-                BigDecimal lineTotal = combo.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-
-                orderItem = OrderItem.builder()
-                        .comboId(combo.getId())
-                        .itemType(ItemType.COMBO)
-                        .comboName(combo.getName())
-                        .comboSnapshot(comboSnapshot)
-                        .quantity(cartItem.getQuantity())
-                        .unitPrice(combo.getPrice())
-                        .lineTotal(lineTotal)
-                        .build();
-
-                subtotalAmount = subtotalAmount.add(lineTotal);
-            } else {
-                // Handle single product (existing logic)
-                Product product = productRepository.findById(cartItem.getProductId()).orElseThrow();
-
-                // SNAPSHOT: unitPrice, categoryId
-                BigDecimal unitPrice = product.getPrice();
-                Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
-                BigDecimal lineTotal = unitPrice.multiply(new BigDecimal(cartItem.getQuantity()));
-
-                orderItem = OrderItem.builder()
-                        .productId(cartItem.getProductId())
-                        .itemType(ItemType.PRODUCT)
-                        .categoryId(categoryId)
-                        .quantity(cartItem.getQuantity())
-                        .unitPrice(unitPrice)
-                        .lineTotal(lineTotal)
-                        .build();
-
-                subtotalAmount = subtotalAmount.add(lineTotal);
-            }
+            OrderItem orderItem = cartItem.getItemType() == ItemType.COMBO
+                    ? toComboOrderItem(cartItem, combos.get(cartItem.getComboId()))
+                    : toProductOrderItem(cartItem, products.get(cartItem.getProductId()));
 
+            subtotalAmount = subtotalAmount.add(orderItem.getLineTotal());
             orderItems.add(orderItem);
         }
 
@@ -248,14 +200,14 @@ public class OrderService {
             order.setExpectedDeliveryTime(LocalDateTime.now().plusDays(3));
         }
 
+        // save() cấp id từ sequence (chưa INSERT) -> gán transferContent (QMORD{id}) ngay, ghi trong cùng lần flush
         order = orderRepository.save(order);
-        log.info("[checkout] Created order id={}", order.getId());
+        order.setTransferContent("QMORD" + order.getId());
+        log.info("[checkout] Created order id={}, transferContent={}", order.getId(), order.getTransferContent());
 
-        // 7.5. Generate and save transfer content (QMORD{id})
-        String transferContent = "QMORD" + order.getId();
-        order.setTransferContent(transferContent);
-        order = orderRepository.save(order);
-        log.info("[checkout] Generated transferContent: {}", transferContent);
+        // Giữ hàng cho đơn đến khi xuất kho / hủy đơn / hết hạn
+        stockReservationService.reserve(order.getId(), requiredByProduct);
+        stockReservationService.recordStriped(order.getId(), stripedByProduct);
 
         // 7.6. KHÔNG increment voucher tại đây nữa
         // Voucher sẽ được increment SAU KHI payment được confirm (trong validatePayment
@@ -263,12 +215,16 @@ public class OrderService {
         // Điều này đảm bảo voucher chỉ được tính khi user thực sự thanh toán
         // Nếu order bị cancel trước khi thanh toán, voucher không bị mất
 
-        // 8. Save OrderItems với orderId
+        // 8. Save OrderItems với orderId (id lấy từ sequence theo khối -> order + items được INSERT theo batch
+        // trong cùng một lần flush)
         for (OrderItem orderItem : orderItems) {
             orderItem.setOrderId(order.getId());
         }
         orderItemRepository.saveAll(orderItems);
 
+        // Cập nhật bảng tổng hợp doanh số theo ngày
+        salesRollupService.onOrderCreated(order, orderItems);
+
         // 9. [REMOVED] Update product inventory - Giờ sử dụng
         // InventoryTransactionService
         // Inventory sẽ được trừ thông qua API
@@ -277,6 +233,7 @@ public class OrderService {
 
         // 10. Remove selected items from cart
         cartItemRepository.deleteSelectedItemsByUserId(userId);
+        cartStateCache.invalidate(userId, null);
 
         // 11. Generate payment URL (if prepaid) & map response
         CheckoutResponse response = orderMapper.toCheckoutResponse(order);
@@ -287,6 +244,149 @@ public class OrderService {
         return response;
     }
 
+    /**
+     * Batch load các combo trong giỏ kèm combo items (product của item để lazy, sẽ được nạp khi khóa)
+     */
+    private Map<Integer, ProductCombo> loadCombos(List<CartItem> cartItems) {
+        List<Integer> comboIds = cartItems.stream()
+                .filter(item -> item.getItemType() == ItemType.COMBO)
+                .map(CartItem::getComboId)
+                .distinct()
+                .collect(Collectors.toList());
+        if (comboIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Integer, ProductCombo> combos = productComboRepository.findAllWithComboItemsByIdIn(comboIds).stream()
+                .collect(Collectors.toMap(ProductCombo::getId, Function.identity()));
+        if (combos.size() < comboIds.size()) {
+            throw new AppException(ErrorCode.PRODUCT_COMBO_NOT_FOUND);
+        }
+        return combos;
+    }
+
+    /**
+     * Khóa tất cả product được tham chiếu (sản phẩm lẻ + thành phần combo) bằng 1 query FOR UPDATE theo id tăng dần.
+     * Hot product không bị khóa (tồn kho được trừ trên stripe - HotStockService), id của chúng được ghi vào hotIds
+     */
+    private Map<Long, Product> lockProducts(List<CartItem> cartItems, Map<Integer, ProductCombo> combos,
+                                            Set<Long> hotIds) {
+        Set<Long> productIds = new TreeSet<>();
+        for (CartItem item : cartItems) {
+            if (item.getItemType() == ItemType.COMBO) {
+                combos.get(item.getComboId()).getComboItems()
+                        .forEach(comboItem -> productIds.add(comboItem.getProduct().getId()));
+            } else {
+                productIds.add(item.getProductId());
+            }
+        }
+
+        int expected = productIds.size();
+        hotIds.addAll(hotStockService.hotProductIds(productIds));
+        productIds.removeAll(hotIds);
+
+        Map<Long, Product> products = productRepository.lockAllByIdInOrderById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        if (!hotIds.isEmpty()) {
+            productRepository.findAllById(hotIds).forEach(product -> products.put(product.getId(), product));
+        }
+        if (products.size() < expected) {
+            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+        }
+        // Bật hot (giữ khóa dòng product) đã commit trong lúc chờ khóa -> product đó đi theo stripe
+        hotIds.addAll(hotStockService.hotProductIds(productIds));
+        return products;
+    }
+
+    /**
+     * Kiểm tra tồn kho trên dữ liệu đã khóa: tổng số lượng cần của mỗi product không vượt quá
+     * available-to-promise. Trả về số lượng cần theo product (dùng để đặt hold)
+     */
+    private Map<Long, Integer> validateStock(List<CartItem> cartItems, Map<Integer, ProductCombo> combos,
+                               Map<Long, Product> products, Set<Long> hotIds) {
+        Map<Long, Integer> required = new HashMap<>();
+        for (CartItem item : cartItems) {
+            if (item.getItemType() == ItemType.COMBO) {
+                for (ProductComboItem comboItem : combos.get(item.getComboId()).getComboItems()) {
+                    required.merge(comboItem.getProduct().getId(),
+                            comboItem.getQuantity() * item.getQuantity(), Integer::sum);
+                }
+            } else {
+                required.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+
+        // Hot product được kiểm tra khi lấy hàng trên stripe
+        Map<Long, Integer> available = stockReservationService.availableToPromise(required.keySet().stream()
+                .filter(productId -> !hotIds.contains(productId))
+                .map(products::get)
+                .collect(Collectors.toList()));
+        available.forEach((productId, atp) -> {
+            if (atp < required.get(productId)) {
+                throw new AppException(ErrorCode.INSUFFICIENT_STOCK);
+            }
+        });
+        return required;
+    }
+
+    /**
+     * OrderItem cho combo - snapshot giá và thành phần combo tại thời điểm đặt
+     */
+    private OrderItem toComboOrderItem(CartItem cartItem, ProductCombo combo) {
+        List<ComboItemSnapshot> snapshotItems = combo.getComboItems().stream()
+                .map(item -> ComboItemSnapshot.builder()
+                        .productId(item.getProduct().getId())
+                        .productName(item.getProduct().getName())
+                        .quantity(item.getQuantity())
+                        .productPrice(item.getProduct().getPrice())
+                        .build())
+                .collect(Collectors.toList());
+
+        BigDecimal originalPrice = combo.getComboItems().stream()
+                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        BigDecimal discountAmountCombo = originalPrice.subtract(combo.getPrice());
+        BigDecimal discountPercentage = originalPrice.compareTo(BigDecimal.ZERO) > 0
+                ? discountAmountCombo.divide(originalPrice, 4, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.valueOf(100))
+                : BigDecimal.ZERO;
+
+        ComboSnapshot comboSnapshot = ComboSnapshot.builder()
+                .items(snapshotItems)
+                .originalPrice(originalPrice)
+                .discountAmount(discountAmountCombo)
+                .discountPercentage(discountPercentage)
+                .build();
+
+        return OrderItem.builder()
+                .comboId(combo.getId())
+                .itemType(ItemType.COMBO)
+                .comboName(combo.getName())
+                .comboSnapshot(comboSnapshot)
+                .quantity(cartItem.getQuantity())
+                .unitPrice(combo.getPrice())
+                .lineTotal(combo.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())))
+                .build();
+    }
+
+    /**
+     * OrderItem cho sản phẩm lẻ - SNAPSHOT: unitPrice, categoryId
+     */
+    private OrderItem toProductOrderItem(CartItem cartItem, Product product) {
+        BigDecimal unitPrice = product.getPrice();
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+
+        return OrderItem.builder()
+                .productId(cartItem.getProductId())
+                .itemType(ItemType.PRODUCT)
+                .categoryId(categoryId)
+                .quantity(cartItem.getQuantity())
+                .unitPrice(unitPrice)
+                .lineTotal(unitPrice.multiply(new BigDecimal(cartItem.getQuantity())))
+                .build();
+    }
+
     /**
      * Get my orders with pagination (Updated with new status filters)
      */
@@ -298,7 +398,7 @@ public class OrderService {
         Page<Order> orders = orderRepository.findByUserIdAndStatuses(
                 userId, paymentStatus, fulfillmentStatus, orderStatus, pageable);
 
-        return orders.map(this::mapToOrderResponse);
+        return orderAssembler.toOrderResponsePage(orders);
     }
 
     /**
@@ -312,7 +412,41 @@ public class OrderService {
         Page<Order> orders = orderRepository.findByStatuses(
                 paymentStatus, fulfillmentStatus, orderStatus, pageable);
 
-        return orders.map(this::mapToOrderResponse);
+        return orderAssembler.toOrderResponsePage(orders);
+    }
+
+    /**
+     * Get my orders - chế độ cursor (keyset, mới nhất trước, không đếm tổng)
+     */
+    public BaseGetAllResponse<OrderResponse> getMyOrdersAfter(UUID userId, String paymentStatus,
+            String fulfillmentStatus, String orderStatus, String after, int size) {
+        KeysetCursor.Position position = KeysetCursor.decode(after);
+        List<Order> orders = position.isFirst()
+                ? orderRepository.findByUserIdAndStatusesFirst(
+                        userId, paymentStatus, fulfillmentStatus, orderStatus, KeysetCursor.limit(size))
+                : orderRepository.findByUserIdAndStatusesAfter(
+                        userId, paymentStatus, fulfillmentStatus, orderStatus,
+                        position.createdAt(), position.idAsLong(), KeysetCursor.limit(size));
+
+        return KeysetCursor.toResponse(orders, size, Order::getCreatedAt, Order::getId,
+                orderAssembler::toOrderResponses);
+    }
+
+    /**
+     * Get all orders (Admin/Manager) - chế độ cursor (keyset, mới nhất trước, không đếm tổng)
+     */
+    public BaseGetAllResponse<OrderResponse> getAllOrdersAfter(String paymentStatus, String fulfillmentStatus,
+            String orderStatus, String after, int size) {
+        KeysetCursor.Position position = KeysetCursor.decode(after);
+        List<Order> orders = position.isFirst()
+                ? orderRepository.findByStatusesFirst(
+                        paymentStatus, fulfillmentStatus, orderStatus, KeysetCursor.limit(size))
+                : orderRepository.findByStatusesAfter(
+                        paymentStatus, fulfillmentStatus, orderStatus,
+                        position.createdAt(), position.idAsLong(), KeysetCursor.limit(size));
+
+        return KeysetCursor.toResponse(orders, size, Order::getCreatedAt, Order::getId,
+                orderAssembler::toOrderResponses);
     }
 
     /**
@@ -334,7 +468,7 @@ public class OrderService {
             throw new AppException(ErrorCode.ORDER_ACCESS_DENIED);
         }
 
-        return mapToOrderDetailResponse(order);
+        return orderAssembler.toOrderDetailResponse(order);
     }
 
     /**
@@ -360,9 +494,14 @@ public class OrderService {
         }
 
         // Update order status
+        SalesRollupService.RollupKey rollupKey = salesRollupService.keyOf(order);
         order.setOrderStatus("cancelled");
         order.setCancelReason(request.getReason()); // Save cancel reason
         orderRepository.save(order);
+        salesRollupService.onOrderStateChanged(rollupKey, order);
+
+        // Trả hàng đang giữ cho đơn (phần lấy từ stripe của hot product được trả lại stripe)
+        hotStockService.giveBack(stockReservationService.release(orderId));
 
         log.info("[cancelOrder] Order {} cancelled successfully", orderId);
     }
@@ -427,10 +566,12 @@ public class OrderService {
         log.info("[validatePayment] Found transaction {} for order {}", transaction.getId(), orderId);
 
         // Update order status
+        SalesRollupService.RollupKey rollupKey = salesRollupService.keyOf(order);
         order.setPaymentStatus("paid");
         order.setTransactionId(transaction.getId());
         order.setTransferContent(expectedTransferContent);
         orderRepository.save(order);
+        salesRollupService.onOrderStateChanged(rollupKey, order);
 
         // Update transaction verified status
         transaction.setVerified(true);
@@ -472,6 +613,7 @@ public class OrderService {
 
         String oldPaymentStatus = order.getPaymentStatus();
         String oldOrderStatus = order.getOrderStatus();
+        SalesRollupService.RollupKey rollupKey = salesRollupService.keyOf(order);
 
         log.info("[updateOrderStatus] Old statuses - payment: '{}', order: '{}'", oldPaymentStatus, oldOrderStatus);
         log.info("[updateOrderStatus] New statuses - payment: '{}', order: '{}'", request.getPaymentStatus(),
@@ -486,6 +628,11 @@ public class OrderService {
         }
         if (request.getOrderStatus() != null) {
             order.setOrderStatus(request.getOrderStatus());
+
+            // Admin hủy đơn -> trả hàng đang giữ
+            if ("cancelled".equalsIgnoreCase(request.getOrderStatus())) {
+                hotStockService.giveBack(stockReservationService.release(orderId));
+            }
         }
 
         // Cập nhật tổng chi tiêu khi thanh toán thành công
@@ -532,6 +679,7 @@ public class OrderService {
         }
 
         orderRepository.save(order);
+        salesRollupService.onOrderStateChanged(rollupKey, order);
         log.info("[updateOrderStatus] Order {} updated successfully", orderId);
     }
 
@@ -574,119 +722,4 @@ public class OrderService {
                 .unavailableProducts(unavailable)
                 .build();
     }
-
-    // Helper methods
-
-    private OrderResponse mapToOrderResponse(Order order) {
-        List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-
-        List<OrderItemResponse> itemResponses = items.stream()
-                .map(item -> {
-                    if (item.getItemType() == ItemType.COMBO) {
-                        // Handle combo item
-                        return OrderItemResponse.builder()
-                                .itemType(ItemType.COMBO)
-                                .comboId(item.getComboId())
-                                .comboName(item.getComboName())
-                                .comboSnapshot(item.getComboSnapshot())
-                                .quantity(item.getQuantity())
-                                .unitPrice(item.getUnitPrice())
-                                .lineTotal(item.getLineTotal())
-                                .thumbnail(
-                                        item.getComboSnapshot() != null && !item.getComboSnapshot().getItems().isEmpty()
-                                                ? item.getComboSnapshot().getItems().get(0).getProductName()
-                                                : null)
-                                .build();
-                    } else {
-                        // Handle product item
-                        Product product = productRepository.findById(item.getProductId()).orElseThrow();
-                        return OrderItemResponse.builder()
-                                .itemType(ItemType.PRODUCT)
-                                .productId(item.getProductId())
-                                .productName(product.getName())
-                                .categoryId(item.getCategoryId())
-                                .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
-                                .quantity(item.getQuantity())
-                                .unitPrice(item.getUnitPrice())
-                                .lineTotal(item.getLineTotal())
-                                .thumbnail(product.getImageUrl())
-                                .build();
-                    }
-                })
-                .collect(Collectors.toList());
-
-        OrderResponse response = orderMapper.toOrderResponse(order);
-        response.setItemCount(items.size());
-        response.setItems(itemResponses);
-
-        return response;
-    }
-
-    private OrderDetailResponse mapToOrderDetailResponse(Order order) {
-        List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-
-        List<OrderItemResponse> itemResponses = items.stream()
-                .map(item -> {
-                    if (item.getItemType() == ItemType.COMBO) {
-                        // Handle combo item
-                        return OrderItemResponse.builder()
-                                .itemType(ItemType.COMBO)
-                                .comboId(item.getComboId())
-                                .comboName(item.getComboName())
-                                .comboSnapshot(item.getComboSnapshot())
-                                .quantity(item.getQuantity())
-                                .unitPrice(item.getUnitPrice())
-                                .lineTotal(item.getLineTotal())
-                                .thumbnail(
-                                        item.getComboSnapshot() != null && !item.getComboSnapshot().getItems().isEmpty()
-                                                ? item.getComboSnapshot().getItems().get(0).getProductName()
-                                                : null)
-                                .build();
-                    } else {
-                        // Handle product item
-                        Product product = productRepository.findById(item.getProductId()).orElseThrow();
-                        return OrderItemResponse.builder()
-                                .itemType(ItemType.PRODUCT)
-                                .productId(item.getProductId())
-                                .productName(product.getName())
-                                .categoryId(item.getCategoryId())
-                                .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
-                                .quantity(item.getQuantity())
-                                .unitPrice(item.getUnitPrice())
-                                .lineTotal(item.getLineTotal())
-                                .thumbnail(product.getImageUrl())
-                                .build();
-                    }
-                })
-                .collect(Collectors.toList());
-
-        // Map basic order info using mapper
-        OrderDetailResponse response = orderMapper.toOrderDetailResponse(order);
-
-        // Voucher info
-        if (order.getVoucherId() != null) {
-            Voucher voucher = voucherRepository.findById(order.getVoucherId()).orElse(null);
-            if (voucher != null) {
-                OrderDetailResponse.VoucherInfo voucherInfo = OrderDetailResponse.VoucherInfo.builder()
-                        .code(voucher.getCode())
-                        .discountType(voucher.getDiscountType())
-                        .discountAmount(voucher.getDiscountAmount())
-                        .build();
-                response.setVoucher(voucherInfo);
-            }
-        }
-
-        // Receiver info
-        OrderDetailResponse.ReceiverInfo receiverInfo = OrderDetailResponse.ReceiverInfo.builder()
-                .name(order.getReceiverName())
-                .phone(order.getReceiverPhone())
-                .address(order.getReceiverAddress())
-                .build();
-        response.setReceiver(receiverInfo);
-
-        // Set items
-        response.setItems(itemResponses);
-
-        return response;
-    }
 }
@@ -0,0 +1,436 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.chat.ConversationUpdate;
+import com.qm.bookstore.qm_bookstore.dto.chat.PresenceDiff;
+import com.qm.bookstore.qm_bookstore.dto.chat.response.PresenceResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sổ trạng thái online (presence) trong bộ nhớ, cập nhật từ sự kiện STOMP connect/disconnect.
+ *
+ * - một user có thể có nhiều session (nhiều tab/thiết bị): online khi còn ít nhất 1 session
+ * - session gắn với user theo principal đã xác thực lúc CONNECT (userId trong access token - WebSocketConfig)
+ * - mọi frame inbound của session (kể cả heartbeat) làm mới lastSeen; session im lặng quá session-ttl bị coi là đã
+ *   rời đi (mất sự kiện disconnect, mạng di động rớt)
+ * - thay đổi chỉ được gửi khi trạng thái của user đã ổn định trong debounce: online -> offline -> online
+ *   trong cửa sổ debounce không tạo sự kiện nào
+ * - mỗi publish-interval-ms gửi 1 PresenceDiff (các user đổi trạng thái) tới /topic/admin-presence
+ *   và ConversationUpdate user_status tới /topic/conversation/{userId} của user đó
+ * - getOnlineUsers()/getPresence() đọc trực tiếp từ bộ nhớ, không truy cập database
+ *
+ * Mỗi instance theo dõi session kết nối tới nó. Principal của session có tên = userId
+ * nên SimpUserRegistry biết user ở mọi instance (chế độ relay: registry được đồng bộ định kỳ qua
+ * broker). Khi chạy nhiều instance:
+ * - user không còn session ở instance này nhưng còn session ở instance khác -> không gửi "offline"
+ *   (instance đang giữ session sẽ gửi khi user thật sự rời đi); "offline" chỉ được gửi sau cluster-offline-delay
+ *   để registry kịp nhận session mới ở instance khác (chuyển instance, nhiều tab)
+ * - onlineCount, getOnlineUsers() và sessionCount tính trên toàn cụm (session cục bộ còn sống + session của
+ *   instance khác trong registry; session cục bộ đã hết hạn không được tính là session ở xa)
+ * - diff mang tên instance gửi (node)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceService {
+
+    public static final String ADMIN_PRESENCE_TOPIC = "/topic/admin-presence";
+    public static final String STATUS_ONLINE = "online";
+    public static final String STATUS_OFFLINE = "offline";
+    // Session attribute: username trong access token (WebSocketConfig gán lúc CONNECT)
+    public static final String USERNAME_ATTRIBUTE = "presence.username";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // Chế độ relay: chờ registry đồng bộ (mặc định broadcast 10s, hết hạn 20s) trước khi gửi "offline"
+    @Value("${chat.presence.cluster-offline-delay:25s}")
+    private Duration clusterOfflineDelay;
+
+    @Value("${chat.presence.session-ttl:90s}")
+    private Duration sessionTtl;
+
+    @Value("${chat.presence.debounce:5s}")
+    private Duration debounce;
+
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+
+    // sessionId -> session
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Mọi session kết nối tới instance này cho tới khi disconnect (kể cả session đã hết hạn vì im lặng - vẫn nằm
+    // trong registry cục bộ): session trong SimpUserRegistry không thuộc tập này mới là session ở instance khác
+    private final Set<String> localSessionIds = ConcurrentHashMap.newKeySet();
+    // userId -> presence
+    private final Map<UUID, Presence> users = new ConcurrentHashMap<>();
+    // User đổi trạng thái, chờ gửi
+    private final Set<UUID> dirty = new HashSet<>();
+    // userId -> trạng thái đã gửi lần cuối (không có = offline)
+    private final Map<UUID, String> published = new HashMap<>();
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return;
+        }
+        localSessionIds.add(sessionId);
+        sessions.putIfAbsent(sessionId, new Session());
+
+        String name = event.getUser() != null ? normalizeUserId(event.getUser().getName()) : null;
+        if (name != null) {
+            Map<String, Object> attributes = accessor.getSessionAttributes();
+            String username = attributes != null ? (String) attributes.get(USERNAME_ATTRIBUTE) : null;
+            bind(sessionId, UUID.fromString(name), username);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        removeSession(event.getSessionId());
+        if (event.getSessionId() != null) {
+            localSessionIds.remove(event.getSessionId());
+        }
+    }
+
+    /**
+     * Làm mới lastSeen của session (gọi cho mọi frame inbound, không khóa)
+     */
+    public void touch(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            session.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Cập nhật trạng thái do client/admin khai báo ("online", "away", "busy", "offline").
+     * sessionId khác null: gắn session đó với user (tin nhắn /app/user-status)
+     */
+    public synchronized void updateStatus(UUID userId, String username, String status, String sessionId) {
+        if (userId == null) {
+            return;
+        }
+        if (sessionId != null) {
+            bind(sessionId, userId, username);
+        }
+        Presence presence = users.get(userId);
+        if (presence == null) {
+            // User không có session trên instance này -> vẫn là offline
+            return;
+        }
+        String before = presence.effectiveStatus();
+        presence.declaredStatus = status != null ? status.toLowerCase() : null;
+        if (username != null) {
+            presence.username = username;
+        }
+        if (!before.equals(presence.effectiveStatus())) {
+            markChanged(userId, presence);
+        }
+    }
+
+    /**
+     * Danh sách user đang online trên toàn cụm (session cục bộ + SimpUserRegistry, chưa debounce)
+     */
+    public List<PresenceResponse> getOnlineUsers() {
+        Map<UUID, PresenceResponse> online = new HashMap<>();
+        users.forEach((userId, presence) -> {
+            synchronized (this) {
+                if (!presence.sessionIds.isEmpty()) {
+                    online.put(userId, toResponse(userId, presence));
+                }
+            }
+        });
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            String name = normalizeUserId(user.getName());
+            int remote = remoteSessionCount(user);
+            if (name == null || remote == 0) {
+                continue;
+            }
+            online.computeIfAbsent(UUID.fromString(name), userId -> PresenceResponse.builder()
+                    .userId(userId)
+                    .status(STATUS_ONLINE)
+                    .sessionCount(remote)
+                    .build());
+        }
+
+        List<PresenceResponse> result = new ArrayList<>(online.values());
+        result.sort(Comparator.comparing(PresenceResponse::getOnlineSince,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Trạng thái của một user (offline nếu không có session)
+     */
+    public synchronized PresenceResponse getPresence(UUID userId) {
+        Presence presence = users.get(userId);
+        if (presence == null || presence.sessionIds.isEmpty()) {
+            int remote = remoteSessionCount(userId);
+            return PresenceResponse.builder()
+                    .userId(userId)
+                    .username(presence != null ? presence.username : null)
+                    .status(remote > 0 ? STATUS_ONLINE : STATUS_OFFLINE)
+                    .sessionCount(remote)
+                    .lastSeen(presence != null ? presence.lastSeen : null)
+                    .build();
+        }
+        return toResponse(userId, presence);
+    }
+
+    public boolean isOnline(UUID userId) {
+        return !STATUS_OFFLINE.equals(getPresence(userId).getStatus());
+    }
+
+    /**
+     * Job định kỳ: loại session hết hạn, gửi các thay đổi đã ổn định qua debounce
+     */
+    @Scheduled(fixedDelayString = "${chat.presence.publish-interval-ms:2000}")
+    public void publish() {
+        List<PresenceResponse> changed = new ArrayList<>();
+        int onlineCount;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            expireSessions(now);
+
+            var iterator = dirty.iterator();
+            while (iterator.hasNext()) {
+                UUID userId = iterator.next();
+                Presence presence = users.get(userId);
+                if (presence == null) {
+                    iterator.remove();
+                    continue;
+                }
+                if (now - presence.changedAt < debounce.toMillis()) {
+                    continue;
+                }
+
+                String status = presence.effectiveStatus();
+                if (STATUS_OFFLINE.equals(status) && isClustered()) {
+                    if (remoteSessionCount(userId) > 0) {
+                        // User còn session ở instance khác - instance đó gửi trạng thái, không gửi "offline" ở đây
+                        iterator.remove();
+                        published.remove(userId);
+                        users.remove(userId);
+                        continue;
+                    }
+                    if (now - presence.changedAt < clusterOfflineDelay.toMillis()) {
+                        continue;
+                    }
+                }
+                iterator.remove();
+
+                if (!status.equals(published.getOrDefault(userId, STATUS_OFFLINE))) {
+                    changed.add(toResponse(userId, presence));
+                    if (STATUS_OFFLINE.equals(status)) {
+                        published.remove(userId);
+                    } else {
+                        published.put(userId, status);
+                    }
+                }
+                if (presence.sessionIds.isEmpty()) {
+                    users.remove(userId);
+                }
+            }
+            onlineCount = countOnline();
+        }
+
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSend(ADMIN_PRESENCE_TOPIC, PresenceDiff.builder()
+                    .changed(changed)
+                    .node(node)
+                    .onlineCount(onlineCount)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+            for (PresenceResponse presence : changed) {
+                messagingTemplate.convertAndSend("/topic/conversation/" + presence.getUserId(),
+                        ConversationUpdate.userStatus(presence.getUserId(), presence.getStatus(), presence.getUsername()));
+            }
+            log.debug("[publish] Sent presence diff with {} changes ({} online)", changed.size(), onlineCount);
+        } catch (Exception e) {
+            log.error("[publish] Failed to send presence diff: {}", e.getMessage(), e);
+        }
+    }
+
+    // Helper methods
+
+    private synchronized void bind(String sessionId, UUID userId, String username) {
+        Session session = sessions.computeIfAbsent(sessionId, id -> new Session());
+        session.lastSeen = System.currentTimeMillis();
+        if (userId.equals(session.userId)) {
+            return;
+        }
+        if (session.userId != null) {
+            detach(sessionId, session.userId);
+        }
+        session.userId = userId;
+
+        Presence presence = users.computeIfAbsent(userId, id -> new Presence());
+        if (username != null) {
+            presence.username = username;
+        }
+        if (presence.sessionIds.isEmpty()) {
+            presence.onlineSince = LocalDateTime.now();
+            presence.declaredStatus = null;
+            markChanged(userId, presence);
+        }
+        presence.sessionIds.add(sessionId);
+    }
+
+    private synchronized void removeSession(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Session session = sessions.remove(sessionId);
+        if (session != null && session.userId != null) {
+            detach(sessionId, session.userId);
+        }
+    }
+
+    private void detach(String sessionId, UUID userId) {
+        Presence presence = users.get(userId);
+        if (presence == null) {
+            return;
+        }
+        presence.sessionIds.remove(sessionId);
+        if (presence.sessionIds.isEmpty()) {
+            presence.lastSeen = LocalDateTime.now();
+            markChanged(userId, presence);
+        }
+    }
+
+    private void expireSessions(long now) {
+        List<String> expired = sessions.entrySet().stream()
+                .filter(entry -> now - entry.getValue().lastSeen > sessionTtl.toMillis())
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!expired.isEmpty()) {
+            log.info("[expireSessions] Expiring {} silent WebSocket sessions", expired.size());
+            expired.forEach(this::removeSession);
+        }
+    }
+
+    private void markChanged(UUID userId, Presence presence) {
+        presence.changedAt = System.currentTimeMillis();
+        dirty.add(userId);
+    }
+
+    private PresenceResponse toResponse(UUID userId, Presence presence) {
+        LocalDateTime lastSeen = presence.lastSeen;
+        if (!presence.sessionIds.isEmpty()) {
+            long latest = presence.sessionIds.stream()
+                    .map(sessions::get)
+                    .filter(session -> session != null)
+                    .mapToLong(session -> session.lastSeen)
+                    .max()
+                    .orElse(System.currentTimeMillis());
+            lastSeen = LocalDateTime.ofInstant(Instant.ofEpochMilli(latest), ZoneId.systemDefault());
+        }
+        return PresenceResponse.builder()
+                .userId(userId)
+                .username(presence.username)
+                .status(presence.effectiveStatus())
+                .sessionCount(presence.sessionIds.size() + remoteSessionCount(userId))
+                .onlineSince(presence.sessionIds.isEmpty() ? null : presence.onlineSince)
+                .lastSeen(lastSeen)
+                .build();
+    }
+
+    private boolean isClustered() {
+        return "relay".equalsIgnoreCase(brokerMode);
+    }
+
+    // Số session của user ở instance khác (theo SimpUserRegistry)
+    private int remoteSessionCount(UUID userId) {
+        SimpUser user = simpUserRegistry.getUser(userId.toString());
+        return user != null ? remoteSessionCount(user) : 0;
+    }
+
+    private int remoteSessionCount(SimpUser user) {
+        return (int) user.getSessions().stream()
+                .filter(session -> !localSessionIds.contains(session.getId()))
+                .count();
+    }
+
+    // Số user online trên toàn cụm: user có session cục bộ + user trong registry
+    private int countOnline() {
+        Set<UUID> online = new HashSet<>();
+        users.forEach((userId, presence) -> {
+            if (!presence.sessionIds.isEmpty()) {
+                online.add(userId);
+            }
+        });
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            String name = normalizeUserId(user.getName());
+            if (name != null && remoteSessionCount(user) > 0) {
+                online.add(UUID.fromString(name));
+            }
+        }
+        return online.size();
+    }
+
+    /**
+     * Chuẩn hóa userId (UUID) từ header / tên principal; null nếu không hợp lệ
+     */
+    public static String normalizeUserId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value.trim()).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Session {
+        private volatile UUID userId;
+        private volatile long lastSeen = System.currentTimeMillis();
+    }
+
+    private static final class Presence {
+        private final Set<String> sessionIds = new HashSet<>();
+        private String username;
+        private String declaredStatus;
+        private LocalDateTime onlineSince;
+        private LocalDateTime lastSeen;
+        private long changedAt;
+
+        private String effectiveStatus() {
+            if (sessionIds.isEmpty()) {
+                return STATUS_OFFLINE;
+            }
+            return declaredStatus != null ? declaredStatus : STATUS_ONLINE;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.entity.ProductSearchDocument;
+import com.qm.bookstore.qm_bookstore.repository.ProductSearchDocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục tìm kiếm full-text cho product (PostgreSQL tsvector + GIN, bảng product_search_documents).
+ *
+ * - tên, thương hiệu, SKU, mô tả ngắn được bỏ dấu tiếng Việt + chữ thường trước khi đánh chỉ mục;
+ *   từ khóa tìm kiếm được chuẩn hóa cùng cách -> "sach" khớp "Sách", "dac nhan tam" khớp "Đắc Nhân Tâm"
+ * - từ khóa được dựng thành tsquery AND theo tiền tố ("nha gia" khớp "nhà giả kim")
+ * - ProductService gọi index / remove khi tạo / sửa / xóa product (cùng transaction);
+ *   product chưa có tài liệu được backfill khi khởi động
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+
+    private final ProductSearchDocumentRepository productSearchDocumentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${product.search.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    /**
+     * Bỏ dấu tiếng Việt, chữ thường, chỉ giữ chữ và số (các ký tự khác thành khoảng trắng)
+     */
+    public static String fold(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase();
+        return NON_WORD.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    /**
+     * Dựng tsquery (cấu hình 'simple') từ từ khóa người dùng: các từ AND với nhau, khớp theo tiền tố.
+     * Trả về null nếu từ khóa không có từ nào (không lọc theo tìm kiếm)
+     */
+    public static String toTsQuery(String keyword) {
+        String folded = fold(keyword);
+        if (folded.isEmpty()) {
+            return null;
+        }
+        return Arrays.stream(folded.split(" "))
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    /**
+     * Tạo / cập nhật tài liệu tìm kiếm của product (gọi trong transaction tạo / sửa product)
+     */
+    public void index(Product product) {
+        productSearchDocumentRepository.save(toDocument(product));
+    }
+
+    /**
+     * Xóa tài liệu tìm kiếm của product (gọi trong transaction xóa product)
+     */
+    public void remove(Long productId) {
+        if (productSearchDocumentRepository.existsById(productId)) {
+            productSearchDocumentRepository.deleteById(productId);
+        }
+    }
+
+    /**
+     * Khi khởi động: tạo GIN index cho search_vector (Hibernate không sinh được) và backfill product chưa có tài liệu
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_product_search_vector "
+                    + "ON product_search_documents USING GIN (search_vector)");
+
+            int total = 0;
+            while (true) {
+                Integer indexed = transactionTemplate.execute(status -> {
+                    List<Product> batch = productSearchDocumentRepository.findUnindexedProducts(
+                            PageRequest.of(0, backfillBatchSize));
+                    productSearchDocumentRepository.saveAll(batch.stream()
+                            .map(this::toDocument)
+                            .collect(Collectors.toList()));
+                    return batch.size();
+                });
+                if (indexed == null || indexed == 0) {
+                    break;
+                }
+                total += indexed;
+            }
+            if (total > 0) {
+                log.info("[initialize] Backfilled search documents for {} products", total);
+            }
+        } catch (RuntimeException e) {
+            log.error("[initialize] Failed to initialize product search index: {}", e.getMessage());
+        }
+    }
+
+    // Helper methods
+
+    private ProductSearchDocument toDocument(Product product) {
+        String sku = product.getSku() != null ? product.getSku() : "";
+        return ProductSearchDocument.builder()
+                .productId(product.getId())
+                .nameText(fold(product.getName()))
+                .brandText(fold(product.getBrand()))
+                // SKU vừa tách theo ký tự phân cách vừa viết liền: "BK-001" khớp "bk 001" và "bk001"
+                .skuText((fold(sku) + " " + fold(sku).replace(" ", "")).trim())
+                .descriptionText(fold(product.getShortDescription()))
+                .build();
+    }
+}
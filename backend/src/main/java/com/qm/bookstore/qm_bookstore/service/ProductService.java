@@ -1,9 +1,11 @@
 package com.qm.bookstore.qm_bookstore.service;
 
 import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
+import com.qm.bookstore.qm_bookstore.dto.product.request.ProductBrowseRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductCreateRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductGetAllRequest;
 import com.qm.bookstore.qm_bookstore.dto.product.request.ProductUpdateRequest;
+import com.qm.bookstore.qm_bookstore.dto.product.response.ProductBrowseResponse;
 import com.qm.bookstore.qm_bookstore.dto.product.response.ProductResponse;
 import com.qm.bookstore.qm_bookstore.entity.Category;
 import com.qm.bookstore.qm_bookstore.entity.Product;
@@ -14,7 +16,9 @@ import com.qm.bookstore.qm_bookstore.repository.CategoryRepository;
 import com.qm.bookstore.qm_bookstore.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +40,12 @@ public class ProductService {
     CategoryRepository categoryRepository;
     ProductMapper productMapper;
     PriceHistoryService priceHistoryService;
+    ProductSearchIndex productSearchIndex;
+    CatalogIndex catalogIndex;
+
+    @NonFinal
+    @Value("${product.search.max-results:100}")
+    int searchMaxResults;
 
     public ProductResponse getProductById(Long productId) {
         Product product = productRepository.findById(productId)
@@ -44,6 +54,35 @@ public class ProductService {
     }
 
     public BaseGetAllResponse<ProductResponse> getAllProducts(ProductGetAllRequest request) {
+        // Chế độ cursor: keyset (createdAt DESC, id DESC), không OFFSET / COUNT
+        if (request.isCursorMode()) {
+            KeysetCursor.Position after = KeysetCursor.decode(request.getAfter());
+            String query = ProductSearchIndex.toTsQuery(request.getName());
+            List<Product> rows = after.isFirst()
+                ? productRepository.findProductsWithFiltersFirst(
+                    query,
+                    request.getSku(),
+                    request.getCategoryId(),
+                    request.getBrand(),
+                    request.getMinPrice(),
+                    request.getMaxPrice(),
+                    request.getAvailability(),
+                    KeysetCursor.limit(request.getMaxResultCount()))
+                : productRepository.findProductsWithFiltersAfter(
+                    query,
+                    request.getSku(),
+                    request.getCategoryId(),
+                    request.getBrand(),
+                    request.getMinPrice(),
+                    request.getMaxPrice(),
+                    request.getAvailability(),
+                    after.createdAt(),
+                    after.idAsLong(),
+                    KeysetCursor.limit(request.getMaxResultCount()));
+            return KeysetCursor.toResponse(rows, request.getMaxResultCount(),
+                Product::getCreatedAt, Product::getId, productMapper::toProductResponseList);
+        }
+
         // Create pageable with field name mapping for native query
         Sort sort = Sort.unsorted();
         if (request.getSortBy() != null && !request.getSortBy().isEmpty()) {
@@ -61,17 +100,43 @@ public class ProductService {
             sort
         );
 
-        // Get products with filters
-        Page<Product> productPage = productRepository.findProductsWithFilters(
-            request.getName(),
-            request.getSku(),
-            request.getCategoryId(),
-            request.getBrand(),
-            request.getMinPrice(),
-            request.getMaxPrice(),
-            request.getAvailability(),
-            pageable
-        );
+        // Có từ khóa -> tìm kiếm full-text (không dấu, xếp theo độ liên quan nếu không chọn sortBy)
+        String query = ProductSearchIndex.toTsQuery(request.getName());
+        Page<Product> productPage;
+        if (query == null) {
+            productPage = productRepository.findProductsWithFilters(
+                request.getName(),
+                request.getSku(),
+                request.getCategoryId(),
+                request.getBrand(),
+                request.getMinPrice(),
+                request.getMaxPrice(),
+                request.getAvailability(),
+                pageable
+            );
+        } else if (sort.isSorted()) {
+            productPage = productRepository.searchProductsWithFiltersSorted(
+                query,
+                request.getSku(),
+                request.getCategoryId(),
+                request.getBrand(),
+                request.getMinPrice(),
+                request.getMaxPrice(),
+                request.getAvailability(),
+                pageable
+            );
+        } else {
+            productPage = productRepository.searchProductsWithFilters(
+                query,
+                request.getSku(),
+                request.getCategoryId(),
+                request.getBrand(),
+                request.getMinPrice(),
+                request.getMaxPrice(),
+                request.getAvailability(),
+                pageable
+            );
+        }
 
         List<ProductResponse> productResponses = productMapper.toProductResponseList(productPage.getContent());
 
@@ -81,6 +146,14 @@ public class ProductService {
                 .build();
     }
     
+    /**
+     * Duyệt catalog cho filter sidebar: trang product + số đếm theo category / brand / khoảng giá
+     * (lọc trên chỉ mục trong bộ nhớ, không truy vấn DB)
+     */
+    public ProductBrowseResponse browseProducts(ProductBrowseRequest request) {
+        return catalogIndex.browse(request);
+    }
+
     // Helper method to convert camelCase to snake_case for database column names
     private String convertToSnakeCase(String camelCase) {
         if (camelCase == null || camelCase.isEmpty()) {
@@ -118,8 +191,11 @@ public class ProductService {
         product.setUpdatedAt(now);
         
         product = productRepository.save(product);
-        
-        return productMapper.toProductResponse(product);
+        productSearchIndex.index(product);
+
+        ProductResponse response = productMapper.toProductResponse(product);
+        catalogIndex.upsert(response);
+        return response;
     }
 
     @Transactional
@@ -180,6 +256,7 @@ public class ProductService {
         
         product.setUpdatedAt(LocalDateTime.now());
         product = productRepository.save(product);
+        productSearchIndex.index(product);
         
         // ⭐ AUTO-RECORD PRICE HISTORY if price changed
         if (request.getPrice() != null && oldPrice != null && 
@@ -204,8 +281,10 @@ public class ProductService {
                         product.getId(), e);
             }
         }
-        
-        return productMapper.toProductResponse(product);
+
+        ProductResponse response = productMapper.toProductResponse(product);
+        catalogIndex.upsert(response);
+        return response;
     }
 
     @Transactional
@@ -213,10 +292,17 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
         productRepository.delete(product);
+        productSearchIndex.remove(productId);
+        catalogIndex.remove(productId);
     }
 
-    public List<ProductResponse> getProductsByCategory(Long categoryId) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
+    /**
+     * Product theo category; includeSubcategories = true: gồm cả các category con cháu
+     */
+    public List<ProductResponse> getProductsByCategory(Long categoryId, boolean includeSubcategories) {
+        List<Product> products = includeSubcategories
+                ? productRepository.findByCategorySubtree(categoryId)
+                : productRepository.findByCategoryId(categoryId);
         return productMapper.toProductResponseList(products);
     }
 
@@ -225,8 +311,17 @@ public class ProductService {
         return productMapper.toProductResponseList(products);
     }
 
+    /**
+     * Tìm kiếm full-text theo tên / thương hiệu / SKU / mô tả ngắn (không dấu), xếp theo độ liên quan,
+     * tối đa product.search.max-results kết quả
+     */
     public List<ProductResponse> searchProductsByName(String name) {
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
+        String query = ProductSearchIndex.toTsQuery(name);
+        if (query == null) {
+            return List.of();
+        }
+        List<Product> products = productRepository.searchProductsWithFilters(
+                query, null, null, null, null, null, null, PageRequest.of(0, searchMaxResults)).getContent();
         return productMapper.toProductResponseList(products);
     }
 
@@ -1,15 +1,15 @@
 package com.qm.bookstore.qm_bookstore.service;
 
 import com.qm.bookstore.qm_bookstore.dto.report.*;
-import com.qm.bookstore.qm_bookstore.entity.Order;
-import com.qm.bookstore.qm_bookstore.entity.OrderItem;
 import com.qm.bookstore.qm_bookstore.entity.Product;
 import com.qm.bookstore.qm_bookstore.entity.User;
+import com.qm.bookstore.qm_bookstore.entity.Voucher;
 import com.qm.bookstore.qm_bookstore.repository.*;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,6 +36,8 @@ public class ReportService {
     VoucherRepository voucherRepository;
     ProductRepository productRepository;
     CategoryRepository categoryRepository;
+    DailyOrderRollupRepository dailyOrderRollupRepository;
+    DailyProductRollupRepository dailyProductRollupRepository;
 
     /**
      * Generate revenue report
@@ -43,96 +45,54 @@ public class ReportService {
     public RevenueReportResponse getRevenueReport(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("[getRevenueReport] Generating report from {} to {}", startDate, endDate);
 
-        // Get all paid orders in period
-        List<Order> orders = orderRepository.findByCreatedAtBetween(startDate, endDate);
-        List<Order> paidOrders = orders.stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .collect(Collectors.toList());
-
-        // Calculate totals
-        // totalRevenue uses getTotalAmount() = revenue WITHOUT VAT (correct for revenue statistics)
-        BigDecimal totalRevenue = paidOrders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalDiscount = paidOrders.stream()
-                .map(Order::getDiscountAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalShippingFee = paidOrders.stream()
-                .map(Order::getShippingFee)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Totals of paid orders (aggregated in SQL)
+        // totalRevenue uses totalAmount = revenue WITHOUT VAT (correct for revenue statistics)
+        Object[] paidTotals = firstRow(orderRepository.sumPaidTotalsBetween(startDate, endDate));
+        BigDecimal totalRevenue = toBigDecimal(paidTotals[0]);
+        BigDecimal totalDiscount = toBigDecimal(paidTotals[1]);
+        BigDecimal totalShippingFee = toBigDecimal(paidTotals[2]);
+        int paidOrdersCount = toInt(paidTotals[3]);
 
-        int totalOrders = orders.size();
-        int paidOrdersCount = paidOrders.size();
-        int cancelledOrders = (int) orders.stream()
-                .filter(o -> "cancelled".equals(o.getOrderStatus()))
-                .count();
+        StatusCounts statusCounts = countByStatuses(startDate, endDate);
+        int totalOrders = statusCounts.total();
+        int cancelledOrders = statusCounts.order("cancelled");
 
         // Revenue by date
-        Map<LocalDate, List<Order>> ordersByDate = paidOrders.stream()
-                .collect(Collectors.groupingBy(o -> o.getCreatedAt().toLocalDate()));
-
-        List<RevenueReportResponse.RevenueByDate> revenueByDate = ordersByDate.entrySet().stream()
-                .map(entry -> {
-                    BigDecimal dayRevenue = entry.getValue().stream()
-                            .map(Order::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    return RevenueReportResponse.RevenueByDate.builder()
-                            .date(entry.getKey())
-                            .revenue(dayRevenue)
-                            .orderCount(entry.getValue().size())
-                            .build();
-                })
+        List<RevenueReportResponse.RevenueByDate> revenueByDate =
+                orderRepository.sumPaidRevenueByDayBetween(startDate, endDate).stream()
+                .map(row -> RevenueReportResponse.RevenueByDate.builder()
+                        .date(toLocalDate(row[0]))
+                        .revenue(toBigDecimal(row[1]))
+                        .orderCount(toInt(row[2]))
+                        .build())
                 .sorted(Comparator.comparing(RevenueReportResponse.RevenueByDate::getDate))
                 .collect(Collectors.toList());
 
         // Revenue by payment method
-        Map<String, List<Order>> ordersByPaymentMethod = paidOrders.stream()
-                .collect(Collectors.groupingBy(Order::getPaymentMethod));
-
-        List<RevenueReportResponse.RevenueByPaymentMethod> revenueByPaymentMethod = 
-                ordersByPaymentMethod.entrySet().stream()
-                .map(entry -> {
-                    BigDecimal methodRevenue = entry.getValue().stream()
-                            .map(Order::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    return RevenueReportResponse.RevenueByPaymentMethod.builder()
-                            .paymentMethod(entry.getKey())
-                            .revenue(methodRevenue)
-                            .orderCount(entry.getValue().size())
-                            .build();
-                })
+        List<RevenueReportResponse.RevenueByPaymentMethod> revenueByPaymentMethod =
+                orderRepository.sumPaidRevenueByPaymentMethodBetween(startDate, endDate).stream()
+                .map(row -> RevenueReportResponse.RevenueByPaymentMethod.builder()
+                        .paymentMethod((String) row[0])
+                        .revenue(toBigDecimal(row[1]))
+                        .orderCount(toInt(row[2]))
+                        .build())
                 .collect(Collectors.toList());
 
         // Revenue by category (from OrderItems snapshot)
-        List<Long> orderIds = paidOrders.stream().map(Order::getId).collect(Collectors.toList());
-        List<OrderItem> orderItems = orderItemRepository.findByOrderIdIn(orderIds);
-
-        Map<Long, List<OrderItem>> itemsByCategory = orderItems.stream()
-                .filter(item -> item.getCategoryId() != null)
-                .collect(Collectors.groupingBy(OrderItem::getCategoryId));
-
-        List<RevenueReportResponse.RevenueByCategory> revenueByCategory = 
-                itemsByCategory.entrySet().stream()
-                .map(entry -> {
-                    BigDecimal categoryRevenue = entry.getValue().stream()
-                            .map(OrderItem::getLineTotal)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    Integer quantity = entry.getValue().stream()
-                            .mapToInt(OrderItem::getQuantity)
-                            .sum();
-                    
-                    String categoryName = categoryRepository.findById(entry.getKey())
-                            .map(c -> c.getName())
-                            .orElse("Unknown");
-
+        List<Object[]> categoryRows = orderItemRepository.sumPaidRevenueByCategoryBetween(startDate, endDate);
+        Map<Long, String> categoryNames = categoryRepository.findAllById(
+                        categoryRows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(c -> c.getId(), c -> c.getName()));
+
+        List<RevenueReportResponse.RevenueByCategory> revenueByCategory = categoryRows.stream()
+                .map(row -> {
+                    Long categoryId = (Long) row[0];
                     return RevenueReportResponse.RevenueByCategory.builder()
-                            .categoryId(entry.getKey())
-                            .categoryName(categoryName)
-                            .revenue(categoryRevenue)
-                            .quantity(quantity)
+                            .categoryId(categoryId)
+                            .categoryName(categoryNames.getOrDefault(categoryId, "Unknown"))
+                            .revenue(toBigDecimal(row[1]))
+                            .quantity(toInt(row[2]))
                             .build();
                 })
                 .sorted(Comparator.comparing(RevenueReportResponse.RevenueByCategory::getRevenue).reversed())
@@ -157,37 +117,32 @@ public class ReportService {
     public OrderStatisticsResponse getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("[getOrderStatistics] Generating statistics from {} to {}", startDate, endDate);
 
-        List<Order> orders = orderRepository.findByCreatedAtBetween(startDate, endDate);
+        StatusCounts counts = countByStatuses(startDate, endDate);
 
         // Count by order status
-        int totalOrders = orders.size();
-        int confirmedOrders = (int) orders.stream().filter(o -> "confirmed".equals(o.getOrderStatus())).count();
-        int cancelledOrders = (int) orders.stream().filter(o -> "cancelled".equals(o.getOrderStatus())).count();
-        int closedOrders = (int) orders.stream().filter(o -> "closed".equals(o.getOrderStatus())).count();
+        int totalOrders = counts.total();
+        int confirmedOrders = counts.order("confirmed");
+        int cancelledOrders = counts.order("cancelled");
+        int closedOrders = counts.order("closed");
 
         // Count by payment status
-        int pendingPayment = (int) orders.stream().filter(o -> "pending".equals(o.getPaymentStatus())).count();
-        int paid = (int) orders.stream().filter(o -> "paid".equals(o.getPaymentStatus())).count();
-        int failed = (int) orders.stream().filter(o -> "failed".equals(o.getPaymentStatus())).count();
-        int refunded = (int) orders.stream().filter(o -> "refunded".equals(o.getPaymentStatus())).count();
+        int pendingPayment = counts.payment("pending");
+        int paid = counts.payment("paid");
+        int failed = counts.payment("failed");
+        int refunded = counts.payment("refunded");
 
         // Count by fulfillment status
-        int shipping = (int) orders.stream().filter(o -> "shipping".equals(o.getFulfillmentStatus())).count();
-        int delivered = (int) orders.stream().filter(o -> "delivered".equals(o.getFulfillmentStatus())).count();
-        int pickup = (int) orders.stream().filter(o -> "pickup".equals(o.getFulfillmentStatus())).count();
-        int returned = (int) orders.stream().filter(o -> "returned".equals(o.getFulfillmentStatus())).count();
+        int shipping = counts.fulfillment("shipping");
+        int delivered = counts.fulfillment("delivered");
+        int pickup = counts.fulfillment("pickup");
+        int returned = counts.fulfillment("returned");
 
         // Orders by date
-        Map<LocalDate, Long> orderCountByDate = orders.stream()
-                .collect(Collectors.groupingBy(
-                        o -> o.getCreatedAt().toLocalDate(),
-                        Collectors.counting()
-                ));
-
-        List<OrderStatisticsResponse.OrdersByDate> ordersByDate = orderCountByDate.entrySet().stream()
-                .map(entry -> OrderStatisticsResponse.OrdersByDate.builder()
-                        .date(entry.getKey())
-                        .orderCount(entry.getValue().intValue())
+        List<OrderStatisticsResponse.OrdersByDate> ordersByDate =
+                orderRepository.countByDayBetween(startDate, endDate).stream()
+                .map(row -> OrderStatisticsResponse.OrdersByDate.builder()
+                        .date(toLocalDate(row[0]))
+                        .orderCount(toInt(row[1]))
                         .build())
                 .sorted(Comparator.comparing(OrderStatisticsResponse.OrdersByDate::getDate))
                 .collect(Collectors.toList());
@@ -223,47 +178,11 @@ public class ReportService {
     public List<ProductReportResponse> getTopSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
         log.info("[getTopSellingProducts] Getting top {} products from {} to {}", limit, startDate, endDate);
 
-        List<Order> paidOrders = orderRepository.findByCreatedAtBetween(startDate, endDate).stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .collect(Collectors.toList());
+        // Aggregated and ordered in SQL (combo items have productId = null and are excluded)
+        List<Object[]> rows = orderItemRepository.findTopSellingProductsBetween(
+                startDate, endDate, PageRequest.of(0, Math.max(limit, 1)));
 
-        List<Long> orderIds = paidOrders.stream().map(Order::getId).collect(Collectors.toList());
-        List<OrderItem> orderItems = orderItemRepository.findByOrderIdIn(orderIds);
-
-        // ✅ FIX: Filter out combo items (productId = null) before grouping
-        Map<Long, List<OrderItem>> itemsByProduct = orderItems.stream()
-                .filter(item -> item.getProductId() != null)  // Only single products
-                .collect(Collectors.groupingBy(OrderItem::getProductId));
-
-        return itemsByProduct.entrySet().stream()
-                .map(entry -> {
-                    Long productId = entry.getKey();
-                    List<OrderItem> items = entry.getValue();
-
-                    int totalQuantity = items.stream().mapToInt(OrderItem::getQuantity).sum();
-                    BigDecimal totalRevenue = items.stream()
-                            .map(OrderItem::getLineTotal)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    int orderCount = items.size();
-                    BigDecimal avgPrice = totalRevenue.divide(
-                            new BigDecimal(totalQuantity), 2, RoundingMode.HALF_UP);
-
-                    Product product = productRepository.findById(productId).orElse(null);
-                    String productName = product != null ? product.getName() : "Unknown";
-                    String categoryName = product != null && product.getCategory() != null 
-                            ? product.getCategory().getName() : "Unknown";
-
-                    return ProductReportResponse.builder()
-                            .productId(productId)
-                            .productName(productName)
-                            .categoryName(categoryName)
-                            .totalQuantitySold(totalQuantity)
-                            .totalRevenue(totalRevenue)
-                            .orderCount(orderCount)
-                            .averagePrice(avgPrice)
-                            .build();
-                })
-                .sorted(Comparator.comparing(ProductReportResponse::getTotalQuantitySold).reversed())
+        return toProductReports(rows).stream()
                 .limit(limit)
                 .collect(Collectors.toList());
     }
@@ -289,10 +208,7 @@ public class ReportService {
                 .collect(Collectors.toList());
 
         // Customers with at least one order (active users)
-        List<Order> orders = orderRepository.findByCreatedAtBetween(startDate, endDate);
-        Set<UUID> activeUserIds = orders.stream()
-                .map(Order::getUserId)
-                .collect(Collectors.toSet());
+        long activeUsers = orderRepository.countDistinctUsersBetween(startDate, endDate);
 
         // Customers by date
         Map<LocalDate, Long> usersByDate = newUsers.stream()
@@ -338,7 +254,7 @@ public class ReportService {
 
         return UserStatisticsResponse.builder()
                 .totalUsers(totalUsers)
-                .activeUsers(activeUserIds.size())
+                .activeUsers((int) activeUsers)
                 .newUsersInPeriod(newUsers.size())
                 .usersByDate(usersByDateList)
                 .usersByRole(usersByRoleList)
@@ -351,40 +267,31 @@ public class ReportService {
     public List<VoucherReportResponse> getVoucherReport(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("[getVoucherReport] Generating voucher report from {} to {}", startDate, endDate);
 
-        List<Order> paidOrders = orderRepository.findByCreatedAtBetween(startDate, endDate).stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .filter(o -> o.getVoucherId() != null)
-                .collect(Collectors.toList());
-
-        Map<Long, List<Order>> ordersByVoucher = paidOrders.stream()
-                .collect(Collectors.groupingBy(Order::getVoucherId));
-
-        return ordersByVoucher.entrySet().stream()
-                .map(entry -> {
-                    Long voucherId = entry.getKey();
-                    List<Order> orders = entry.getValue();
-
-                    int usageCount = orders.size();
-                    BigDecimal totalDiscount = orders.stream()
-                            .map(Order::getDiscountAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    int uniqueUsers = (int) orders.stream()
-                            .map(Order::getUserId)
-                            .distinct()
-                            .count();
-
-                    return voucherRepository.findById(voucherId)
-                            .map(voucher -> VoucherReportResponse.builder()
-                                    .voucherId(voucherId)
-                                    .voucherCode(voucher.getCode())
-                                    .discountType(voucher.getDiscountType())
-                                    .discountAmount(voucher.getDiscountAmount())
-                                    .totalUsageCount(usageCount)
-                                    .totalDiscountGiven(totalDiscount)
-                                    .uniqueUsers(uniqueUsers)
-                                    .isActive(voucher.getStatus())
-                                    .build())
-                            .orElse(null);
+        List<Object[]> rows = orderRepository.sumPaidVoucherUsageBetween(startDate, endDate);
+
+        Map<Long, Voucher> vouchers = voucherRepository.findAllById(
+                        rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Voucher::getId, v -> v));
+
+        return rows.stream()
+                .map(row -> {
+                    Long voucherId = (Long) row[0];
+                    Voucher voucher = vouchers.get(voucherId);
+                    if (voucher == null) {
+                        return null;
+                    }
+
+                    return VoucherReportResponse.builder()
+                            .voucherId(voucherId)
+                            .voucherCode(voucher.getCode())
+                            .discountType(voucher.getDiscountType())
+                            .discountAmount(voucher.getDiscountAmount())
+                            .totalUsageCount(toInt(row[1]))
+                            .totalDiscountGiven(toBigDecimal(row[2]))
+                            .uniqueUsers(toInt(row[3]))
+                            .isActive(voucher.getStatus())
+                            .build();
                 })
                 .filter(Objects::nonNull)
                 .sorted(Comparator.comparingInt(VoucherReportResponse::getTotalUsageCount).reversed())
@@ -393,6 +300,96 @@ public class ReportService {
 
     // Helper methods
 
+    /**
+     * Số đơn theo từng trạng thái trên 3 trục (order / payment / fulfillment), đếm bằng 1 query GROUP BY
+     */
+    private record StatusCounts(int total, Map<String, Integer> byOrder, Map<String, Integer> byPayment,
+                                Map<String, Integer> byFulfillment) {
+        int order(String status) {
+            return byOrder.getOrDefault(status, 0);
+        }
+
+        int payment(String status) {
+            return byPayment.getOrDefault(status, 0);
+        }
+
+        int fulfillment(String status) {
+            return byFulfillment.getOrDefault(status, 0);
+        }
+    }
+
+    private StatusCounts countByStatuses(LocalDateTime startDate, LocalDateTime endDate) {
+        int total = 0;
+        Map<String, Integer> byOrder = new HashMap<>();
+        Map<String, Integer> byPayment = new HashMap<>();
+        Map<String, Integer> byFulfillment = new HashMap<>();
+
+        for (Object[] row : orderRepository.countByStatusesBetween(startDate, endDate)) {
+            int count = toInt(row[3]);
+            total += count;
+            if (row[0] != null) byOrder.merge((String) row[0], count, Integer::sum);
+            if (row[1] != null) byPayment.merge((String) row[1], count, Integer::sum);
+            if (row[2] != null) byFulfillment.merge((String) row[2], count, Integer::sum);
+        }
+
+        return new StatusCounts(total, byOrder, byPayment, byFulfillment);
+    }
+
+    /**
+     * Map các dòng [productId, SUM(quantity), SUM(lineTotal), COUNT] sang ProductReportResponse
+     */
+    private List<ProductReportResponse> toProductReports(List<Object[]> rows) {
+        Map<Long, Product> products = productRepository.findAllWithCategoryByIdIn(
+                        rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+
+        return rows.stream()
+                .map(row -> {
+                    Long productId = (Long) row[0];
+                    int totalQuantity = toInt(row[1]);
+                    BigDecimal totalRevenue = toBigDecimal(row[2]);
+                    int orderCount = toInt(row[3]);
+                    BigDecimal avgPrice = totalRevenue.divide(
+                            new BigDecimal(totalQuantity), 2, RoundingMode.HALF_UP);
+
+                    Product product = products.get(productId);
+                    String productName = product != null ? product.getName() : "Unknown";
+                    String categoryName = product != null && product.getCategory() != null 
+                            ? product.getCategory().getName() : "Unknown";
+
+                    return ProductReportResponse.builder()
+                            .productId(productId)
+                            .productName(productName)
+                            .categoryName(categoryName)
+                            .totalQuantitySold(totalQuantity)
+                            .totalRevenue(totalRevenue)
+                            .orderCount(orderCount)
+                            .averagePrice(avgPrice)
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static Object[] firstRow(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[]{null, null, null, null} : rows.get(0);
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        if (value instanceof BigDecimal bd) return bd;
+        return new BigDecimal(value.toString());
+    }
+
+    private static int toInt(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date sqlDate) return sqlDate.toLocalDate();
+        return (LocalDate) value;
+    }
+
     private OrderStatisticsResponse.OrdersByStatus createStatusCount(String status, int count, int total) {
         double percentage = total > 0 ? (count * 100.0) / total : 0.0;
         return OrderStatisticsResponse.OrdersByStatus.builder()
@@ -402,6 +399,36 @@ public class ReportService {
                 .build();
     }
 
+    /**
+     * Dashboard summary (30 ngày gần nhất) - đọc từ bảng tổng hợp theo ngày, không quét orders
+     */
+    public DashboardSummaryResponse getDashboardSummary() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate toDate = now.toLocalDate();
+        LocalDate fromDate = toDate.minusDays(29);
+        log.info("[getDashboardSummary] Reading sales rollups from {} to {}", fromDate, toDate);
+
+        Object[] paidTotals = firstRow(dailyOrderRollupRepository.sumPaidBetween(fromDate, toDate));
+        long totalOrders = dailyOrderRollupRepository.sumOrderCountBetween(fromDate, toDate);
+        long cancelledOrders = dailyOrderRollupRepository.sumOrderCountByOrderStatusBetween("cancelled", fromDate, toDate);
+
+        long totalCustomers = userRepository.countByRoleName("customer");
+        long newCustomers = userRepository.countByRoleNameAndCreatedAtBetween("customer", now.minusDays(30), now);
+
+        List<Object[]> productRows = dailyProductRollupRepository.findTopSellingProducts(
+                fromDate, toDate, PageRequest.of(0, 5));
+
+        return DashboardSummaryResponse.builder()
+                .totalRevenue(toBigDecimal(paidTotals[1]))
+                .totalOrders((int) totalOrders)
+                .paidOrders(toInt(paidTotals[0]))
+                .cancelledOrders((int) cancelledOrders)
+                .totalCustomers((int) totalCustomers)
+                .newCustomers((int) newCustomers)
+                .topSellingProducts(toProductReports(productRows))
+                .build();
+    }
+
     /**
      * Lấy dữ liệu biểu đồ cột doanh thu theo tuần/tháng/năm
      * @param period "week" | "month" | "year"
@@ -466,17 +493,8 @@ public class ReportService {
      * Dữ liệu doanh thu theo tuần (7 ngày gần nhất)
      */
     private List<RevenueChartResponse.ChartDataPoint> getWeeklyRevenueData(LocalDateTime startDate, LocalDateTime endDate) {
-        // Lấy đơn hàng đã thanh toán trong khoảng thời gian
-        List<Order> paidOrders = orderRepository.findByCreatedAtBetween(startDate, endDate).stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .collect(Collectors.toList());
-        
-        // Group by ngày
-        Map<LocalDate, BigDecimal> revenueByDate = paidOrders.stream()
-                .collect(Collectors.groupingBy(
-                        o -> o.getCreatedAt().toLocalDate(),
-                        Collectors.reducing(BigDecimal.ZERO, Order::getTotalAmount, BigDecimal::add)
-                ));
+        // Doanh thu đã thanh toán, group by ngày trong SQL
+        Map<LocalDate, BigDecimal> revenueByDate = sumPaidRevenueByDay(startDate, endDate);
         
         // Tạo danh sách 7 ngày với revenue = 0 nếu không có đơn
         List<RevenueChartResponse.ChartDataPoint> result = new ArrayList<>();
@@ -499,15 +517,9 @@ public class ReportService {
      * Dữ liệu doanh thu theo tháng (nhóm theo ngày)
      */
     private List<RevenueChartResponse.ChartDataPoint> getMonthlyRevenueData(LocalDateTime startDate, LocalDateTime endDate, YearMonth yearMonth) {
-        List<Order> paidOrders = orderRepository.findByCreatedAtBetween(startDate, endDate).stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .collect(Collectors.toList());
-        
-        Map<Integer, BigDecimal> revenueByDay = paidOrders.stream()
-                .collect(Collectors.groupingBy(
-                        o -> o.getCreatedAt().getDayOfMonth(),
-                        Collectors.reducing(BigDecimal.ZERO, Order::getTotalAmount, BigDecimal::add)
-                ));
+        Map<Integer, BigDecimal> revenueByDay = new HashMap<>();
+        sumPaidRevenueByDay(startDate, endDate)
+                .forEach((date, revenue) -> revenueByDay.merge(date.getDayOfMonth(), revenue, BigDecimal::add));
         
         // Tạo danh sách tất cả các ngày trong tháng được chọn
         int daysInMonth = yearMonth.lengthOfMonth();
@@ -527,15 +539,9 @@ public class ReportService {
      * Dữ liệu doanh thu theo năm (nhóm theo tháng)
      */
     private List<RevenueChartResponse.ChartDataPoint> getYearlyRevenueData(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Order> paidOrders = orderRepository.findByCreatedAtBetween(startDate, endDate).stream()
-                .filter(o -> "paid".equals(o.getPaymentStatus()))
-                .collect(Collectors.toList());
-        
-        Map<Integer, BigDecimal> revenueByMonth = paidOrders.stream()
-                .collect(Collectors.groupingBy(
-                        o -> o.getCreatedAt().getMonthValue(),
-                        Collectors.reducing(BigDecimal.ZERO, Order::getTotalAmount, BigDecimal::add)
-                ));
+        Map<Integer, BigDecimal> revenueByMonth = new HashMap<>();
+        sumPaidRevenueByDay(startDate, endDate)
+                .forEach((date, revenue) -> revenueByMonth.merge(date.getMonthValue(), revenue, BigDecimal::add));
         
         // Tạo danh sách 12 tháng
         return IntStream.rangeClosed(1, 12)
@@ -549,4 +555,10 @@ public class ReportService {
                 })
                 .collect(Collectors.toList());
     }
+    
+    private Map<LocalDate, BigDecimal> sumPaidRevenueByDay(LocalDateTime startDate, LocalDateTime endDate) {
+        // Đọc từ bảng tổng hợp theo ngày (daily_order_rollups)
+        return dailyOrderRollupRepository.sumPaidRevenueByDay(startDate.toLocalDate(), endDate.toLocalDate()).stream()
+                .collect(Collectors.toMap(row -> toLocalDate(row[0]), row -> toBigDecimal(row[1]), BigDecimal::add));
+    }
 }
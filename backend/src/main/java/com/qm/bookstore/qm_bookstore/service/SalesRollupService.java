@@ -0,0 +1,144 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.entity.Order;
+import com.qm.bookstore.qm_bookstore.entity.OrderItem;
+import com.qm.bookstore.qm_bookstore.repository.DailyOrderRollupRepository;
+import com.qm.bookstore.qm_bookstore.repository.DailyProductRollupRepository;
+import com.qm.bookstore.qm_bookstore.repository.OrderItemRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Duy trì bảng tổng hợp doanh số theo ngày (daily_order_rollups, daily_product_rollups).
+ *
+ * Mỗi khi đơn hàng được tạo hoặc đổi trạng thái, service trừ đơn khỏi bucket cũ và cộng vào bucket mới
+ * (upsert ON CONFLICT trong cùng transaction với thay đổi đơn hàng). Dashboard và biểu đồ doanh thu
+ * chỉ đọc các bucket này thay vì quét orders / order_items.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+@Transactional
+public class SalesRollupService {
+
+    DailyOrderRollupRepository dailyOrderRollupRepository;
+    DailyProductRollupRepository dailyProductRollupRepository;
+    OrderItemRepository orderItemRepository;
+
+    /**
+     * Khóa bucket của một đơn hàng: ngày tạo × payment method × payment status × order status
+     */
+    public record RollupKey(LocalDate saleDate, String paymentMethod, String paymentStatus, String orderStatus) {
+    }
+
+    /**
+     * Chụp lại bucket hiện tại của đơn - gọi TRƯỚC khi thay đổi trạng thái
+     */
+    public RollupKey keyOf(Order order) {
+        return new RollupKey(
+                order.getCreatedAt().toLocalDate(),
+                Objects.requireNonNullElse(order.getPaymentMethod(), ""),
+                Objects.requireNonNullElse(order.getPaymentStatus(), ""),
+                Objects.requireNonNullElse(order.getOrderStatus(), ""));
+    }
+
+    /**
+     * Đơn mới được tạo (checkout) - cộng đơn và các dòng hàng vào bucket
+     */
+    public void onOrderCreated(Order order, List<OrderItem> items) {
+        apply(keyOf(order), order, items, 1);
+    }
+
+    /**
+     * Đơn đổi trạng thái - chuyển đơn từ bucket cũ sang bucket mới (không làm gì nếu bucket không đổi)
+     */
+    public void onOrderStateChanged(RollupKey before, Order order) {
+        RollupKey after = keyOf(order);
+        if (before.equals(after)) {
+            return;
+        }
+
+        List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
+        apply(before, order, items, -1);
+        apply(after, order, items, 1);
+
+        log.debug("[onOrderStateChanged] Order {} moved from {} to {}", order.getId(), before, after);
+    }
+
+    /**
+     * Tính lại toàn bộ bucket trong khoảng ngày (backfill / sửa lệch)
+     */
+    public void rebuild(LocalDate fromDate, LocalDate toDate) {
+        log.info("[rebuild] Rebuilding sales rollups from {} to {}", fromDate, toDate);
+
+        dailyOrderRollupRepository.deleteBySaleDateBetween(fromDate, toDate);
+        dailyProductRollupRepository.deleteBySaleDateBetween(fromDate, toDate);
+
+        int orderBuckets = dailyOrderRollupRepository.rebuildFromOrders(
+                fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        int productBuckets = dailyProductRollupRepository.rebuildFromOrderItems(
+                fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+
+        log.info("[rebuild] Rebuilt {} order buckets and {} product buckets", orderBuckets, productBuckets);
+    }
+
+    /**
+     * Job định kỳ: tính lại 2 ngày gần nhất để tự sửa các lệch nhỏ (mặc định 02:30 mỗi ngày)
+     */
+    @Scheduled(cron = "${report.rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(2), today.minusDays(1));
+    }
+
+    // Helper methods
+
+    private void apply(RollupKey key, Order order, List<OrderItem> items, int sign) {
+        BigDecimal factor = BigDecimal.valueOf(sign);
+
+        dailyOrderRollupRepository.upsertDelta(
+                key.saleDate(), key.paymentMethod(), key.paymentStatus(), key.orderStatus(),
+                sign,
+                orZero(order.getTotalAmount()).multiply(factor),
+                orZero(order.getDiscountAmount()).multiply(factor),
+                orZero(order.getShippingFee()).multiply(factor));
+
+        // Gộp các dòng hàng cùng category/product/combo trước khi upsert
+        Map<List<Object>, List<OrderItem>> itemsByBucket = items.stream()
+                .collect(Collectors.groupingBy(item -> List.of(
+                        Objects.requireNonNullElse(item.getCategoryId(), 0L),
+                        Objects.requireNonNullElse(item.getProductId(), 0L),
+                        Objects.requireNonNullElse(item.getComboId(), 0))));
+
+        itemsByBucket.forEach((bucket, bucketItems) -> {
+            long quantity = bucketItems.stream().mapToLong(OrderItem::getQuantity).sum();
+            BigDecimal lineTotal = bucketItems.stream()
+                    .map(item -> orZero(item.getLineTotal()))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            dailyProductRollupRepository.upsertDelta(
+                    key.saleDate(), key.paymentMethod(), key.paymentStatus(), key.orderStatus(),
+                    (Long) bucket.get(0), (Long) bucket.get(1), (Integer) bucket.get(2),
+                    quantity * sign,
+                    lineTotal.multiply(factor),
+                    (long) bucketItems.size() * sign);
+        });
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,102 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.config.CacheConfig;
+import com.qm.bookstore.qm_bookstore.dto.goong.RouteInfo;
+import com.qm.bookstore.qm_bookstore.dto.shipping.Coordinates;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chỉ mục lưới geohash quanh cửa hàng: mỗi ô (mặc định geohash 7 ký tự ~150m x 150m) nhớ quãng đường
+ * đường bộ đã học được từ Goong Direction API. Phí ship chỉ phụ thuộc ceil(distance - baseDistanceKm)
+ * nên các địa chỉ trong cùng ô dùng chung kết quả; chỉ ô chưa học mới gọi API.
+ *
+ * Key gồm cả geohash của cửa hàng nên đổi vị trí cửa hàng sẽ tự động bỏ qua dữ liệu cũ.
+ * Dữ liệu được giữ trong cache "distance-bands" (bộ nhớ + bảng geo_cache_entries).
+ */
+@Component
+@Slf4j
+public class ShippingDistanceIndex {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int STORE_PRECISION = 9;
+
+    private final GoongService goongService;
+    private final Cache distanceBands;
+
+    @Value("${shipping.distance-index.precision:7}")
+    private int cellPrecision;
+
+    public ShippingDistanceIndex(GoongService goongService, CacheManager cacheManager) {
+        this.goongService = goongService;
+        this.distanceBands = cacheManager.getCache(CacheConfig.DISTANCE_BANDS_CACHE);
+    }
+
+    /**
+     * Quãng đường từ cửa hàng tới người nhận: lấy từ ô lưới đã học, gọi Goong nếu ô chưa có dữ liệu
+     */
+    public RouteInfo routeFor(Coordinates store, Coordinates receiver) {
+        String key = cellKey(store, receiver);
+
+        RouteInfo learned = distanceBands.get(key, RouteInfo.class);
+        if (learned != null) {
+            log.debug("[routeFor] Distance band hit for cell {}: {} km", key, learned.getDistanceInKm());
+            return learned;
+        }
+
+        RouteInfo route = goongService.calculateRoute(store, receiver);
+        distanceBands.put(key, route);
+        log.info("[routeFor] Learned distance for cell {}: {} km", key, route.getDistanceInKm());
+        return route;
+    }
+
+    String cellKey(Coordinates store, Coordinates receiver) {
+        return geohash(store.getLat(), store.getLng(), STORE_PRECISION)
+                + ":" + geohash(receiver.getLat(), receiver.getLng(), cellPrecision);
+    }
+
+    /**
+     * Mã hóa geohash chuẩn (base32, xen kẽ bit kinh độ / vĩ độ)
+     */
+    static String geohash(double lat, double lng, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+}
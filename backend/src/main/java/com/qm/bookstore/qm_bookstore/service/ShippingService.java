@@ -20,6 +20,7 @@ public class ShippingService {
 
     private final GoongService goongService;
     private final SystemConfigService systemConfigService;
+    private final ShippingDistanceIndex shippingDistanceIndex;
 
     @Value("${shipping.base-distance-km:5}")
     private Double baseDistanceKm;
@@ -58,8 +59,8 @@ public class ShippingService {
             Coordinates storeCoords = systemConfigService.getStoreLocation();
             log.debug("[calculateShippingFee] Store coordinates: {}", storeCoords);
 
-            // Calculate route between store and receiver
-            RouteInfo routeInfo = goongService.calculateRoute(storeCoords, receiverCoords);
+            // Calculate route between store and receiver (từ ô lưới đã học, chỉ gọi Goong cho ô mới)
+            RouteInfo routeInfo = shippingDistanceIndex.routeFor(storeCoords, receiverCoords);
             log.debug("[calculateShippingFee] Route info: distance={} km, duration={} mins",
                     routeInfo.getDistanceInKm(), routeInfo.getDurationInMinutes());
 
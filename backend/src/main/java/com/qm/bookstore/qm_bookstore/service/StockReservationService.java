@@ -0,0 +1,178 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.entity.StockReservation;
+import com.qm.bookstore.qm_bookstore.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sổ giữ hàng (stock reservation) theo product.
+ *
+ * - checkout đặt hold cho từng product (combo đã bung thành product thành phần) với TTL
+ * - available-to-promise = stock_quantity - tổng hold đang ACTIVE, tính bằng 1 câu SUM ... GROUP BY trên bảng
+ *   stock_reservations cho các product checkout đã khóa dòng (bảng là nguồn dữ liệu duy nhất - đúng khi chạy
+ *   nhiều instance: checkout kế tiếp chờ khóa dòng product và đọc thấy hold vừa commit)
+ * - hold được CONVERTED khi tạo phiếu xuất kho OUT cho đơn, RELEASED khi hủy đơn, EXPIRED khi quá hạn
+ * - product ở chế độ hot (HotStockService) được ghi hold STRIPED: hàng đã trừ trên stripe, không tính vào ATP
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class StockReservationService {
+
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_CONVERTED = "CONVERTED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+    public static final String STATUS_STRIPED = "STRIPED";
+
+    private final StockReservationRepository stockReservationRepository;
+
+    // Mặc định giữ hàng 24h: phiếu xuất kho được tạo khi admin xác nhận đơn
+    @Value("${inventory.reservation.ttl:24h}")
+    private Duration ttl;
+
+    /**
+     * Số lượng có thể bán theo product = tồn kho - hàng đang giữ
+     * (gọi sau khi đã khóa dòng product để kết quả không đổi đến hết transaction checkout)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> availableToPromise(Collection<Product> products) {
+        Map<Long, Integer> held = heldQuantities(products.stream().map(Product::getId).collect(Collectors.toList()));
+        Map<Long, Integer> available = new HashMap<>();
+        for (Product product : products) {
+            available.put(product.getId(), product.getStockQuantity() - held.getOrDefault(product.getId(), 0));
+        }
+        return available;
+    }
+
+    /**
+     * Số lượng đang giữ của một product
+     */
+    @Transactional(readOnly = true)
+    public int heldQuantity(Long productId) {
+        return heldQuantities(List.of(productId)).getOrDefault(productId, 0);
+    }
+
+    /**
+     * Đặt hold cho đơn hàng (gọi trong transaction checkout, sau khi đã khóa dòng product)
+     */
+    public void reserve(Long orderId, Map<Long, Integer> quantityByProduct) {
+        if (quantityByProduct.isEmpty()) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+
+        List<StockReservation> reservations = quantityByProduct.entrySet().stream()
+                .map(entry -> StockReservation.builder()
+                        .orderId(orderId)
+                        .productId(entry.getKey())
+                        .quantity(entry.getValue())
+                        .expiresAt(expiresAt)
+                        .build())
+                .collect(Collectors.toList());
+        stockReservationRepository.saveAll(reservations);
+
+        log.debug("[reserve] Order {} holds {} (expires at {})", orderId, quantityByProduct, expiresAt);
+    }
+
+    /**
+     * Ghi nhận phần hàng của đơn đã được lấy từ stripe của hot product (không tính vào chỉ mục giữ hàng)
+     */
+    public void recordStriped(Long orderId, Map<Long, Integer> quantityByProduct) {
+        if (quantityByProduct.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        stockReservationRepository.saveAll(quantityByProduct.entrySet().stream()
+                .map(entry -> StockReservation.builder()
+                        .orderId(orderId)
+                        .productId(entry.getKey())
+                        .quantity(entry.getValue())
+                        .status(STATUS_STRIPED)
+                        .expiresAt(now)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Các product của đơn đã được trừ kho qua stripe lúc checkout (phiếu xuất kho không trừ lại)
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> stripedProductIds(Long orderId) {
+        return stockReservationRepository.findByOrderIdAndStatus(orderId, STATUS_STRIPED).stream()
+                .map(StockReservation::getProductId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Chuyển hold của đơn sang CONVERTED (tồn kho đã được trừ bởi phiếu xuất kho)
+     */
+    public void convert(Long orderId) {
+        close(stockReservationRepository.lockOpenByOrderId(orderId), STATUS_CONVERTED);
+    }
+
+    /**
+     * Trả toàn bộ hold của đơn (hủy đơn).
+     * Trả về số lượng STRIPED theo product - người gọi phải trả lại cho hot stock (HotStockService.giveBack)
+     */
+    public Map<Long, Integer> release(Long orderId) {
+        List<StockReservation> reservations = stockReservationRepository.lockOpenByOrderId(orderId);
+        close(reservations, STATUS_RELEASED);
+
+        Map<Long, Integer> striped = new HashMap<>();
+        reservations.stream()
+                .filter(r -> STATUS_STRIPED.equals(r.getStatus()))
+                .forEach(r -> striped.merge(r.getProductId(), r.getQuantity(), Integer::sum));
+        return striped;
+    }
+
+    /**
+     * Job định kỳ: trả các hold đã hết hạn (mặc định mỗi phút)
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.expire-interval-ms:60000}")
+    public void expireHolds() {
+        List<StockReservation> expired = stockReservationRepository.lockExpired(LocalDateTime.now());
+        if (!expired.isEmpty()) {
+            log.info("[expireHolds] Expiring {} stock reservations", expired.size());
+            close(expired, STATUS_EXPIRED);
+        }
+    }
+
+    // Helper methods
+
+    private void close(List<StockReservation> reservations, String status) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        List<Long> ids = reservations.stream().map(StockReservation::getId).collect(Collectors.toList());
+        stockReservationRepository.closeAll(ids, status, LocalDateTime.now());
+        log.debug("[close] {} reservations -> {}", reservations.size(), status);
+    }
+
+    private Map<Long, Integer> heldQuantities(Collection<Long> productIds) {
+        Map<Long, Integer> held = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return held;
+        }
+        for (Object[] row : stockReservationRepository.sumActiveQuantityByProductIds(productIds)) {
+            held.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        return held;
+    }
+}
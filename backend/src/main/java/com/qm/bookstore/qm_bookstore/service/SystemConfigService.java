@@ -12,9 +12,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -22,6 +28,16 @@ public class SystemConfigService {
 
     private final SystemConfigRepository systemConfigRepository;
 
+    /**
+     * Snapshot bất biến của toàn bộ system_config (giá trị đã parse sẵn).
+     * Đọc config trên hot path (shipping, transaction, invoice) không chạm DB;
+     * snapshot được thay thế nguyên khối sau khi create/update/delete commit.
+     * Mỗi lần nạp lấy version tăng dần TRƯỚC khi đọc DB; chỉ thay bằng snapshot có version lớn hơn (compareAndSet)
+     * -> lần nạp bắt đầu sớm hơn (refresh định kỳ đang chạy) không ghi đè snapshot mới sau commit.
+     */
+    private final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong loadVersion = new AtomicLong();
+
     /**
      * Get all system configs
      */
@@ -77,6 +93,7 @@ public class SystemConfigService {
         
         SystemConfig savedConfig = systemConfigRepository.save(config);
         log.info("[createConfig] Created config with id={}", savedConfig.getId());
+        TransactionHooks.afterCommit(this::refreshSnapshot);
         
         return mapToResponse(savedConfig);
     }
@@ -104,6 +121,7 @@ public class SystemConfigService {
         
         SystemConfig updatedConfig = systemConfigRepository.save(config);
         log.info("[updateConfig] Updated config with id={}", updatedConfig.getId());
+        TransactionHooks.afterCommit(this::refreshSnapshot);
         
         return mapToResponse(updatedConfig);
     }
@@ -121,56 +139,66 @@ public class SystemConfigService {
         
         systemConfigRepository.deleteById(id);
         log.info("[deleteConfig] Deleted config with id={}", id);
+        TransactionHooks.afterCommit(this::refreshSnapshot);
     }
 
     /**
      * Helper: Get config value as String (for public use)
      */
     public String getConfigValue(String configKey, String defaultValue) {
-        return systemConfigRepository.findByConfigKey(configKey)
-                .map(SystemConfig::getConfigValue)
-                .orElse(defaultValue);
+        ConfigValue value = currentSnapshot().values.get(configKey);
+        return value != null && value.raw != null ? value.raw : defaultValue;
     }
 
     /**
      * Helper: Get config value as Integer
      */
     public Integer getConfigValueAsInt(String configKey, Integer defaultValue) {
-        return systemConfigRepository.findByConfigKey(configKey)
-                .map(config -> {
-                    try {
-                        return Integer.parseInt(config.getConfigValue());
-                    } catch (NumberFormatException e) {
-                        log.warn("[getConfigValueAsInt] Invalid number format for key={}, using default", configKey);
-                        return defaultValue;
-                    }
-                })
-                .orElse(defaultValue);
+        ConfigValue value = currentSnapshot().values.get(configKey);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.intValue == null) {
+            log.warn("[getConfigValueAsInt] Invalid number format for key={}, using default", configKey);
+            return defaultValue;
+        }
+        return value.intValue;
     }
 
     /**
      * Helper: Get config value as Boolean
      */
     public Boolean getConfigValueAsBoolean(String configKey, Boolean defaultValue) {
-        return systemConfigRepository.findByConfigKey(configKey)
-                .map(config -> Boolean.parseBoolean(config.getConfigValue()))
-                .orElse(defaultValue);
+        ConfigValue value = currentSnapshot().values.get(configKey);
+        return value != null ? value.booleanValue : defaultValue;
     }
 
     /**
      * Helper: Get config value as Double
      */
     public Double getConfigValueAsDouble(String configKey, Double defaultValue) {
-        return systemConfigRepository.findByConfigKey(configKey)
-                .map(config -> {
-                    try {
-                        return Double.parseDouble(config.getConfigValue());
-                    } catch (NumberFormatException e) {
-                        log.warn("[getConfigValueAsDouble] Invalid number format for key={}, using default", configKey);
-                        return defaultValue;
-                    }
-                })
-                .orElse(defaultValue);
+        ConfigValue value = currentSnapshot().values.get(configKey);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.doubleValue == null) {
+            log.warn("[getConfigValueAsDouble] Invalid number format for key={}, using default", configKey);
+            return defaultValue;
+        }
+        return value.doubleValue;
+    }
+
+    /**
+     * Reload snapshot từ DB. Chạy định kỳ để đồng bộ thay đổi từ instance khác (mặc định 60s)
+     */
+    @Scheduled(fixedDelayString = "${system-config.refresh-interval-ms:60000}")
+    public void refreshSnapshot() {
+        ConfigSnapshot loaded = load();
+        if (install(loaded) != loaded) {
+            log.debug("[refreshSnapshot] Discarded stale snapshot version {}", loaded.version);
+            return;
+        }
+        log.debug("[refreshSnapshot] Loaded {} system configs", loaded.values.size());
     }
 
     /**
@@ -195,6 +223,81 @@ public class SystemConfigService {
         return getConfigValueAsDouble("free_shipping_threshold", 0.0);
     }
 
+    private ConfigSnapshot currentSnapshot() {
+        ConfigSnapshot current = snapshot.get();
+        return current != null ? current : install(load());
+    }
+
+    private ConfigSnapshot load() {
+        return ConfigSnapshot.load(systemConfigRepository, loadVersion.incrementAndGet());
+    }
+
+    /**
+     * Đặt snapshot nếu mới hơn snapshot hiện tại; trả về snapshot đang dùng sau khi đặt
+     */
+    private ConfigSnapshot install(ConfigSnapshot candidate) {
+        while (true) {
+            ConfigSnapshot current = snapshot.get();
+            if (current != null && current.version >= candidate.version) {
+                return current;
+            }
+            if (snapshot.compareAndSet(current, candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Giá trị config đã parse sẵn theo các kiểu hay dùng (null nếu không parse được)
+     */
+    private static final class ConfigValue {
+        final String raw;
+        final Integer intValue;
+        final Double doubleValue;
+        final Boolean booleanValue;
+
+        ConfigValue(String raw) {
+            this.raw = raw;
+            this.intValue = parseInt(raw);
+            this.doubleValue = parseDouble(raw);
+            this.booleanValue = Boolean.parseBoolean(raw);
+        }
+
+        private static Integer parseInt(String raw) {
+            try {
+                return Integer.parseInt(raw);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Double parseDouble(String raw) {
+            try {
+                return Double.parseDouble(raw);
+            } catch (NumberFormatException | NullPointerException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class ConfigSnapshot {
+        final long version;
+        final Map<String, ConfigValue> values;
+
+        private ConfigSnapshot(long version, Map<String, ConfigValue> values) {
+            this.version = version;
+            this.values = values;
+        }
+
+        static ConfigSnapshot load(SystemConfigRepository repository, long version) {
+            Map<String, ConfigValue> values = new HashMap<>();
+            for (SystemConfig config : repository.findAll()) {
+                values.put(config.getConfigKey(), new ConfigValue(config.getConfigValue()));
+            }
+            return new ConfigSnapshot(version, Map.copyOf(values));
+        }
+    }
+
     /**
      * Map SystemConfig to SystemConfigResponse
      */
@@ -0,0 +1,60 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Gắn công việc vào vòng đời của transaction hiện tại (cập nhật cache / broadcast chỉ sau khi dữ liệu đã commit)
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit; không có transaction thì chạy ngay
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Chạy action nếu transaction hiện tại không commit (rollback / lỗi); không có transaction thì bỏ qua
+     */
+    public static void onRollback(Runnable action) {
+        afterCompletion(committed -> {
+            if (!committed) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Chạy action khi transaction hiện tại kết thúc, tham số = đã commit hay chưa.
+     *
+     * @return false nếu không có transaction (action không được đăng ký)
+     */
+    public static boolean afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.chat.ConversationUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gom typing indicator theo (conversation, actor) trước khi gửi tới /topic/conversation/{userId}.
+ *
+ * - typing=true đầu tiên được gửi ngay; các typing=true tiếp theo chỉ gửi lại tối đa 1 lần mỗi interval-ms
+ *   (giữ trạng thái "đang gõ" ở client)
+ * - typing=false được gửi ngay, chỉ khi trước đó đã gửi typing=true
+ * - không nhận thêm typing=true trong timeout-ms -> tự gửi typing=false (client đóng tab, mất kết nối)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TypingIndicatorService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.typing.interval-ms:3000}")
+    private long intervalMs;
+
+    @Value("${chat.typing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    // (conversationUserId, actorId) -> trạng thái đang gõ
+    private final Map<Key, TypingState> states = new ConcurrentHashMap<>();
+
+    public void onTyping(UUID conversationUserId, UUID actorId, String actorUsername, String actorType, boolean isTyping) {
+        Key key = new Key(conversationUserId, actorId);
+        long now = System.currentTimeMillis();
+
+        if (!isTyping) {
+            TypingState removed = states.remove(key);
+            if (removed != null) {
+                send(key, removed, false);
+            }
+            return;
+        }
+
+        boolean[] emit = {false};
+        TypingState state = states.compute(key, (k, current) -> {
+            if (current == null || now - current.lastSentAt >= intervalMs) {
+                emit[0] = true;
+                return new TypingState(actorUsername, actorType, now, now);
+            }
+            return new TypingState(current.actorUsername, current.actorType, current.lastSentAt, now);
+        });
+        if (emit[0]) {
+            send(key, state, true);
+        }
+    }
+
+    /**
+     * Job định kỳ: gửi typing=false cho actor đã ngừng gõ quá timeout
+     */
+    @Scheduled(fixedDelayString = "${chat.typing.sweep-interval-ms:1000}")
+    public void expireTyping() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<Key, TypingState>> expired = new ArrayList<>();
+        states.forEach((key, state) -> {
+            if (now - state.lastEventAt > timeoutMs && states.remove(key, state)) {
+                expired.add(Map.entry(key, state));
+            }
+        });
+        expired.forEach(entry -> send(entry.getKey(), entry.getValue(), false));
+    }
+
+    // Helper methods
+
+    private void send(Key key, TypingState state, boolean isTyping) {
+        try {
+            messagingTemplate.convertAndSend("/topic/conversation/" + key.conversationUserId(),
+                    ConversationUpdate.typing(key.conversationUserId(), key.actorId(),
+                            state.actorUsername, state.actorType, isTyping));
+        } catch (Exception e) {
+            log.error("[send] Failed to send typing indicator for conversation {}: {}",
+                    key.conversationUserId(), e.getMessage());
+        }
+    }
+
+    private record Key(UUID conversationUserId, UUID actorId) {
+    }
+
+    private record TypingState(String actorUsername, String actorType, long lastSentAt, long lastEventAt) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.qm.bookstore.qm_bookstore.service;
 
+import com.qm.bookstore.qm_bookstore.dto.base.response.BaseGetAllResponse;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.ValidateVoucherRequest;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.VoucherCreateRequest;
 import com.qm.bookstore.qm_bookstore.dto.voucher.request.VoucherUpdateRequest;
@@ -107,6 +108,19 @@ public class VoucherService {
         return vouchers.map(voucherMapper::toVoucherResponse);
     }
 
+    /**
+     * Lấy danh sách voucher với filter - chế độ cursor (keyset, mới nhất trước, không đếm tổng)
+     */
+    public BaseGetAllResponse<VoucherResponse> getVouchersAfter(Boolean status, String applyTo, String after, int size) {
+        KeysetCursor.Position position = KeysetCursor.decode(after);
+        List<Voucher> vouchers = position.isFirst()
+                ? voucherRepository.findByFiltersFirst(status, applyTo, KeysetCursor.limit(size))
+                : voucherRepository.findByFiltersAfter(
+                        status, applyTo, position.createdAt(), position.idAsLong(), KeysetCursor.limit(size));
+        return KeysetCursor.toResponse(vouchers, size, Voucher::getCreatedAt, Voucher::getId,
+                page -> page.stream().map(voucherMapper::toVoucherResponse).toList());
+    }
+
     /**
      * Lấy danh sách voucher available (public)
      */
@@ -0,0 +1,162 @@
+package com.qm.bookstore.qm_bookstore.config;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hai instance ứng dụng (chỉ phần WebSocket) chạy websocket.broker.mode=relay qua một STOMP broker nhúng (Artemis):
+ * tin nhắn publish ở instance B phải tới client đang subscribe ở instance A.
+ */
+class WebSocketBrokerRelayTests {
+
+	private static final long TIMEOUT_MS = 10000;
+
+	@TempDir
+	File brokerDir;
+
+	private EmbeddedActiveMQ broker;
+	private int brokerPort;
+	private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+	private WebSocketStompClient stompClient;
+
+	@BeforeEach
+	void startBroker() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			brokerPort = socket.getLocalPort();
+		}
+		Configuration configuration = new ConfigurationImpl()
+				.setPersistenceEnabled(false)
+				.setSecurityEnabled(false)
+				.setBindingsDirectory(new File(brokerDir, "bindings").getPath())
+				.setJournalDirectory(new File(brokerDir, "journal").getPath())
+				.setPagingDirectory(new File(brokerDir, "paging").getPath())
+				.setLargeMessagesDirectory(new File(brokerDir, "large-messages").getPath())
+				.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + brokerPort + "?protocols=STOMP");
+		broker = new EmbeddedActiveMQ();
+		broker.setConfiguration(configuration);
+		broker.start();
+
+		stompClient = new WebSocketStompClient(
+				new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+		stompClient.setMessageConverter(new StringMessageConverter());
+	}
+
+	@AfterEach
+	void stopAll() throws Exception {
+		nodes.forEach(ConfigurableApplicationContext::close);
+		if (broker != null) {
+			broker.stop();
+		}
+	}
+
+	@Test
+	void topicMessagePublishedOnOneNodeReachesSubscriberOnAnother() throws Exception {
+		ConfigurableApplicationContext nodeA = startNode();
+		ConfigurableApplicationContext nodeB = startNode();
+
+		String destination = "/topic/conversation/" + UUID.randomUUID();
+		BlockingQueue<String> received = new LinkedBlockingQueue<>();
+		StompHeaders connectHeaders = new StompHeaders();
+		connectHeaders.add("Authorization", "Bearer " + nodeA.getBean(JwtUtil.class)
+				.generateToken("relay-test", "user", UUID.randomUUID().toString()));
+		StompSession session = stompClient
+				.connectAsync("ws://localhost:" + port(nodeA) + "/ws", new WebSocketHttpHeaders(), connectHeaders,
+						new StompSessionHandlerAdapter() {
+						})
+				.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		session.subscribe(destination, new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return String.class;
+			}
+
+			@Override
+			public void handleFrame(StompHeaders headers, Object payload) {
+				received.add((String) payload);
+			}
+		});
+
+		// SUBSCRIBE được relay tới broker bất đồng bộ - gửi lại cho tới khi client nhận được
+		SimpMessagingTemplate publisher = nodeB.getBean(SimpMessagingTemplate.class);
+		String message = null;
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (message == null && System.currentTimeMillis() < deadline) {
+			publisher.convertAndSend(destination, "hello from node B");
+			message = received.poll(200, TimeUnit.MILLISECONDS);
+		}
+
+		assertEquals("hello from node B", message);
+		session.disconnect();
+	}
+
+	// Helper methods
+
+	private ConfigurableApplicationContext startNode() {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(RelayNode.class)
+				.properties(
+						"server.port=0",
+						"spring.main.banner-mode=off",
+						"websocket.broker.mode=relay",
+						"websocket.broker.relay.host=127.0.0.1",
+						"websocket.broker.relay.port=" + brokerPort,
+						"jwt.secret=relay-test-secret-relay-test-secret-0123456789",
+						"jwt.access-token-expiration=60000")
+				.run();
+		nodes.add(context);
+		return context;
+	}
+
+	private int port(ConfigurableApplicationContext context) {
+		return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+	}
+
+	@SpringBootConfiguration
+	@EnableAutoConfiguration(exclude = {
+			DataSourceAutoConfiguration.class,
+			HibernateJpaAutoConfiguration.class,
+			SecurityAutoConfiguration.class,
+			UserDetailsServiceAutoConfiguration.class,
+			ManagementWebSecurityAutoConfiguration.class
+	})
+	@Import({WebSocketConfig.class, JwtUtil.class})
+	static class RelayNode {
+	}
+}
@@ -0,0 +1,193 @@
+package com.qm.bookstore.qm_bookstore.service;
+
+import com.qm.bookstore.qm_bookstore.dto.order.request.CheckoutRequest;
+import com.qm.bookstore.qm_bookstore.entity.Cart;
+import com.qm.bookstore.qm_bookstore.entity.CartItem;
+import com.qm.bookstore.qm_bookstore.entity.Product;
+import com.qm.bookstore.qm_bookstore.entity.User;
+import com.qm.bookstore.qm_bookstore.repository.CartItemRepository;
+import com.qm.bookstore.qm_bookstore.repository.CartRepository;
+import com.qm.bookstore.qm_bookstore.repository.ProductRepository;
+import com.qm.bookstore.qm_bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark checkout trên một hot product: so sánh sản phẩm thường (khóa dòng products) với hot product
+ * (lấy hàng trên stripe) theo số thread (1, 2, 4 ... số core). Mỗi thread là một user riêng, mỗi lần checkout
+ * chạy trong transaction riêng và rollback (giữ khóa như checkout thật nhưng không tạo đơn / đổi tồn kho).
+ *
+ * - product, user, giỏ hàng là fixture tạo trong test và xóa sau khi chạy - không đụng dữ liệu thật
+ * - job reconcile của HotStockService bị tắt (interval rất lớn) để không tranh khóa stripe với benchmark
+ * - SalesRollupService được mock: dòng tổng hợp theo ngày là điểm tranh chấp riêng, không thuộc phần so sánh
+ *
+ * Cần database thật (nên trỏ spring.datasource.url tới schema test), chạy bằng:
+ * mvn test -Dtest=HotStockBenchmarkTests -Dbenchmark.hot-stock=true
+ */
+@SpringBootTest(properties = "inventory.hot-stock.reconcile-interval-ms=86400000")
+@EnabledIfSystemProperty(named = "benchmark.hot-stock", matches = "true")
+class HotStockBenchmarkTests {
+
+	private static final Logger log = LoggerFactory.getLogger(HotStockBenchmarkTests.class);
+
+	private static final long DURATION_MS = 3000;
+	private static final int FIXTURE_STOCK = 1_000_000;
+	// Sai số đo cho phép khi so sánh throughput giữa hai mức thread
+	private static final double TOLERANCE = 0.8;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private HotStockService hotStockService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CartItemRepository cartItemRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@MockitoBean
+	private SalesRollupService salesRollupService;
+
+	private final int cores = Runtime.getRuntime().availableProcessors();
+	private Product product;
+	private final List<User> users = new ArrayList<>();
+	private final List<Cart> carts = new ArrayList<>();
+
+	@BeforeEach
+	void createFixture() {
+		String suffix = UUID.randomUUID().toString().substring(0, 8);
+		transactionTemplate.executeWithoutResult(status -> {
+			Product fixture = new Product();
+			fixture.setName("Hot stock benchmark " + suffix);
+			fixture.setSku("BENCH-" + suffix);
+			fixture.setPrice(new BigDecimal("10000"));
+			fixture.setStockQuantity(FIXTURE_STOCK);
+			product = productRepository.save(fixture);
+
+			for (int i = 0; i < cores; i++) {
+				User user = userRepository.save(User.builder()
+						.username("bench-" + suffix + "-" + i)
+						.passwordHash("benchmark")
+						.email("bench-" + suffix + "-" + i + "@benchmark.local")
+						.build());
+				Cart cart = cartRepository.save(Cart.builder().userId(user.getId()).build());
+				cartItemRepository.save(CartItem.builder()
+						.cartId(cart.getId())
+						.productId(product.getId())
+						.quantity(1)
+						.isSelected(true)
+						.build());
+				users.add(user);
+				carts.add(cart);
+			}
+		});
+	}
+
+	@AfterEach
+	void dropFixture() {
+		if (product != null && !hotStockService.hotProductIds(List.of(product.getId())).isEmpty()) {
+			hotStockService.disable(product.getId());
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			carts.forEach(cart -> cartItemRepository.deleteByCartId(cart.getId()));
+			cartRepository.deleteAll(carts);
+			userRepository.deleteAll(users);
+			if (product != null) {
+				productRepository.deleteById(product.getId());
+			}
+		});
+	}
+
+	@Test
+	void stripedCheckoutThroughputDoesNotDropWithThreads() throws Exception {
+		List<Double> rowLock = new ArrayList<>();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			rowLock.add(run(threads));
+		}
+
+		hotStockService.enable(product.getId(), Math.max(cores * 2, 2));
+		List<Double> striped = new ArrayList<>();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			striped.add(run(threads));
+		}
+
+		for (int i = 0, threads = 1; i < striped.size(); i++, threads *= 2) {
+			log.info("threads={}  products row: {} checkouts/s  stripes: {} checkouts/s",
+					threads, Math.round(rowLock.get(i)), Math.round(striped.get(i)));
+		}
+		for (int i = 1; i < striped.size(); i++) {
+			assertTrue(striped.get(i) >= striped.get(i - 1) * TOLERANCE,
+					"Striped checkout throughput dropped from " + striped.get(i - 1) + " to " + striped.get(i)
+							+ " ops/s when doubling threads (products row: " + rowLock + ", stripes: " + striped + ")");
+		}
+	}
+
+	private double run(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Long>> results = new ArrayList<>();
+		CheckoutRequest request = CheckoutRequest.builder()
+				.paymentMethod("cod")
+				.fulfillmentMethod("pickup")
+				.build();
+
+		for (int i = 0; i < threads; i++) {
+			UUID userId = users.get(i).getId();
+			results.add(executor.submit(() -> {
+				start.await();
+				long deadline = System.currentTimeMillis() + DURATION_MS;
+				long ops = 0;
+				while (System.currentTimeMillis() < deadline) {
+					transactionTemplate.executeWithoutResult(status -> {
+						orderService.checkout(userId, request);
+						status.setRollbackOnly();
+					});
+					ops++;
+				}
+				return ops;
+			}));
+		}
+
+		start.countDown();
+		long total = 0;
+		try {
+			for (Future<Long> result : results) {
+				total += result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return total * 1000.0 / DURATION_MS;
+	}
+
+}